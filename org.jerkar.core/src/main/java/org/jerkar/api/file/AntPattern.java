@@ -79,10 +79,31 @@ final class AntPattern {
 
     private static final String PATH_SEPARATOR = "" + PATH_SEPARATOR_CHAR;
 
+    private static final int[] NO_SEGMENT = new int[0];
+
     private final String pattern;
 
+    // The pattern is split once for all, segment flags saving string comparisons at match time.
+    private final String[] pattDirs;
+
+    private final boolean[] doubleStars;
+
+    private final boolean[] containStars;
+
+    // Such a pattern matching a directory matches everything under it
+    private final boolean endsWithDoubleStar;
+
     private AntPattern(String pattern) {
         this.pattern = normalize(pattern);
+        this.pattDirs = JkUtilsString.split(this.pattern, PATH_SEPARATOR);
+        this.doubleStars = new boolean[pattDirs.length];
+        this.containStars = new boolean[pattDirs.length];
+        for (int i = 0; i < pattDirs.length; i++) {
+            doubleStars[i] = "**".equals(pattDirs[i]);
+            containStars[i] = pattDirs[i].indexOf('*') >= 0;
+        }
+        this.endsWithDoubleStar = pattDirs.length > 0 && doubleStars[pattDirs.length - 1]
+                && !this.pattern.endsWith(PATH_SEPARATOR);
     }
 
     public static AntPattern of(String pattern) {
@@ -107,25 +128,61 @@ final class AntPattern {
      */
     public boolean doMatch(String path) {
 
-        // First clean path and pattern to remove leading '/', '.' or '\'
-        // characters
+        // First clean path to remove leading '/', '.' or '' characters
         final String normalizedPath = normalize(path);
+        return doMatch(normalizedPath, segments(normalizedPath), pattern.endsWith(PATH_SEPARATOR));
+    }
 
-        final String[] pattDirs = JkUtilsString.split(pattern, PATH_SEPARATOR);
-        final String[] pathDirs = JkUtilsString.split(normalizedPath, PATH_SEPARATOR);
+    /**
+     * Returns <code>false</code> if no path under the specified directory can
+     * match this pattern.
+     */
+    public boolean mayMatchUnder(String dirPath) {
+        final String normalizedPath = normalize(dirPath);
+        final int[] bounds = segments(normalizedPath);
+        final int pathLength = bounds.length / 2;
+        int index = 0;
+        for (; index < pattDirs.length && index < pathLength; index++) {
+            if (doubleStars[index]) {
+                return true;
+            }
+            if (!matchStrings(index, normalizedPath, bounds[2 * index], bounds[2 * index + 1])) {
+                return false;
+            }
+        }
+        return index < pattDirs.length;
+    }
+
+    /**
+     * Returns <code>true</code> if every path under the specified directory
+     * matches this pattern, as <code>.git/**</code> does for
+     * <code>.git</code>.
+     */
+    public boolean matchesAllUnder(String dirPath) {
+        if (!endsWithDoubleStar) {
+            return false;
+        }
+        final String normalizedPath = normalize(dirPath);
+        return doMatch(normalizedPath, segments(normalizedPath), false);
+    }
 
+    /*
+     * Path segments are given as start/end offsets in the path so no substring is created.
+     */
+    private boolean doMatch(String normalizedPath, int[] bounds,
+            boolean patternEndsWithSeparator) {
         int pattIdxStart = 0;
         int pattIdxEnd = pattDirs.length - 1;
         int pathIdxStart = 0;
-        int pathIdxEnd = pathDirs.length - 1;
+        int pathIdxEnd = bounds.length / 2 - 1;
 
         // Match all elements up to the first **
         while (pattIdxStart <= pattIdxEnd && pathIdxStart <= pathIdxEnd) {
-            final String patDir = pattDirs[pattIdxStart];
-            if ("**".equals(patDir)) {
+            if (doubleStars[pattIdxStart]) {
                 break;
             }
-            if (!matchStrings(patDir, pathDirs[pathIdxStart])) {
+            if (!matchStrings(pattIdxStart, normalizedPath, bounds[2 * pathIdxStart],
+                    bounds[2 * pathIdxStart + 1])) {
                 return false;
             }
             pattIdxStart++;
@@ -135,19 +192,14 @@ final class AntPattern {
         if (pathIdxStart > pathIdxEnd) {
             // Path is exhausted, only match if rest of pattern is * or **'s
             if (pattIdxStart > pattIdxEnd) {
-                return (pattern.endsWith(PATH_SEPARATOR) ? normalizedPath.endsWith(PATH_SEPARATOR)
+                return (patternEndsWithSeparator ? normalizedPath.endsWith(PATH_SEPARATOR)
                         : !normalizedPath.endsWith(PATH_SEPARATOR));
             }
             if (pattIdxStart == pattIdxEnd && pattDirs[pattIdxStart].equals("*")
                     && normalizedPath.endsWith(PATH_SEPARATOR)) {
                 return true;
             }
-            for (int i = pattIdxStart; i <= pattIdxEnd; i++) {
-                if (!pattDirs[i].equals("**")) {
-                    return false;
-                }
-            }
-            return true;
+            return onlyDoubleStars(pattIdxStart, pattIdxEnd);
         } else if (pattIdxStart > pattIdxEnd) {
             // String not exhausted, but pattern is. Failure.
             return false;
@@ -155,11 +207,11 @@ final class AntPattern {
 
         // up to last '**'
         while (pattIdxStart <= pattIdxEnd && pathIdxStart <= pathIdxEnd) {
-            final String patDir = pattDirs[pattIdxEnd];
-            if (patDir.equals("**")) {
+            if (doubleStars[pattIdxEnd]) {
                 break;
             }
-            if (!matchStrings(patDir, pathDirs[pathIdxEnd])) {
+            if (!matchStrings(pattIdxEnd, normalizedPath, bounds[2 * pathIdxEnd],
+                    bounds[2 * pathIdxEnd + 1])) {
                 return false;
             }
             pattIdxEnd--;
@@ -167,18 +219,13 @@ final class AntPattern {
         }
         if (pathIdxStart > pathIdxEnd) {
             // String is exhausted
-            for (int i = pattIdxStart; i <= pattIdxEnd; i++) {
-                if (!pattDirs[i].equals("**")) {
-                    return false;
-                }
-            }
-            return true;
+            return onlyDoubleStars(pattIdxStart, pattIdxEnd);
         }
 
         while (pattIdxStart != pattIdxEnd && pathIdxStart <= pathIdxEnd) {
             int patIdxTmp = -1;
             for (int i = pattIdxStart + 1; i <= pattIdxEnd; i++) {
-                if (pattDirs[i].equals("**")) {
+                if (doubleStars[i]) {
                     patIdxTmp = i;
                     break;
                 }
@@ -196,9 +243,9 @@ final class AntPattern {
 
             strLoop: for (int i = 0; i <= strLength - patLength; i++) {
                 for (int j = 0; j < patLength; j++) {
-                    final String subPat = pattDirs[pattIdxStart + j + 1];
-                    final String subStr = pathDirs[pathIdxStart + i + j];
-                    if (!matchStrings(subPat, subStr)) {
+                    final int pathIdx = pathIdxStart + i + j;
+                    if (!matchStrings(pattIdxStart + j + 1, normalizedPath, bounds[2 * pathIdx],
+                            bounds[2 * pathIdx + 1])) {
                         continue strLoop;
                     }
                 }
@@ -214,55 +261,81 @@ final class AntPattern {
             pathIdxStart = foundIdx + patLength;
         }
 
+        return onlyDoubleStars(pattIdxStart, pattIdxEnd);
+    }
+
+    private boolean onlyDoubleStars(int pattIdxStart, int pattIdxEnd) {
         for (int i = pattIdxStart; i <= pattIdxEnd; i++) {
-            if (!pattDirs[i].equals("**")) {
+            if (!doubleStars[i]) {
                 return false;
             }
         }
-
         return true;
     }
 
+    /*
+     * Returns the start and end offsets of each segment of the specified path, empty segments
+     * being skipped.
+     */
+    private static int[] segments(String path) {
+        int count = 0;
+        final int length = path.length();
+        for (int i = 0; i < length; i++) {
+            if (path.charAt(i) != PATH_SEPARATOR_CHAR
+                    && (i == 0 || path.charAt(i - 1) == PATH_SEPARATOR_CHAR)) {
+                count++;
+            }
+        }
+        if (count == 0) {
+            return NO_SEGMENT;
+        }
+        final int[] result = new int[2 * count];
+        int index = 0;
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            final boolean separator = i == length || path.charAt(i) == PATH_SEPARATOR_CHAR;
+            if (separator && start >= 0) {
+                result[index++] = start;
+                result[index++] = i;
+                start = -1;
+            } else if (!separator && start < 0) {
+                start = i;
+            }
+        }
+        return result;
+    }
+
     /**
-     * Tests whether or not a string matches against a pattern. The pattern may
-     * contain two special characters:<br>
+     * Tests whether or not a string matches against a pattern segment. The
+     * pattern may contain two special characters:<br>
      * '*' means zero or more characters<br>
      * '?' means one and only one character
      * 
-     * @param pattern
-     *            pattern to match against. Must not be <code>null</code>.
-     * @param str
-     *            string which must be matched against the pattern. Must not be
-     *            <code>null</code>.
+     * @param pattIndex
+     *            index of the pattern segment to match against.
+     * @param path
+     *            string containing the segment to match, from <code>start</code>
+     *            inclusive to <code>end</code> exclusive.
      * @return <code>true</code> if the string matches against the pattern, or
      *         <code>false</code> otherwise.
      */
-    private static boolean matchStrings(String pattern, String str) {
-        final char[] patArr = pattern.toCharArray();
-        final char[] strArr = str.toCharArray();
+    private boolean matchStrings(int pattIndex, String path, int start, int end) {
+        final String patt = pattDirs[pattIndex];
         int patIdxStart = 0;
-        int patIdxEnd = patArr.length - 1;
-        int strIdxStart = 0;
-        int strIdxEnd = strArr.length - 1;
+        int patIdxEnd = patt.length() - 1;
+        int strIdxStart = start;
+        int strIdxEnd = end - 1;
         char ch;
 
-        boolean containsStar = false;
-        for (final char element : patArr) {
-            if (element == '*') {
-                containsStar = true;
-                break;
-            }
-        }
-
-        if (!containsStar) {
+        if (!containStars[pattIndex]) {
             // No '*'s, so we make a shortcut
-            if (patIdxEnd != strIdxEnd) {
+            if (patIdxEnd != strIdxEnd - start) {
                 return false; // Pattern and string do not have the same size
             }
             for (int i = 0; i <= patIdxEnd; i++) {
-                ch = patArr[i];
+                ch = patt.charAt(i);
                 if (ch != '?') {
-                    if (ch != strArr[i]) {
+                    if (ch != path.charAt(start + i)) {
                         return false;// Character mismatch
                     }
                 }
@@ -275,9 +348,9 @@ final class AntPattern {
         }
 
         // Process characters before first star
-        while ((ch = patArr[patIdxStart]) != '*' && strIdxStart <= strIdxEnd) {
+        while ((ch = patt.charAt(patIdxStart)) != '*' && strIdxStart <= strIdxEnd) {
             if (ch != '?') {
-                if (ch != strArr[strIdxStart]) {
+                if (ch != path.charAt(strIdxStart)) {
                     return false;// Character mismatch
                 }
             }
@@ -287,18 +360,13 @@ final class AntPattern {
         if (strIdxStart > strIdxEnd) {
             // All characters in the string are used. Check if only '*'s are
             // left in the pattern. If so, we succeeded. Otherwise failure.
-            for (int i = patIdxStart; i <= patIdxEnd; i++) {
-                if (patArr[i] != '*') {
-                    return false;
-                }
-            }
-            return true;
+            return onlyStars(patt, patIdxStart, patIdxEnd);
         }
 
         // Process characters after last star
-        while ((ch = patArr[patIdxEnd]) != '*' && strIdxStart <= strIdxEnd) {
+        while ((ch = patt.charAt(patIdxEnd)) != '*' && strIdxStart <= strIdxEnd) {
             if (ch != '?') {
-                if (ch != strArr[strIdxEnd]) {
+                if (ch != path.charAt(strIdxEnd)) {
                     return false;// Character mismatch
                 }
             }
@@ -308,12 +376,7 @@ final class AntPattern {
         if (strIdxStart > strIdxEnd) {
             // All characters in the string are used. Check if only '*'s are
             // left in the pattern. If so, we succeeded. Otherwise failure.
-            for (int i = patIdxStart; i <= patIdxEnd; i++) {
-                if (patArr[i] != '*') {
-                    return false;
-                }
-            }
-            return true;
+            return onlyStars(patt, patIdxStart, patIdxEnd);
         }
 
         // process pattern between stars. padIdxStart and patIdxEnd point
@@ -321,7 +384,7 @@ final class AntPattern {
         while (patIdxStart != patIdxEnd && strIdxStart <= strIdxEnd) {
             int patIdxTmp = -1;
             for (int i = patIdxStart + 1; i <= patIdxEnd; i++) {
-                if (patArr[i] == '*') {
+                if (patt.charAt(i) == '*') {
                     patIdxTmp = i;
                     break;
                 }
@@ -338,9 +401,9 @@ final class AntPattern {
             int foundIdx = -1;
             strLoop: for (int i = 0; i <= strLength - patLength; i++) {
                 for (int j = 0; j < patLength; j++) {
-                    ch = patArr[patIdxStart + j + 1];
+                    ch = patt.charAt(patIdxStart + j + 1);
                     if (ch != '?') {
-                        if (ch != strArr[strIdxStart + i + j]) {
+                        if (ch != path.charAt(strIdxStart + i + j)) {
                             continue strLoop;
                         }
                     }
@@ -360,12 +423,15 @@ final class AntPattern {
 
         // All characters in the string are used. Check if only '*'s are left
         // in the pattern. If so, we succeeded. Otherwise failure.
+        return onlyStars(patt, patIdxStart, patIdxEnd);
+    }
+
+    private static boolean onlyStars(String patt, int patIdxStart, int patIdxEnd) {
         for (int i = patIdxStart; i <= patIdxEnd; i++) {
-            if (patArr[i] != '*') {
+            if (patt.charAt(i) != '*') {
                 return false;
             }
         }
-
         return true;
     }
 
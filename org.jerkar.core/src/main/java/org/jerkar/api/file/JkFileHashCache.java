@@ -0,0 +1,92 @@
+package org.jerkar.api.file;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsString;
+
+/**
+ * Caches the content hash of files, so up-to-date checks do not read again
+ * files that have not changed. Files are hashed again only if their size or
+ * last modification time has changed since they were hashed.
+ * <p>
+ * The cache is shared by the whole process (see {@link #instance()}) and can
+ * be stored in a file to be reused across runs.
+ *
+ * @author Jerome Angibaud
+ */
+public final class JkFileHashCache extends JkPersistentFileCache<String> {
+
+    private static final JkFileHashCache INSTANCE = new JkFileHashCache();
+
+    private static final String ALGORITHM = "MD5";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int FORMAT_VERSION = 1;
+
+    private JkFileHashCache() {
+        super("File hash cache", FORMAT_VERSION);
+    }
+
+    /**
+     * Returns the cache shared by the whole process.
+     */
+    public static JkFileHashCache instance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the hexadecimal MD5 hash of the content of the specified file,
+     * or <code>null</code> if it does not exist or is a directory.
+     */
+    public String hash(File file) {
+        if (file.lastModified() == 0L) {
+            return null;
+        }
+        return get(file);
+    }
+
+    /*
+     * Combines the specified strings in a single hash, each string being terminated so that
+     * distinct sequences give distinct hashes.
+     */
+    static String combine(Iterable<String> values) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(ALGORITHM);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (final String value : values) {
+            digest.update(String.valueOf(value).getBytes(UTF8));
+            digest.update((byte) 0);
+        }
+        return JkUtilsString.toHexString(digest.digest());
+    }
+
+    @Override
+    protected String compute(File file) {
+        if (file.isDirectory()) {
+            return null;
+        }
+        return JkUtilsFile.checksum(file, ALGORITHM);
+    }
+
+    @Override
+    protected String readValue(DataInput input) throws IOException {
+        return input.readUTF();
+    }
+
+    @Override
+    protected void writeValue(DataOutput output, String value) throws IOException {
+        output.writeUTF(value);
+    }
+
+}
@@ -4,10 +4,12 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 import org.jerkar.api.system.JkLog;
 import org.jerkar.api.utils.JkUtilsAssert;
@@ -101,6 +103,27 @@ public final class JkFileTree implements Iterable<File> {
                 JkLog.infoStreamIfVerbose());
     }
 
+    /**
+     * Same as {@link #copyTo(File)} but copies only the files that are missing
+     * in the destination directory or differ in size or last modification
+     * time, so copying again an unchanged tree costs barely more than walking
+     * it. Copied files get the last modification time of their source. If
+     * <code>hardLinkIfPossible</code> is <code>true</code>, files are hard
+     * linked instead of copied when the JDK and the file system support it :
+     * the destination files must then not be modified in place.
+     *
+     * @return The count of files actually copied or linked.
+     */
+    public int copyChangedTo(File destinationDir, boolean hardLinkIfPossible) {
+        if (!destinationDir.exists()) {
+            destinationDir.mkdirs();
+        } else {
+            JkUtilsFile.assertAllDir(destinationDir);
+        }
+        return JkUtilsFile.copyDirContentIfChanged(root, destinationDir,
+                filter.toFileFilter(root), hardLinkIfPossible);
+    }
+
     /**
      * Same as {@link #copyTo(File)} but replacing the tokens in
      * <code>${key}</code> by their corresponding value in the specified
@@ -296,10 +319,38 @@ public final class JkFileTree implements Iterable<File> {
      * Returns the file contained in this {@link JkFileTree}.
      */
     public List<File> files(boolean includeFolders) {
+        assertRootExists();
+        return JkUtilsFile.filesOf(root, filter.toFileFilter(root), includeFolders);
+    }
+
+    private void assertRootExists() {
         if (!root.exists()) {
             throw new IllegalStateException("Folder " + root.getAbsolutePath() + " does nor exist.");
         }
-        return JkUtilsFile.filesOf(root, filter.toFileFilter(root), includeFolders);
+    }
+
+    /**
+     * Returns a hash of the content of this tree, made of the relative path
+     * and the content of each of its files, folders excluded. It changes
+     * whenever a file is added, removed, renamed or modified. Content hashes
+     * are taken from {@link JkFileHashCache#instance()} so unchanged files are
+     * not read again. A tree whose root does not exist has the hash of an
+     * empty tree.
+     */
+    public String snapshot() {
+        final List<String> values = new ArrayList<String>();
+        if (root.exists()) {
+            final Map<String, File> files = new TreeMap<String, File>();
+            for (final File file : this) {
+                files.put(relativePath(file).replace(File.separatorChar, '/'), file);
+            }
+            final JkFileHashCache cache = JkFileHashCache.instance();
+            for (final Map.Entry<String, File> entry : files.entrySet()) {
+                values.add(entry.getKey());
+                values.add(cache.hash(entry.getValue()));
+            }
+        }
+        return JkFileHashCache.combine(values);
     }
 
     /**
@@ -310,9 +361,22 @@ public final class JkFileTree implements Iterable<File> {
         return JkFileTreeSet.of(this);
     }
 
+    /**
+     * Returns an iterator over the files of this tree, folders excluded. Files
+     * are read from the file system as the iteration goes.
+     */
     @Override
     public Iterator<File> iterator() {
-        return files(false).iterator();
+        assertRootExists();
+        return JkUtilsFile.fileIterator(root, filter.toFileFilter(root), false);
+    }
+
+    /**
+     * Returns <code>true</code> if this tree contains no file, folders
+     * excluded. It stops at the first file found.
+     */
+    public boolean isEmpty() {
+        return !root.exists() || !iterator().hasNext();
     }
 
     /**
@@ -8,6 +8,7 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 import org.jerkar.api.utils.JkUtilsFile;
 import org.jerkar.api.utils.JkUtilsIterable;
@@ -97,9 +98,54 @@ public final class JkFileTreeSet implements Iterable<File> {
         return new JkFileTreeSet(list);
     }
 
+    /**
+     * Returns an iterator over the files of the trees of this set, folders
+     * excluded. Trees whose root does not exist are skipped. Files are read
+     * from the file system as the iteration goes.
+     */
     @Override
     public Iterator<File> iterator() {
-        return files(false).iterator();
+        final Iterator<JkFileTree> treeIterator = jkFileTrees.iterator();
+        return new Iterator<File>() {
+
+            private Iterator<File> current = Collections.<File> emptyList().iterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext()) {
+                    if (!treeIterator.hasNext()) {
+                        return false;
+                    }
+                    final JkFileTree tree = treeIterator.next();
+                    if (tree.exists()) {
+                        current = tree.iterator();
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public File next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+        };
+    }
+
+    /**
+     * Returns <code>true</code> if the trees of this set contain no file,
+     * folders excluded. It stops at the first file found.
+     */
+    public boolean isEmpty() {
+        return !iterator().hasNext();
     }
 
     /**
@@ -209,6 +255,18 @@ public final class JkFileTreeSet implements Iterable<File> {
         return result;
     }
 
+    /**
+     * Returns a hash of the content of this set, combining the
+     * {@link JkFileTree#snapshot() snapshot} of each of its trees.
+     */
+    public String snapshot() {
+        final List<String> values = new ArrayList<String>();
+        for (final JkFileTree tree : jkFileTrees) {
+            values.add(tree.snapshot());
+        }
+        return JkFileHashCache.combine(values);
+    }
+
     /**
      * Returns a {@link JkZipper} made of the files contained in this
      * {@link JkFileTreeSet}.
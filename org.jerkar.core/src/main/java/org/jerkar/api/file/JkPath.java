@@ -2,13 +2,15 @@ package org.jerkar.api.file;
 
 import java.io.File;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
-import org.jerkar.api.utils.JkUtilsIterable;
 import org.jerkar.api.utils.JkUtilsString;
 
 /**
@@ -20,19 +22,33 @@ import org.jerkar.api.utils.JkUtilsString;
  */
 public final class JkPath implements Iterable<File> {
 
-    private final List<File> entries;
+    // Never modified once constructed
+    private final File[] entries;
 
-    private JkPath(Iterable<File> entries) {
+    private final List<File> entryList;
+
+    private volatile Set<File> index;
+
+    private String string;
+
+    private JkPath(File[] entries) {
         super();
-        this.entries = Collections.unmodifiableList(JkUtilsIterable.listOf(entries));
+        this.entries = entries;
+        this.entryList = Collections.unmodifiableList(Arrays.asList(entries));
     }
 
     /**
      * Creates a path from a sequence of files.
      */
     public static JkPath of(Iterable<File> entries) {
-        final LinkedHashSet<File> files = new LinkedHashSet<File>(JkUtilsIterable.listOf(entries));
-        return new JkPath(files);
+        if (entries instanceof JkPath) {
+            return ((JkPath) entries).withoutDoubloons();
+        }
+        final LinkedHashSet<File> files = new LinkedHashSet<File>();
+        for (final File file : entries) {
+            files.add(file);
+        }
+        return new JkPath(files.toArray(new File[files.size()]));
     }
 
     /**
@@ -79,34 +95,39 @@ public final class JkPath implements Iterable<File> {
      * the first occurrence is kept.
      */
     public JkPath withoutDoubloons() {
-        final List<File> files = new LinkedList<File>();
-        for (final File file : this) {
-            if (!files.contains(file)) {
-                files.add(file);
-            }
+        if (index().size() == entries.length) {
+            return this;
         }
-        return new JkPath(files);
+        final LinkedHashSet<File> files = new LinkedHashSet<File>(entryList);
+        return new JkPath(files.toArray(new File[files.size()]));
+    }
+
+    /**
+     * Returns <code>true</code> if this path contains the specified entry.
+     */
+    public boolean contains(File entry) {
+        return index().contains(entry);
     }
 
     /**
      * Returns the sequence of files as a list.
      */
     public List<File> entries() {
-        return entries;
+        return entryList;
     }
 
     /**
      * Returns the first entry of this path.
      */
     public File first() {
-        return entries.get(0);
+        return entries[0];
     }
 
     /**
      * Short hand for <code>entries().isEmpty()</code>.
      */
     public boolean isEmpty() {
-        return entries.isEmpty();
+        return entries.length == 0;
     }
 
     /**
@@ -120,9 +141,12 @@ public final class JkPath implements Iterable<File> {
      * Returns a <code>JkPath</code> made of, in the order, the specified
      * entries plus the entries of this one.
      */
-    @SuppressWarnings("unchecked")
     public JkPath andHead(Iterable<File> otherEntries) {
-        return new JkPath(JkUtilsIterable.chain(otherEntries, this.entries));
+        final File[] others = toArray(otherEntries);
+        if (others.length == 0) {
+            return this;
+        }
+        return new JkPath(concat(others, this.entries));
     }
 
     /**
@@ -136,9 +160,12 @@ public final class JkPath implements Iterable<File> {
      * Returns a <code>JkPath</code> made of, in the order, the entries of this
      * one plus the specified ones.
      */
-    @SuppressWarnings("unchecked")
     public JkPath and(Iterable<File> otherFiles) {
-        return new JkPath(JkUtilsIterable.chain(this.entries, otherFiles));
+        final File[] others = toArray(otherFiles);
+        if (others.length == 0) {
+            return this;
+        }
+        return new JkPath(concat(this.entries, others));
     }
 
     /**
@@ -146,19 +173,59 @@ public final class JkPath implements Iterable<File> {
      */
     @Override
     public String toString() {
-        final StringBuilder builder = new StringBuilder();
-        for (final Iterator<File> it = this.iterator(); it.hasNext();) {
-            builder.append(it.next().getAbsolutePath());
-            if (it.hasNext()) {
-                builder.append(";");
+        String result = string;
+        if (result == null) {
+            final StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < entries.length; i++) {
+                if (i > 0) {
+                    builder.append(";");
+                }
+                builder.append(entries[i].getAbsolutePath());
             }
+            result = builder.toString();
+            string = result;
         }
-        return builder.toString();
+        return result;
     }
 
     @Override
     public Iterator<File> iterator() {
-        return entries.iterator();
+        return entryList.iterator();
+    }
+
+    // Built on demand as most paths are only iterated. Races only lead to build it twice.
+    private Set<File> index() {
+        Set<File> result = index;
+        if (result == null) {
+            result = new HashSet<File>(entryList);
+            index = result;
+        }
+        return result;
+    }
+
+    private static File[] toArray(Iterable<File> files) {
+        if (files instanceof JkPath) {
+            return ((JkPath) files).entries;
+        }
+        if (files instanceof Collection) {
+            final Collection<File> collection = (Collection<File>) files;
+            return collection.toArray(new File[collection.size()]);
+        }
+        final List<File> result = new LinkedList<File>();
+        for (final File file : files) {
+            result.add(file);
+        }
+        return result.toArray(new File[result.size()]);
+    }
+
+    private static File[] concat(File[] first, File[] second) {
+        if (first.length == 0) {
+            return second;
+        }
+        final File[] result = new File[first.length + second.length];
+        System.arraycopy(first, 0, result, 0, first.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
     }
 
 }
@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.FileFilter;
 import java.util.Set;
 
+import org.jerkar.api.utils.JkPruningFileFilter;
 import org.jerkar.api.utils.JkUtilsFile;
 
 /**
@@ -34,6 +35,16 @@ public abstract class JkPathFilter {
      */
     public abstract boolean accept(String relativePath);
 
+    /**
+     * Returns <code>false</code> if this filter rejects every path under the
+     * specified relative directory, so tree walkers can skip it. Returns
+     * <code>true</code> if some may be accepted or if the filter can't tell,
+     * which is the default.
+     */
+    public boolean mayAcceptUnder(String relativeDirPath) {
+        return true;
+    }
+
     /**
      * Creates an include filter including the specified and patterns.
      */
@@ -96,32 +107,50 @@ public abstract class JkPathFilter {
      * absolute.
      */
     public FileFilter toFileFilter(final File baseDir) {
-        return new FileFilter() {
+        return new JkPruningFileFilter() {
 
             @Override
             public boolean accept(File file) {
-                final String relativePath = JkUtilsFile.getRelativePath(baseDir, file).replace(
-                        File.separator, "/");
-                return JkPathFilter.this.accept(relativePath);
+                return JkPathFilter.this.accept(relativePath(baseDir, file));
+            }
+
+            @Override
+            public boolean mayAcceptUnder(File dir) {
+                return JkPathFilter.this.mayAcceptUnder(relativePath(baseDir, dir));
             }
         };
     }
 
+    private static String relativePath(File baseDir, File file) {
+        return JkUtilsFile.getRelativePath(baseDir, file).replace(File.separatorChar, '/');
+    }
+
     private static final class IncludeFilter extends JkPathFilter {
 
         private final Set<AntPattern> antPatterns;
 
+        private final AntPattern[] patternArray;
+
         private IncludeFilter(Set<AntPattern> antPatterns) {
             super();
             this.antPatterns = antPatterns;
+            this.patternArray = antPatterns.toArray(new AntPattern[antPatterns.size()]);
         }
 
         @Override
         public boolean accept(String relativePath) {
+            for (final AntPattern antPattern : patternArray) {
+                if (antPattern.doMatch(relativePath)) {
+                    return true;
+                }
+            }
+            return false;
+        }
 
-            for (final AntPattern antPattern : antPatterns) {
-                final boolean match = antPattern.doMatch(relativePath);
-                if (match) {
+        @Override
+        public boolean mayAcceptUnder(String relativeDirPath) {
+            for (final AntPattern antPattern : patternArray) {
+                if (antPattern.mayMatchUnder(relativeDirPath)) {
                     return true;
                 }
             }
@@ -169,18 +198,28 @@ public abstract class JkPathFilter {
 
         private final Set<AntPattern> antPatterns;
 
+        private final AntPattern[] patternArray;
+
         private ExcludeFilter(Set<AntPattern> antPatterns) {
             super();
             this.antPatterns = antPatterns;
+            this.patternArray = antPatterns.toArray(new AntPattern[antPatterns.size()]);
         }
 
         @Override
         public boolean accept(String relativePath) {
+            for (final AntPattern antPattern : patternArray) {
+                if (antPattern.doMatch(relativePath)) {
+                    return false;
+                }
+            }
+            return true;
+        }
 
-            for (final AntPattern antPattern : antPatterns) {
-
-                final boolean match = !antPattern.doMatch(relativePath);
-                if (!match) {
+        @Override
+        public boolean mayAcceptUnder(String relativeDirPath) {
+            for (final AntPattern antPattern : patternArray) {
+                if (antPattern.matchesAllUnder(relativeDirPath)) {
                     return false;
                 }
             }
@@ -233,6 +272,12 @@ public abstract class JkPathFilter {
                 return filter1.accept(candidate) && filter2.accept(candidate);
             }
 
+            @Override
+            public boolean mayAcceptUnder(String relativeDirPath) {
+                return filter1.mayAcceptUnder(relativeDirPath)
+                        && filter2.mayAcceptUnder(relativeDirPath);
+            }
+
             @Override
             public String toString() {
                 return "{" + filter1 + " & " + filter2 + "}";
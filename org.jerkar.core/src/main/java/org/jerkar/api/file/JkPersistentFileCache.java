@@ -0,0 +1,209 @@
+package org.jerkar.api.file;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsIO;
+
+/**
+ * Base class for process-wide caches of values computed out of file
+ * contents. Files are identified by their absolute path and their value is
+ * computed again only if their size or last modification time has changed
+ * since it was computed.
+ * <p>
+ * Such a cache can be stored in a file to be reused across runs (see
+ * {@link #persistIn(File)}).
+ *
+ * @param <V>
+ *            Type of the values computed out of files
+ *
+ * @author Jerome Angibaud
+ */
+public abstract class JkPersistentFileCache<V> {
+
+    // Files modified this close to the computation may change again within the timestamp precision
+    private static final long TIMESTAMP_PRECISION = 2000;
+
+    private final String name;
+
+    private final int formatVersion;
+
+    private Map<String, Entry<V>> entries = new HashMap<String, Entry<V>>();
+
+    private File storeFile;
+
+    private boolean loaded = true;
+
+    private boolean dirty;
+
+    /**
+     * Constructs a cache having the specified name, as used in messages, and
+     * storing its entries in the specified format version. A stored cache
+     * having another format version is ignored.
+     */
+    protected JkPersistentFileCache(String name, int formatVersion) {
+        this.name = name;
+        this.formatVersion = formatVersion;
+    }
+
+    /**
+     * Stores this cache in the specified file : the file is read when a value
+     * is first asked for and written when the JVM exits. Only the first call
+     * is effective, the cache being shared by all the builds of the process.
+     */
+    public synchronized void persistIn(File storeFile) {
+        if (this.storeFile != null) {
+            return;
+        }
+        this.storeFile = storeFile;
+        this.loaded = false;
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+
+            @Override
+            public void run() {
+                save();
+            }
+        });
+    }
+
+    /**
+     * Writes this cache in its store file, if any, forgetting the files that
+     * do not exist anymore.
+     */
+    public synchronized void save() {
+        if (storeFile == null || !dirty) {
+            return;
+        }
+        for (final Iterator<String> it = entries.keySet().iterator(); it.hasNext();) {
+            if (!new File(it.next()).exists()) {
+                it.remove();
+            }
+        }
+        storeFile.getParentFile().mkdirs();
+        final DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(
+                JkUtilsIO.outputStream(storeFile, false)));
+        try {
+            outputStream.writeInt(formatVersion);
+            outputStream.writeInt(entries.size());
+            for (final Map.Entry<String, Entry<V>> entry : entries.entrySet()) {
+                outputStream.writeUTF(entry.getKey());
+                final Entry<V> value = entry.getValue();
+                outputStream.writeLong(value.length);
+                outputStream.writeLong(value.lastModified);
+                outputStream.writeLong(value.computeTime);
+                writeValue(outputStream, value.value);
+            }
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            JkUtilsIO.closeQuietly(outputStream);
+        }
+        dirty = false;
+    }
+
+    /**
+     * Returns the value of the specified file, computing it only if the cached
+     * one is missing or stale. A <code>null</code> computed value is returned
+     * but not cached.
+     */
+    protected final V get(File file) {
+        final long length = file.length();
+        final long lastModified = file.lastModified();
+        final String key = file.getAbsolutePath();
+        synchronized (this) {
+            load();
+            final Entry<V> entry = entries.get(key);
+            if (entry != null && entry.length == length && entry.lastModified == lastModified
+                    && entry.computeTime - lastModified > TIMESTAMP_PRECISION) {
+                return entry.value;
+            }
+        }
+        final long computeTime = System.currentTimeMillis();
+        final V value = compute(file);
+        if (value != null) {
+            synchronized (this) {
+                entries.put(key, new Entry<V>(length, lastModified, computeTime, value));
+                dirty = true;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Computes the value of the specified file, out of its content.
+     */
+    protected abstract V compute(File file);
+
+    /**
+     * Reads a value as written by {@link #writeValue(DataOutput, Object)}.
+     */
+    protected abstract V readValue(DataInput input) throws IOException;
+
+    /**
+     * Writes the specified value in the store file.
+     */
+    protected abstract void writeValue(DataOutput output, V value) throws IOException;
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!storeFile.exists()) {
+            return;
+        }
+        final DataInputStream inputStream = new DataInputStream(new BufferedInputStream(
+                JkUtilsIO.inputStream(storeFile)));
+        try {
+            if (inputStream.readInt() != formatVersion) {
+                return;
+            }
+            final int count = inputStream.readInt();
+            final Map<String, Entry<V>> stored = new HashMap<String, Entry<V>>(count * 2);
+            for (int i = 0; i < count; i++) {
+                final String key = inputStream.readUTF();
+                final long length = inputStream.readLong();
+                final long lastModified = inputStream.readLong();
+                final long computeTime = inputStream.readLong();
+                stored.put(key, new Entry<V>(length, lastModified, computeTime,
+                        readValue(inputStream)));
+            }
+            stored.putAll(entries);
+            entries = stored;
+        } catch (final IOException e) {
+            JkLog.warn(name + " " + storeFile.getPath() + " is unreadable, ignore it.");
+        } finally {
+            JkUtilsIO.closeQuietly(inputStream);
+        }
+    }
+
+    private static final class Entry<V> {
+
+        final long length;
+
+        final long lastModified;
+
+        final long computeTime;
+
+        final V value;
+
+        Entry(long length, long lastModified, long computeTime, V value) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.computeTime = computeTime;
+            this.value = value;
+        }
+
+    }
+
+}
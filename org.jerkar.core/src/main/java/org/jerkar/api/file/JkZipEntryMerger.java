@@ -0,0 +1,148 @@
+package org.jerkar.api.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Strategy to compute the content of a zip entry that is provided more than
+ * once while creating an archive (for example a service file present in
+ * several jars merged into a fat jar). Entries handled by a merger are
+ * buffered while the archive is written and emitted once, at the end of the
+ * archive. The manifest (<code>META-INF/MANIFEST.MF</code>) is the exception :
+ * it is merged before any other entry is written and emitted first, as
+ * expected by stream based readers.
+ *
+ * @see JkZipper#withMerger(JkPathFilter, JkZipEntryMerger)
+ */
+public abstract class JkZipEntryMerger {
+
+    /**
+     * Keeps the content of the first occurrence of the entry.
+     */
+    public static final JkZipEntryMerger FIRST_WINS = new JkZipEntryMerger() {
+
+        @Override
+        public byte[] merge(String entryName, List<byte[]> contents) {
+            return contents.get(0);
+        }
+
+        @Override
+        public String toString() {
+            return "first wins";
+        }
+    };
+
+    /**
+     * Concatenates the content of all occurrences of the entry, in the order
+     * they have been met, ensuring each content ends with a line break. This
+     * is the expected behavior for <code>META-INF/services/*</code> files.
+     */
+    public static final JkZipEntryMerger CONCAT_LINES = new JkZipEntryMerger() {
+
+        @Override
+        public byte[] merge(String entryName, List<byte[]> contents) {
+            final ByteArrayOutputStream result = new ByteArrayOutputStream();
+            for (final byte[] content : contents) {
+                result.write(content, 0, content.length);
+                if (content.length > 0 && content[content.length - 1] != '\n') {
+                    result.write('\n');
+                }
+            }
+            return result.toByteArray();
+        }
+
+        @Override
+        public String toString() {
+            return "concat lines";
+        }
+    };
+
+    /**
+     * Merges occurrences of a property file by concatenating, with a ',' separator, the
+     * values of the keys present in several occurrences. This is the expected behavior for
+     * files as <code>META-INF/spring.factories</code>. Keys are written in the order they
+     * have been met and no timestamp comment is written, so merging the same contents
+     * always gives the same bytes.
+     */
+    public static final JkZipEntryMerger APPEND_PROPERTY_VALUES = new JkZipEntryMerger() {
+
+        @Override
+        public byte[] merge(String entryName, List<byte[]> contents) {
+            final Map<String, String> values = new LinkedHashMap<String, String>();
+            for (final byte[] content : contents) {
+                final OrderedProperties properties = new OrderedProperties();
+                try {
+                    properties.load(new ByteArrayInputStream(content));
+                } catch (final IOException e) {
+                    throw new RuntimeException("Can't read entry " + entryName
+                            + " as a property file", e);
+                }
+                for (final String key : properties.keys) {
+                    final String value = properties.getProperty(key);
+                    final String previous = values.get(key);
+                    values.put(key, previous == null ? value : previous + "," + value);
+                }
+            }
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            for (final Map.Entry<String, String> entry : values.entrySet()) {
+                final Properties property = new Properties();
+                property.setProperty(entry.getKey(), entry.getValue());
+                final ByteArrayOutputStream propertyStream = new ByteArrayOutputStream();
+                try {
+                    property.store(propertyStream, null);
+                } catch (final IOException e) {
+                    throw new RuntimeException(e);
+                }
+
+                // Properties#store starts with a comment line holding the current date
+                final byte[] bytes = propertyStream.toByteArray();
+                int start = 0;
+                while (bytes[start] != '\n') {
+                    start++;
+                }
+                outputStream.write(bytes, start + 1, bytes.length - start - 1);
+            }
+            return outputStream.toByteArray();
+        }
+
+        @Override
+        public String toString() {
+            return "append property values";
+        }
+    };
+
+    // Records the keys in the order they are read, as Properties is a hash table
+    private static final class OrderedProperties extends Properties {
+
+        private static final long serialVersionUID = 1L;
+
+        final List<String> keys = new ArrayList<String>();
+
+        @Override
+        public synchronized Object put(Object key, Object value) {
+            if (!containsKey(key)) {
+                keys.add((String) key);
+            }
+            return super.put(key, value);
+        }
+
+    }
+
+    /**
+     * Returns the content of the merged entry.
+     *
+     * @param entryName
+     *            The name of the entry to merge.
+     * @param contents
+     *            The content of every occurrence of the entry, in the order
+     *            they have been met. It contains at least one element.
+     */
+    public abstract byte[] merge(String entryName, List<byte[]> contents);
+
+}
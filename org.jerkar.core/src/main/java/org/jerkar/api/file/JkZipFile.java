@@ -7,7 +7,9 @@ import java.io.InputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
+import org.jerkar.api.utils.JkUtilsFile;
 import org.jerkar.api.utils.JkUtilsThrowable;
+import org.jerkar.api.utils.JkUtilsZip;
 
 /**
  * Wrapper around {@link ZipFile} to avoid checked exceptions.
@@ -49,6 +51,25 @@ public class JkZipFile implements Closeable {
         }
     }
 
+    /**
+     * Extracts all entries of this zip file into the specified directory. Files already
+     * present with the same size and CRC as their entry are left untouched.
+     *
+     * @return The number of files actually written.
+     */
+    public int unzipTo(File directory) {
+        return JkUtilsZip.unzip(zipFile, directory, null);
+    }
+
+    /**
+     * As {@link #unzipTo(File)} but extracting only entries whose name is
+     * accepted by the specified filter.
+     */
+    public int unzipTo(File directory, JkPathFilter filter) {
+        final File dir = JkUtilsFile.canonicalFile(directory);
+        return JkUtilsZip.unzip(zipFile, dir, filter.toFileFilter(dir));
+    }
+
     @Override
     public void close() {
         try {
@@ -1,11 +1,21 @@
 package org.jerkar.api.file;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarFile;
 import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -15,12 +25,22 @@ import org.jerkar.api.system.JkLog;
 import org.jerkar.api.utils.JkUtilsAssert;
 import org.jerkar.api.utils.JkUtilsFile;
 import org.jerkar.api.utils.JkUtilsIO;
-import org.jerkar.api.utils.JkUtilsIterable;
+import org.jerkar.api.utils.JkUtilsString;
 import org.jerkar.api.utils.JkUtilsZip;
 
 /**
  * Defines elements to embed in a zip archive and methods to write archive on
  * disk.
+ * <p>
+ * Archives are written in a streaming fashion : directories are walked while
+ * entries are written and merged archives are read entry per entry, so the
+ * memory needed does not grow with the number of entries (except for entries
+ * handled by a {@link JkZipEntryMerger}).
+ * <p>
+ * Archives over the classic zip limits (65535 entries, or 4 GB for an entry or
+ * the whole archive) need the Zip64 format, which the JDK supports from Java
+ * 7 only. Such archives are written and read transparently when running on
+ * Java 7 or later, but can not be produced on a Java 6 runtime.
  */
 public final class JkZipper {
 
@@ -63,59 +83,66 @@ public final class JkZipper {
         }
     }
 
-    private final List<? extends Object> itemsToZip;
+    private final Chain<Object> itemsToZip;
 
-    private final List<File> archivestoMerge;
+    private final Chain<File> archivestoMerge;
 
     private final JkCompressionLevel jkCompressionLevel;
 
     private final JkCompressionMethod jkCompressionMethod;
 
-    private JkZipper(List<? extends Object> itemsToZip, List<File> archivestoMerge,
-            JkCompressionLevel level, JkCompressionMethod method) {
+    private final Chain<MergeRule> mergeRules;
+
+    private final boolean storeNestedArchives;
+
+    private JkZipper(Chain<Object> itemsToZip, Chain<File> archivestoMerge,
+            JkCompressionLevel level, JkCompressionMethod method, Chain<MergeRule> mergeRules,
+            boolean storeNestedArchives) {
         this.itemsToZip = itemsToZip;
         this.archivestoMerge = archivestoMerge;
         this.jkCompressionLevel = level;
         this.jkCompressionMethod = method;
+        this.mergeRules = mergeRules;
+        this.storeNestedArchives = storeNestedArchives;
+    }
+
+    private static JkZipper of(Chain<Object> items, Chain<File> archivestoMerge) {
+        return new JkZipper(items, archivestoMerge, JkCompressionLevel.DEFAULT_COMPRESSION,
+                JkCompressionMethod.DEFLATED, Chain.<MergeRule> empty(), false);
     }
 
     /**
      * Creates a {@link JkZipper} from an array of directories.
      */
     public static JkZipper of(File... dirs) {
-        final List<File> archivestoMerges = new LinkedList<File>();
-        final List<Object> items = new LinkedList<Object>();
+        Chain<File> archivestoMerges = Chain.empty();
+        Chain<Object> items = Chain.empty();
         for (final File file : dirs) {
             if (file.isDirectory()) {
-                items.add(file);
+                items = items.and(file);
             } else {
-                archivestoMerges.add(file);
+                archivestoMerges = archivestoMerges.and(file);
             }
         }
-        return new JkZipper(items, archivestoMerges, JkCompressionLevel.DEFAULT_COMPRESSION,
-                JkCompressionMethod.DEFLATED);
+        return of(items, archivestoMerges);
     }
 
-    @SuppressWarnings("unchecked")
     static JkZipper of(JkFileTreeSet... jkDirSets) {
-        return new JkZipper(Arrays.asList(jkDirSets), Collections.EMPTY_LIST,
-                JkCompressionLevel.DEFAULT_COMPRESSION, JkCompressionMethod.DEFLATED);
+        return of(Chain.empty().and(Arrays.asList(jkDirSets)), Chain.<File> empty());
     }
 
-    @SuppressWarnings("unchecked")
     static JkZipper of(JkFileTree... jkDirs) {
-        return new JkZipper(Arrays.asList(jkDirs), Collections.EMPTY_LIST,
-                JkCompressionLevel.DEFAULT_COMPRESSION, JkCompressionMethod.DEFLATED);
+        return of(Chain.empty().and(Arrays.asList(jkDirs)), Chain.<File> empty());
     }
 
     /**
      * Returns a {@link JkZipFile} identical to this one but containing also the entries
      * contained in the specified archive files.
      */
-    @SuppressWarnings("unchecked")
     public JkZipper merge(Iterable<File> archiveFiles) {
-        return new JkZipper(itemsToZip, JkUtilsIterable.concatLists(this.archivestoMerge,
-                archiveFiles), this.jkCompressionLevel, this.jkCompressionMethod);
+        return new JkZipper(itemsToZip, this.archivestoMerge.and(archiveFiles),
+                this.jkCompressionLevel, this.jkCompressionMethod, this.mergeRules,
+                this.storeNestedArchives);
     }
 
     /**
@@ -142,14 +169,39 @@ public final class JkZipper {
      * Returns a {@link JkZipFile} identical to this one but with the specified compression level.
      */
     public JkZipper with(JkCompressionLevel level) {
-        return new JkZipper(this.itemsToZip, this.archivestoMerge, level, this.jkCompressionMethod);
+        return new JkZipper(this.itemsToZip, this.archivestoMerge, level, this.jkCompressionMethod,
+                this.mergeRules, this.storeNestedArchives);
     }
 
     /**
      * Returns a {@link JkZipFile} identical to this one but with the specified compression method.
      */
     public JkZipper with(JkCompressionMethod method) {
-        return new JkZipper(this.itemsToZip, this.archivestoMerge, this.jkCompressionLevel, method);
+        return new JkZipper(this.itemsToZip, this.archivestoMerge, this.jkCompressionLevel, method,
+                this.mergeRules, this.storeNestedArchives);
+    }
+
+    /**
+     * Returns a {@link JkZipper} identical to this one but merging with the specified
+     * {@link JkZipEntryMerger} the entries whose name are accepted by the specified filter.
+     * Entries not handled by any merger keep the default behavior : only the first
+     * occurrence of an entry is written in the archive. When several mergers accept
+     * a same entry name, the first declared one is used.
+     */
+    public JkZipper withMerger(JkPathFilter entryFilter, JkZipEntryMerger merger) {
+        return new JkZipper(this.itemsToZip, this.archivestoMerge, this.jkCompressionLevel,
+                this.jkCompressionMethod, this.mergeRules.and(new MergeRule(entryFilter, merger)),
+                this.storeNestedArchives);
+    }
+
+    /**
+     * Returns a {@link JkZipper} identical to this one but writing entries that are themselves
+     * archives (.jar, .war, .zip, ...) without compression. Such entries are already compressed
+     * so deflating them again only costs CPU. This is the usual layout for war and ear files.
+     */
+    public JkZipper withNestedArchivesStored() {
+        return new JkZipper(this.itemsToZip, this.archivestoMerge, this.jkCompressionLevel,
+                this.jkCompressionMethod, this.mergeRules, true);
     }
 
     /**
@@ -160,22 +212,35 @@ public final class JkZipper {
         final ZipOutputStream zos = JkUtilsZip.createZipOutputStream(zipFile,
                 this.jkCompressionLevel.level);
         zos.setMethod(this.jkCompressionMethod.method);
+        final List<MergeRule> rules = mergeRules.toList();
+        final MergeBuffer mergeBuffer = new MergeBuffer();
+
+        // Stream based readers (as JarInputStream) expect the manifest to be the first entry
+        final JkZipEntryMerger manifestMerger = merger(rules, JarFile.MANIFEST_NAME);
+        if (manifestMerger != null) {
+            writeMergedManifest(zos, manifestMerger, mergeBuffer);
+        }
 
         // Adding files to archive
-        for (final Object item : this.itemsToZip) {
+        for (final Object item : this.itemsToZip.toList()) {
             if (item instanceof File) {
                 final File file = (File) item;
-                JkUtilsZip.addZipEntry(zos, file, file.getParentFile(), storedMethod());
+                addDir(zos, file, "", file.getName() + "/", JkPathFilter.ACCEPT_ALL, rules,
+                        mergeBuffer);
             } else if (item instanceof EntryFile) {
                 final EntryFile entryFile = (EntryFile) item;
-                JkUtilsZip.addZipEntry(zos, entryFile.file, entryFile.path, storedMethod());
+                addFile(zos, entryFile.file, entryFile.path, rules, mergeBuffer);
             } else if (item instanceof JkFileTree) {
                 final JkFileTree dirView = (JkFileTree) item;
-                addFileTree(zos, dirView);
+                addFileTree(zos, "", dirView, rules, mergeBuffer);
+            } else if (item instanceof PrefixedFileTree) {
+                final PrefixedFileTree prefixedFileTree = (PrefixedFileTree) item;
+                addFileTree(zos, prefixedFileTree.prefix, prefixedFileTree.fileTree, rules,
+                        mergeBuffer);
             } else if (item instanceof JkFileTreeSet) {
                 final JkFileTreeSet dirViews = (JkFileTreeSet) item;
                 for (final JkFileTree dirView : dirViews.fileTrees()) {
-                    addFileTree(zos, dirView);
+                    addFileTree(zos, "", dirView, rules, mergeBuffer);
                 }
             } else {
                 throw new IllegalStateException("Items of class " + item.getClass()
@@ -184,7 +249,7 @@ public final class JkZipper {
         }
 
         // Merging archives to this archive
-        for (final File archiveToMerge : this.archivestoMerge) {
+        for (final File archiveToMerge : this.archivestoMerge.toList()) {
             final ZipFile file;
             try {
                 file = new ZipFile(archiveToMerge);
@@ -192,47 +257,331 @@ public final class JkZipper {
                 throw new RuntimeException("Error while opening zip file "
                         + archiveToMerge.getPath(), e);
             }
-            JkUtilsZip.mergeZip(zos, file, storedMethod());
+            try {
+                if (rules.isEmpty() && !storeNestedArchives) {
+                    JkUtilsZip.mergeZip(zos, file, storedMethod());
+                } else {
+                    mergeArchive(zos, file, rules, mergeBuffer);
+                }
+            } finally {
+                JkUtilsIO.closeQuietly(file);
+            }
         }
+
+        // Writing entries buffered for merge
+        mergeBuffer.writeTo(zos);
         JkUtilsIO.closeQuietly(zos);
         JkLog.done();
         return new JkCheckSumer(zipFile);
     }
 
+    /*
+     * Collects all the contributions to the manifest before any other entry is written, so the
+     * merged manifest can be written first. Later occurrences met while streaming are ignored.
+     */
+    private void writeMergedManifest(ZipOutputStream zos, JkZipEntryMerger merger,
+            MergeBuffer mergeBuffer) {
+        final String name = JarFile.MANIFEST_NAME;
+        for (final Object item : this.itemsToZip.toList()) {
+            if (item instanceof EntryFile) {
+                final EntryFile entryFile = (EntryFile) item;
+                if (entryFile.path.equals(name)) {
+                    addToMerge(entryFile.file, name, merger, mergeBuffer);
+                }
+            } else if (item instanceof JkFileTree) {
+                addToMerge((JkFileTree) item, "", merger, mergeBuffer);
+            } else if (item instanceof PrefixedFileTree) {
+                final PrefixedFileTree prefixedFileTree = (PrefixedFileTree) item;
+                addToMerge(prefixedFileTree.fileTree, prefixedFileTree.prefix, merger,
+                        mergeBuffer);
+            } else if (item instanceof JkFileTreeSet) {
+                for (final JkFileTree fileTree : ((JkFileTreeSet) item).fileTrees()) {
+                    addToMerge(fileTree, "", merger, mergeBuffer);
+                }
+            }
+        }
+        for (final File archiveToMerge : this.archivestoMerge.toList()) {
+            final ZipFile zipFile = JkUtilsZip.zipFile(archiveToMerge);
+            try {
+                final ZipEntry entry = zipFile.getEntry(name);
+                if (entry != null) {
+                    final InputStream inputStream = JkUtilsIO.inputStream(zipFile, entry);
+                    try {
+                        mergeBuffer.add(name, merger, inputStream);
+                    } finally {
+                        JkUtilsIO.closeQuietly(inputStream);
+                    }
+                }
+            } finally {
+                JkUtilsIO.closeQuietly(zipFile);
+            }
+        }
+        mergeBuffer.writeNow(zos, name);
+    }
+
+    private static void addToMerge(JkFileTree fileTree, String prefix, JkZipEntryMerger merger,
+            MergeBuffer mergeBuffer) {
+        final String name = JarFile.MANIFEST_NAME;
+        if (!name.startsWith(prefix) || !fileTree.exists()) {
+            return;
+        }
+        final String relativePath = name.substring(prefix.length());
+        if (fileTree.filter().accept(relativePath)) {
+            addToMerge(new File(fileTree.root(), relativePath), name, merger, mergeBuffer);
+        }
+    }
+
+    private static void addToMerge(File file, String entryName, JkZipEntryMerger merger,
+            MergeBuffer mergeBuffer) {
+        if (!file.isFile()) {
+            return;
+        }
+        final FileInputStream inputStream = JkUtilsIO.inputStream(file);
+        try {
+            mergeBuffer.add(entryName, merger, inputStream);
+        } finally {
+            JkUtilsIO.closeQuietly(inputStream);
+        }
+    }
+
     private boolean storedMethod() {
         return JkCompressionMethod.STORED.equals(jkCompressionMethod);
     }
 
+    private boolean storedMethod(String entryName) {
+        return storedMethod() || (storeNestedArchives && isArchive(entryName));
+    }
+
+    private static boolean isArchive(String entryName) {
+        final String name = entryName.toLowerCase();
+        return JkUtilsString.endsWithAny(name, ".jar", ".war", ".ear", ".zip", ".rar");
+    }
+
     /**
      * Returns a {@link JkZipFile} identical to this one but containing also the specified entry.
      */
     public JkZipper andEntryName(String entryName, File file) {
-        final List<Object> list = new LinkedList<Object>(this.itemsToZip);
-        list.add(new EntryFile(entryName, file));
-        return new JkZipper(list, archivestoMerge, this.jkCompressionLevel,
-                this.jkCompressionMethod);
+        return new JkZipper(itemsToZip.and(new EntryFile(entryName, file)), archivestoMerge,
+                this.jkCompressionLevel, this.jkCompressionMethod, this.mergeRules,
+                this.storeNestedArchives);
     }
 
     /**
      * Returns a {@link JkZipFile} identical to this one but containing also the specified entry.
      */
     public JkZipper andEntryPath(String entryPath, File file) {
-        final List<Object> list = new LinkedList<Object>(this.itemsToZip);
         final String path = entryPath.endsWith("/") ? entryPath + file.getName() : entryPath + "/"
                 + file.getName();
-        list.add(new EntryFile(path, file));
-        return new JkZipper(list, archivestoMerge, this.jkCompressionLevel,
-                this.jkCompressionMethod);
+        return andEntryName(path, file);
+    }
+
+    /**
+     * Returns a {@link JkZipper} identical to this one but containing also the files of the
+     * specified tree. The entry names are the path of the files relative to the tree root,
+     * prefixed with the specified entry path (as <code>WEB-INF/classes</code>).
+     */
+    public JkZipper andFileTree(String entryPath, JkFileTree fileTree) {
+        final String prefix = entryPath.isEmpty() || entryPath.endsWith("/") ? entryPath
+                : entryPath + "/";
+        return new JkZipper(itemsToZip.and(new PrefixedFileTree(prefix, fileTree)),
+                archivestoMerge, this.jkCompressionLevel, this.jkCompressionMethod,
+                this.mergeRules, this.storeNestedArchives);
     }
 
-    private void addFileTree(ZipOutputStream zos, JkFileTree dirView) {
+    private void addFileTree(ZipOutputStream zos, String prefix, JkFileTree dirView,
+            List<MergeRule> rules, MergeBuffer mergeBuffer) {
         if (!dirView.exists()) {
             return;
         }
-        final File base = JkUtilsFile.canonicalFile(dirView.root());
-        for (final File file : dirView) {
-            JkUtilsZip.addZipEntry(zos, file, base,
-                    JkCompressionMethod.STORED.equals(this.jkCompressionMethod));
+        addDir(zos, dirView.root(), "", prefix, dirView.filter(), rules, mergeBuffer);
+    }
+
+    /*
+     * Walks the directory, writing entries on the fly rather than listing all files first. The
+     * filter applies to the paths relative to the tree root, the entry names being these paths
+     * prefixed with the entry prefix. Directories the filter rules out entirely are not walked.
+     */
+    private void addDir(ZipOutputStream zos, File dir, String relativeDirPath,
+            String entryPrefix, JkPathFilter filter, List<MergeRule> rules,
+            MergeBuffer mergeBuffer) {
+        final File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        Arrays.sort(children);
+        for (final File child : children) {
+            final String relativePath = relativeDirPath + child.getName();
+            if (child.isDirectory()) {
+                if (filter.mayAcceptUnder(relativePath)) {
+                    addDir(zos, child, relativePath + "/", entryPrefix, filter, rules,
+                            mergeBuffer);
+                }
+            } else if (filter.accept(relativePath)) {
+                addFile(zos, child, entryPrefix + relativePath, rules, mergeBuffer);
+            }
+        }
+    }
+
+    private void addFile(ZipOutputStream zos, File file, String entryName, List<MergeRule> rules,
+            MergeBuffer mergeBuffer) {
+        final JkZipEntryMerger merger = merger(rules, entryName);
+        if (merger == null) {
+            JkUtilsZip.addZipEntry(zos, file, entryName, storedMethod(entryName));
+        } else {
+            final FileInputStream inputStream = JkUtilsIO.inputStream(file);
+            try {
+                mergeBuffer.add(entryName, merger, inputStream);
+            } finally {
+                JkUtilsIO.closeQuietly(inputStream);
+            }
+        }
+    }
+
+    private void mergeArchive(ZipOutputStream zos, ZipFile zipFile, List<MergeRule> rules,
+            MergeBuffer mergeBuffer) {
+        final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+            final ZipEntry entry = entries.nextElement();
+            if (entry.isDirectory()) {
+                continue;
+            }
+            final JkZipEntryMerger merger = merger(rules, entry.getName());
+            if (merger == null) {
+                JkUtilsZip.addZipEntry(zos, zipFile, entry, storedMethod(entry.getName()));
+            } else {
+                final InputStream inputStream = JkUtilsIO.inputStream(zipFile, entry);
+                try {
+                    mergeBuffer.add(entry.getName(), merger, inputStream);
+                } finally {
+                    JkUtilsIO.closeQuietly(inputStream);
+                }
+            }
+        }
+    }
+
+    private static JkZipEntryMerger merger(List<MergeRule> rules, String entryName) {
+        for (final MergeRule mergeRule : rules) {
+            if (mergeRule.filter.accept(entryName)) {
+                return mergeRule.merger;
+            }
+        }
+        return null;
+    }
+
+    private static final class MergeRule {
+
+        final JkPathFilter filter;
+
+        final JkZipEntryMerger merger;
+
+        MergeRule(JkPathFilter filter, JkZipEntryMerger merger) {
+            this.filter = filter;
+            this.merger = merger;
+        }
+    }
+
+    /*
+     * Holds the content of the entries to merge until all the other entries have been written,
+     * except for the entries written in advance.
+     */
+    private final class MergeBuffer {
+
+        private final Map<String, List<byte[]>> contents = new LinkedHashMap<String, List<byte[]>>();
+
+        private final Map<String, JkZipEntryMerger> mergers = new HashMap<String, JkZipEntryMerger>();
+
+        private final Set<String> written = new HashSet<String>();
+
+        void add(String entryName, JkZipEntryMerger merger, InputStream inputStream) {
+            if (written.contains(entryName)) {
+                return;
+            }
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            JkUtilsIO.copy(inputStream, outputStream);
+            List<byte[]> list = contents.get(entryName);
+            if (list == null) {
+                list = new LinkedList<byte[]>();
+                contents.put(entryName, list);
+                mergers.put(entryName, merger);
+            }
+            list.add(outputStream.toByteArray());
+        }
+
+        void writeTo(ZipOutputStream zos) {
+            for (final Map.Entry<String, List<byte[]>> entry : contents.entrySet()) {
+                final String entryName = entry.getKey();
+                final byte[] merged = mergers.get(entryName).merge(entryName, entry.getValue());
+                JkUtilsZip.addZipEntry(zos, entryName, merged, storedMethod(entryName));
+            }
+        }
+
+        // Writes the specified entry, if it has been added, and ignores its next occurrences
+        void writeNow(ZipOutputStream zos, String entryName) {
+            final List<byte[]> list = contents.remove(entryName);
+            if (list != null) {
+                final byte[] merged = mergers.remove(entryName).merge(entryName, list);
+                JkUtilsZip.addZipEntry(zos, entryName, merged, storedMethod(entryName));
+            }
+            written.add(entryName);
+        }
+    }
+
+    /*
+     * Immutable list sharing its elements with the list it has been created from, so adding
+     * elements to a zipper does not copy the elements already there.
+     */
+    private static final class Chain<T> {
+
+        private static final Chain<Object> EMPTY = new Chain<Object>(null, null, 0);
+
+        private final Chain<T> previous;
+
+        private final T last;
+
+        private final int size;
+
+        private Chain(Chain<T> previous, T last, int size) {
+            this.previous = previous;
+            this.last = last;
+            this.size = size;
+        }
+
+        @SuppressWarnings("unchecked")
+        static <T> Chain<T> empty() {
+            return (Chain<T>) EMPTY;
+        }
+
+        Chain<T> and(T item) {
+            return new Chain<T>(this, item, size + 1);
+        }
+
+        Chain<T> and(Iterable<? extends T> items) {
+            Chain<T> result = this;
+            for (final T item : items) {
+                result = result.and(item);
+            }
+            return result;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<T> toList() {
+            final Object[] array = new Object[size];
+            Chain<T> chain = this;
+            for (int i = size - 1; i >= 0; i--) {
+                array[i] = chain.last;
+                chain = chain.previous;
+            }
+            return Collections.unmodifiableList(Arrays.asList((T[]) array));
+        }
+    }
+
+    private static class PrefixedFileTree {
+        final String prefix;
+        final JkFileTree fileTree;
+
+        PrefixedFileTree(String prefix, JkFileTree fileTree) {
+            this.prefix = prefix;
+            this.fileTree = fileTree;
         }
     }
 
@@ -247,8 +596,6 @@ public final class JkZipper {
         }
     }
 
-
-
     /**
      * Wrapper on <code>File</code> allowing to creates digests on it.
      * 
@@ -0,0 +1,160 @@
+package org.jerkar.api.java;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.jerkar.api.file.JkPathFilter;
+import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsIO;
+import org.jerkar.api.utils.JkUtilsZip;
+
+/*
+ * Iterates over the names of the classes contained in classpath entries, without loading them.
+ * Entries are processed one after the other : folders are walked as the iteration goes and
+ * archives are listed through the JkClasspathIndex. Class files are read only when the class
+ * filter is not JkClassFileFilter.ACCEPT_ALL : the classes of an archive are then all filtered
+ * when the archive is reached, so it is opened and closed at once, even if the iteration stops
+ * before its end.
+ */
+final class ClassNameIterator implements Iterator<String> {
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private static final JkPathFilter CLASS_FILES = JkPathFilter.include("**/*" + CLASS_SUFFIX);
+
+    private final Iterator<File> entries;
+
+    private final JkPathFilter pathFilter;
+
+    private final JkClassFileFilter classFilter;
+
+    private File entry;
+
+    private Iterator<File> dirFiles;
+
+    private String[] archiveItems;
+
+    private int archiveIndex;
+
+    private String next;
+
+    ClassNameIterator(Iterable<File> entries, JkPathFilter pathFilter,
+            JkClassFileFilter classFilter) {
+        this.entries = entries.iterator();
+        this.pathFilter = CLASS_FILES.and(pathFilter);
+        this.classFilter = classFilter;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = advance();
+        }
+        return next != null;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final String result = next;
+        next = null;
+        return result;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    private String advance() {
+        while (true) {
+            if (dirFiles != null) {
+                while (dirFiles.hasNext()) {
+                    final File file = dirFiles.next();
+                    if (classFilter == JkClassFileFilter.ACCEPT_ALL
+                            || accept(file, JkUtilsFile.readBytes(file))) {
+                        return className(JkUtilsFile.getRelativePath(entry, file));
+                    }
+                }
+                dirFiles = null;
+            } else if (archiveItems != null) {
+                while (archiveIndex < archiveItems.length) {
+                    final String item = archiveItems[archiveIndex++];
+                    if (pathFilter.accept(item)) {
+                        return className(item);
+                    }
+                }
+                archiveItems = null;
+            }
+            if (!entries.hasNext()) {
+                return null;
+            }
+            entry = entries.next();
+            if (entry.isDirectory()) {
+                dirFiles = JkUtilsFile.fileIterator(entry, pathFilter.toFileFilter(entry), false);
+            } else if (entry.isFile()) {
+                archiveItems = JkClasspathIndex.instance().items(entry);
+                if (classFilter != JkClassFileFilter.ACCEPT_ALL) {
+                    archiveItems = acceptedArchiveItems(entry, archiveItems);
+                }
+                archiveIndex = 0;
+            }
+        }
+    }
+
+    // Unreadable class files are accepted, leaving the class loader decide about them
+    private boolean accept(Object source, byte[] content) {
+        final JkClassFile classFile;
+        try {
+            classFile = JkClassFile.of(content);
+        } catch (final IllegalArgumentException e) {
+            JkLog.trace("Can't read class file " + source + " : " + e.getMessage());
+            return true;
+        }
+        return classFilter.accept(classFile);
+    }
+
+    private String[] acceptedArchiveItems(File archive, String[] items) {
+        final List<String> result = new ArrayList<String>();
+        final ZipFile zipFile = JkUtilsZip.zipFile(archive);
+        try {
+            for (final String item : items) {
+                if (pathFilter.accept(item) && accept(item, read(zipFile, item))) {
+                    result.add(item);
+                }
+            }
+        } finally {
+            JkUtilsIO.closeQuietly(zipFile);
+        }
+        return result.toArray(new String[result.size()]);
+    }
+
+    private static byte[] read(ZipFile zipFile, String item) {
+        final ZipEntry zipEntry = zipFile.getEntry(item);
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(
+                (int) Math.max(zipEntry.getSize(), 0));
+        final InputStream inputStream = JkUtilsIO.inputStream(zipFile, zipEntry);
+        try {
+            JkUtilsIO.copy(inputStream, outputStream);
+        } finally {
+            JkUtilsIO.closeQuietly(inputStream);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static String className(String classFilePath) {
+        return classFilePath.replace(File.separatorChar, '.').replace('/', '.')
+                .substring(0, classFilePath.length() - CLASS_SUFFIX.length());
+    }
+
+}
@@ -0,0 +1,346 @@
+package org.jerkar.api.java;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.jerkar.api.utils.JkUtilsFile;
+
+/**
+ * Description of a class read directly from its class file, without loading
+ * it in a class loader. Only the information useful to classify classes and
+ * to track their dependencies (names, modifiers, hierarchy, annotations and
+ * referenced classes) is retained.
+ *
+ * @author Jerome Angibaud
+ */
+public final class JkClassFile implements Serializable {
+
+    private static final long serialVersionUID = 2L;
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final String RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations";
+
+    private final String name;
+
+    private final String superName;
+
+    private final List<String> interfaceNames;
+
+    private final int modifiers;
+
+    private final Set<String> annotations;
+
+    private final Set<String> publicMethodAnnotations;
+
+    private final Set<String> referencedClassNames;
+
+    private JkClassFile(String name, String superName, List<String> interfaceNames,
+            int modifiers, Set<String> annotations, Set<String> publicMethodAnnotations,
+            Set<String> referencedClassNames) {
+        this.name = name;
+        this.superName = superName;
+        this.interfaceNames = Collections.unmodifiableList(interfaceNames);
+        this.modifiers = modifiers;
+        this.annotations = Collections.unmodifiableSet(annotations);
+        this.publicMethodAnnotations = Collections.unmodifiableSet(publicMethodAnnotations);
+        this.referencedClassNames = Collections.unmodifiableSet(referencedClassNames);
+    }
+
+    /**
+     * Reads the specified class file.
+     */
+    public static JkClassFile of(File classFile) {
+        return of(JkUtilsFile.readBytes(classFile));
+    }
+
+    /**
+     * Reads the specified class file content.
+     */
+    public static JkClassFile of(byte[] classFileContent) {
+        try {
+            return new Reader(classFileContent).read();
+        } catch (final IOException e) {
+            throw new IllegalArgumentException("Invalid class file content.", e);
+        }
+    }
+
+    /**
+     * Returns the name of the class as <code>com.foo.Bar</code>.
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Returns the name of the super class or <code>null</code> if this class
+     * is <code>java.lang.Object</code>.
+     */
+    public String superName() {
+        return superName;
+    }
+
+    /**
+     * Returns the names of the interfaces directly implemented by this class.
+     */
+    public List<String> interfaceNames() {
+        return interfaceNames;
+    }
+
+    /**
+     * Returns the modifiers of the class, as defined in {@link Modifier}.
+     */
+    public int modifiers() {
+        return modifiers;
+    }
+
+    /**
+     * Returns <code>true</code> if this class is abstract or is an interface.
+     */
+    public boolean isAbstract() {
+        return Modifier.isAbstract(modifiers) || Modifier.isInterface(modifiers);
+    }
+
+    /**
+     * Returns the names of the runtime visible annotations present on this class.
+     */
+    public Set<String> annotations() {
+        return annotations;
+    }
+
+    /**
+     * Returns the names of the runtime visible annotations present on at least
+     * one public non-abstract method declared in this class.
+     */
+    public Set<String> publicMethodAnnotations() {
+        return publicMethodAnnotations;
+    }
+
+    /**
+     * Returns the names of the classes referenced in the constant pool of this
+     * class, either directly or within type descriptors and signatures. This
+     * is a superset of the classes this class depends on statically, but
+     * classes only reached through reflection are not part of it.
+     */
+    public Set<String> referencedClassNames() {
+        return referencedClassNames;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private static String className(String internalName) {
+        return internalName.replace('/', '.');
+    }
+
+    private static String annotationName(String descriptor) {
+        return className(descriptor.substring(1, descriptor.length() - 1));
+    }
+
+    private static final class Reader {
+
+        private final DataInputStream in;
+
+        private String[] utf8s;
+
+        private int[] classIndexes;
+
+        Reader(byte[] content) {
+            this.in = new DataInputStream(new ByteArrayInputStream(content));
+        }
+
+        JkClassFile read() throws IOException {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a class file.");
+            }
+            in.readUnsignedShort(); // minor version
+            in.readUnsignedShort(); // major version
+            readConstantPool();
+            final int access = in.readUnsignedShort();
+            final String name = classAt(in.readUnsignedShort());
+            final int superIndex = in.readUnsignedShort();
+            final String superName = superIndex == 0 ? null : classAt(superIndex);
+            final int interfaceCount = in.readUnsignedShort();
+            final List<String> interfaces = new ArrayList<String>(interfaceCount);
+            for (int i = 0; i < interfaceCount; i++) {
+                interfaces.add(classAt(in.readUnsignedShort()));
+            }
+            final int fieldCount = in.readUnsignedShort();
+            for (int i = 0; i < fieldCount; i++) {
+                in.skipBytes(6);
+                readAttributes(null);
+            }
+            final Set<String> methodAnnotations = new HashSet<String>();
+            final int methodCount = in.readUnsignedShort();
+            for (int i = 0; i < methodCount; i++) {
+                final int methodAccess = in.readUnsignedShort();
+                in.skipBytes(4);
+                final boolean publicConcrete = Modifier.isPublic(methodAccess)
+                        && !Modifier.isAbstract(methodAccess);
+                readAttributes(publicConcrete ? methodAnnotations : null);
+            }
+            final Set<String> annotations = new HashSet<String>();
+            readAttributes(annotations);
+            return new JkClassFile(name, superName, interfaces, access, annotations,
+                    methodAnnotations, referencedClassNames(name));
+        }
+
+        private Set<String> referencedClassNames(String self) {
+            final Set<String> result = new HashSet<String>();
+            for (int i = 1; i < utf8s.length; i++) {
+                if (classIndexes[i] != 0) {
+                    addClassName(result, utf8s[classIndexes[i]]);
+                } else if (utf8s[i] != null) {
+                    addDescriptorClassNames(result, utf8s[i]);
+                }
+            }
+            result.remove(self);
+            return result;
+        }
+
+        /*
+         * Class constants hold internal names, or descriptors for array types.
+         */
+        private static void addClassName(Set<String> result, String value) {
+            if (value.startsWith("[")) {
+                addDescriptorClassNames(result, value);
+            } else {
+                result.add(className(value));
+            }
+        }
+
+        /*
+         * Extracts the class names from a string containing descriptors or signatures, as
+         * '(Ljava/util/List<Lcom/foo/Bar;>;)V'. Any string constant having such a shape is
+         * considered as well, which only widens the result.
+         */
+        private static void addDescriptorClassNames(Set<String> result, String value) {
+            int start = value.indexOf('L');
+            while (start >= 0) {
+                int end = start + 1;
+                while (end < value.length() && isInternalNameChar(value.charAt(end))) {
+                    end++;
+                }
+                if (end < value.length() && end > start + 1
+                        && (value.charAt(end) == ';' || value.charAt(end) == '<')) {
+                    result.add(className(value.substring(start + 1, end)));
+                }
+                start = value.indexOf('L', end);
+            }
+        }
+
+        private static boolean isInternalNameChar(char c) {
+            return c == '/' || c == '$' || c == '_' || Character.isLetterOrDigit(c);
+        }
+
+        private void readConstantPool() throws IOException {
+            final int count = in.readUnsignedShort();
+            utf8s = new String[count];
+            classIndexes = new int[count];
+            for (int i = 1; i < count; i++) {
+                final int tag = in.readUnsignedByte();
+                switch (tag) {
+                case 1: // Utf8
+                    utf8s[i] = in.readUTF();
+                    break;
+                case 7: // Class
+                    classIndexes[i] = in.readUnsignedShort();
+                    break;
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    in.skipBytes(2);
+                    break;
+                case 15: // MethodHandle
+                    in.skipBytes(3);
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    in.skipBytes(4);
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    in.skipBytes(8);
+                    i++;
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag + ".");
+                }
+            }
+        }
+
+        private String classAt(int index) {
+            return className(utf8s[classIndexes[index]]);
+        }
+
+        /*
+         * Reads the attributes at the current position, collecting annotation names in the
+         * specified set if not null.
+         */
+        private void readAttributes(Set<String> annotationNames) throws IOException {
+            final int count = in.readUnsignedShort();
+            for (int i = 0; i < count; i++) {
+                final String attributeName = utf8s[in.readUnsignedShort()];
+                final int length = in.readInt();
+                if (annotationNames != null && RUNTIME_VISIBLE_ANNOTATIONS.equals(attributeName)) {
+                    final int annotationCount = in.readUnsignedShort();
+                    for (int j = 0; j < annotationCount; j++) {
+                        annotationNames.add(readAnnotation());
+                    }
+                } else {
+                    in.skipBytes(length);
+                }
+            }
+        }
+
+        private String readAnnotation() throws IOException {
+            final String type = utf8s[in.readUnsignedShort()];
+            final int pairCount = in.readUnsignedShort();
+            for (int i = 0; i < pairCount; i++) {
+                in.skipBytes(2);
+                skipElementValue();
+            }
+            return annotationName(type);
+        }
+
+        private void skipElementValue() throws IOException {
+            final int tag = in.readUnsignedByte();
+            switch (tag) {
+            case 'e':
+                in.skipBytes(4);
+                break;
+            case '@':
+                readAnnotation();
+                break;
+            case '[':
+                final int count = in.readUnsignedShort();
+                for (int i = 0; i < count; i++) {
+                    skipElementValue();
+                }
+                break;
+            default:
+                in.skipBytes(2);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,107 @@
+package org.jerkar.api.java;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Filter on classes, deciding on their class file content (see
+ * {@link JkClassFile}) so classes can be discarded without being loaded.
+ *
+ * @see JkClassLoader#iterateClassNames(org.jerkar.api.file.JkPathFilter,
+ *      JkClassFileFilter)
+ */
+public abstract class JkClassFileFilter {
+
+    /**
+     * Filter accepting all. Class files are not even read when this filter
+     * is used.
+     */
+    public static final JkClassFileFilter ACCEPT_ALL = new JkClassFileFilter() {
+
+        @Override
+        public boolean accept(JkClassFile classFile) {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "Accept all";
+        }
+
+    };
+
+    /**
+     * Returns if this filter should accept the specified class.
+     */
+    public abstract boolean accept(JkClassFile classFile);
+
+    /**
+     * Creates a filter accepting only classes that are neither abstract nor
+     * interfaces.
+     */
+    public static JkClassFileFilter concrete() {
+        return new JkClassFileFilter() {
+
+            @Override
+            public boolean accept(JkClassFile classFile) {
+                return !classFile.isAbstract();
+            }
+
+            @Override
+            public String toString() {
+                return "concrete";
+            }
+
+        };
+    }
+
+    /**
+     * Creates a filter accepting only classes directly extending one of the
+     * specified classes, given by their name as <code>com.foo.Bar</code>.
+     */
+    public static JkClassFileFilter directlyExtending(String... superClassNames) {
+        final Set<String> names = new HashSet<String>(Arrays.asList(superClassNames));
+        return new JkClassFileFilter() {
+
+            @Override
+            public boolean accept(JkClassFile classFile) {
+                return names.contains(classFile.superName());
+            }
+
+            @Override
+            public String toString() {
+                return "directly extending " + names;
+            }
+
+        };
+    }
+
+    /**
+     * Creates a filter accepting only classes accepted by both this filter
+     * and the specified one.
+     */
+    public JkClassFileFilter and(final JkClassFileFilter other) {
+        if (this == ACCEPT_ALL) {
+            return other;
+        }
+        if (other == ACCEPT_ALL) {
+            return this;
+        }
+        final JkClassFileFilter self = this;
+        return new JkClassFileFilter() {
+
+            @Override
+            public boolean accept(JkClassFile classFile) {
+                return self.accept(classFile) && other.accept(classFile);
+            }
+
+            @Override
+            public String toString() {
+                return self + " and " + other;
+            }
+
+        };
+    }
+
+}
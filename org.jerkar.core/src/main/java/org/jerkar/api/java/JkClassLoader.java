@@ -12,7 +12,7 @@ import java.net.URLClassLoader;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -46,8 +46,6 @@ public final class JkClassLoader {
 
     private static final String CLASS_SUFFIX = ".class";
 
-    private static final int CLASS_SUFFIX_LENGTH = CLASS_SUFFIX.length();
-
     private static final int JAVA_SUFFIX_LENGTH = ".java".length();
 
     private static File urlCacheDir = new File(JkLocator.jerkarUserHome(), "cache/url-content");
@@ -348,20 +346,17 @@ public final class JkClassLoader {
      *            The classpath entry filter. Can be <code>null</code>.
      */
     public Set<Class<? extends Object>> loadClassesInEntries(FileFilter entryFilter) {
-        final List<File> classfiles = new LinkedList<File>();
-        final Map<File, File> file2Entry = new HashMap<File, File>();
+        final List<File> entries = new LinkedList<File>();
         for (final File file : childClasspath()) {
             if (entryFilter == null || entryFilter.accept(file) && file.isDirectory()) {
-                final List<File> files = JkUtilsFile.filesOf(file, CLASS_FILE_FILTER, false);
-                classfiles.addAll(files);
-                JkUtilsIterable.putMultiEntry(file2Entry, files, file);
+                entries.add(file);
             }
         }
         final Set<Class<?>> result = new HashSet<Class<?>>();
-        for (final File file : classfiles) {
-            final File entry = file2Entry.get(file);
-            final String relativeName = JkUtilsFile.getRelativePath(entry, file);
-            final String className = getAsClassName(relativeName);
+        final Iterator<String> it = new ClassNameIterator(entries, JkPathFilter.ACCEPT_ALL,
+                JkClassFileFilter.ACCEPT_ALL);
+        while (it.hasNext()) {
+            final String className = it.next();
             Class<?> clazz;
             try {
                 clazz = delegate.loadClass(className);
@@ -373,6 +368,22 @@ public final class JkClassLoader {
         return result;
     }
 
+    /**
+     * Returns an iterator over the name of the classes of this
+     * <code>classloader</code> having a relative path matching the specified
+     * {@link JkPathFilter} and accepted by the specified
+     * {@link JkClassFileFilter}. Classes are not loaded, and class path
+     * entries are only walked as the iteration goes, so callers stopping
+     * early do not pay for the whole class path. A class defined in several
+     * entries is returned once per entry.
+     *
+     * @see #loadClasses(JkPathFilter)
+     */
+    public Iterator<String> iterateClassNames(JkPathFilter classFileFilter,
+            JkClassFileFilter classFilter) {
+        return new ClassNameIterator(this.fullClasspath(), classFileFilter, classFilter);
+    }
+
     /**
      * Loads all class having a relative path matching the supplied
      * {@link JkPathFilter}. For example, if you want to load all class
@@ -382,11 +393,23 @@ public final class JkClassLoader {
      * <code>.class</code> is important.
      */
     public Set<Class<?>> loadClasses(JkPathFilter classFileFilter) {
+        return loadClasses(classFileFilter, JkClassFileFilter.ACCEPT_ALL);
+    }
+
+    /**
+     * Same as {@link #loadClasses(JkPathFilter)} but loading only the classes
+     * accepted by the specified {@link JkClassFileFilter}. The others are
+     * discarded by reading their class file without being loaded.
+     */
+    public Set<Class<?>> loadClasses(JkPathFilter classFileFilter, JkClassFileFilter classFilter) {
+        final Set<String> classNames = new HashSet<String>();
         final Set<Class<?>> result = new HashSet<Class<?>>();
-        final Set<String> classFiles = this.fullClasspath().allItemsMatching(classFileFilter);
-        for (final String classFile : classFiles) {
-            final String className = getAsClassName(classFile);
-            result.add(this.load(className));
+        final Iterator<String> it = iterateClassNames(classFileFilter, classFilter);
+        while (it.hasNext()) {
+            final String className = it.next();
+            if (classNames.add(className)) {
+                result.add(this.load(className));
+            }
         }
         return result;
     }
@@ -400,11 +423,19 @@ public final class JkClassLoader {
      * @see JkClassLoader#loadClasses(JkPathFilter)
      */
     public Set<Class<?>> loadClasses(String... includingPatterns) {
+        return loadClasses(JkClassFileFilter.ACCEPT_ALL, includingPatterns);
+    }
+
+    /**
+     * Same as {@link #loadClasses(String...)} but loading only the classes
+     * accepted by the specified {@link JkClassFileFilter}.
+     */
+    public Set<Class<?>> loadClasses(JkClassFileFilter classFilter, String... includingPatterns) {
         final List<String> patterns = new LinkedList<String>();
         for (final String pattern : includingPatterns) {
             patterns.add(pattern + ".class");
         }
-        return loadClasses(JkPathFilter.include(patterns));
+        return loadClasses(JkPathFilter.include(patterns), classFilter);
     }
 
     /**
@@ -415,11 +446,8 @@ public final class JkClassLoader {
      */
     public Set<Class<? extends Object>> loadClassesIn(JkFileTreeSet jkFileTreeSet) {
         final Set<Class<?>> result = new HashSet<Class<?>>();
-        for (final String path : jkFileTreeSet.relativePathes()) {
-            if (path.endsWith(".class")) {
-                final String className = getAsClassName(path);
-                result.add(this.load(className));
-            }
+        for (final Iterator<Class<?>> it = iterateClassesIn(jkFileTreeSet); it.hasNext();) {
+            result.add(it.next());
         }
         return result;
     }
@@ -431,9 +459,34 @@ public final class JkClassLoader {
      * @see JkClassLoader#loadClassesInEntries(FileFilter)
      */
     public Iterator<Class<? extends Object>> iterateClassesIn(JkFileTreeSet jkFileTreeSet) {
-        final List<String> fileNames = jkFileTreeSet.andFilter(JkPathFilter.include("**/*.class"))
-                .relativePathes();
-        return classIterator(fileNames);
+        final Iterator<JkFileTree> trees = jkFileTreeSet.fileTrees().iterator();
+        return classIterator(new Iterator<String>() {
+
+            private Iterator<String> current = Collections.<String> emptyList().iterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && trees.hasNext()) {
+                    final JkFileTree tree = trees.next();
+                    if (tree.exists()) {
+                        current = new ClassNameIterator(Collections.singleton(tree.root()),
+                                tree.filter(), JkClassFileFilter.ACCEPT_ALL);
+                    }
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public String next() {
+                hasNext();
+                return current.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        });
     }
 
     /**
@@ -443,24 +496,11 @@ public final class JkClassLoader {
      * @see JkClassLoader#loadClassesInEntries(FileFilter)
      */
     public Iterator<Class<? extends Object>> iterateClassesIn(File dirOrJar) {
-        final List<String> paths;
-        if (dirOrJar.isDirectory()) {
-            paths = JkFileTree.of(dirOrJar).andFilter(JkPathFilter.include("**/*.class"))
-                    .relativePathes();
-        } else {
-            final List<ZipEntry> entries = JkUtilsZip.zipEntries(JkUtilsZip.zipFile(dirOrJar));
-            paths = new LinkedList<String>();
-            for (final ZipEntry entry : entries) {
-                if (entry.getName().endsWith(".class")) {
-                    paths.add(entry.getName());
-                }
-            }
-        }
-        return classIterator(paths);
+        return classIterator(new ClassNameIterator(Collections.singleton(dirOrJar),
+                JkPathFilter.ACCEPT_ALL, JkClassFileFilter.ACCEPT_ALL));
     }
 
-    private Iterator<Class<? extends Object>> classIterator(final Iterable<String> fileNameIt) {
-        final Iterator<String> it = fileNameIt.iterator();
+    private Iterator<Class<? extends Object>> classIterator(final Iterator<String> it) {
         return new Iterator<Class<? extends Object>>() {
 
             @Override
@@ -470,8 +510,7 @@ public final class JkClassLoader {
 
             @Override
             public Class<? extends Object> next() {
-                final String className = getAsClassName(it.next());
-                return load(className);
+                return load(it.next());
             }
 
             @Override
@@ -494,15 +533,6 @@ public final class JkClassLoader {
         return urls.toArray(new URL[0]);
     }
 
-    /**
-     * Transforms a class file name as <code>com/foo/Bar.class</code> to the
-     * corresponding class name <code>com.foo.Bar</code>.
-     */
-    private static String getAsClassName(String resourceName) {
-        return resourceName.replace(File.separatorChar, '.').replace("/", ".")
-                .substring(0, resourceName.length() - CLASS_SUFFIX_LENGTH);
-    }
-
     /**
      * Returns the first class having a main method from the specified class
      * directory or Jar. Returns <code>null</code> if no such class found.
@@ -5,25 +5,19 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 import org.jerkar.api.file.JkFileTree;
 import org.jerkar.api.file.JkPath;
 import org.jerkar.api.file.JkPathFilter;
 import org.jerkar.api.system.JkLog;
 import org.jerkar.api.utils.JkUtilsFile;
-import org.jerkar.api.utils.JkUtilsIO;
-import org.jerkar.api.utils.JkUtilsIterable;
 import org.jerkar.api.utils.JkUtilsString;
-import org.jerkar.api.utils.JkUtilsZip;
 
 /**
  * A sequence of file to be used as a <code>class path</code>.<br/>
@@ -39,18 +33,29 @@ public final class JkClasspath implements Iterable<File> {
 
     private static final String WILD_CARD = "*";
 
-    private final List<File> entries;
+    // Resolved and without doubloons, never modified once constructed
+    private final File[] entries;
 
-    private JkClasspath(Iterable<File> entries) {
+    private final List<File> entryList;
+
+    private volatile Set<File> index;
+
+    private String string;
+
+    private JkClasspath(File[] resolvedEntries) {
         super();
-        this.entries = Collections.unmodifiableList(resolveWildCard(entries));
+        this.entries = resolvedEntries;
+        this.entryList = Collections.unmodifiableList(Arrays.asList(resolvedEntries));
     }
 
     /**
      * Creates a <code>JkClasspath</code> form specified file entries.
      */
     public static JkClasspath of(Iterable<File> entries) {
-        return new JkClasspath(entries);
+        if (entries instanceof JkClasspath) {
+            return (JkClasspath) entries;
+        }
+        return new JkClasspath(resolveWildCard(entries));
     }
 
     /**
@@ -108,14 +113,21 @@ public final class JkClasspath implements Iterable<File> {
      * Returns each entries making this <code>classpath</code>.
      */
     public List<File> entries() {
-        return entries;
+        return entryList;
+    }
+
+    /**
+     * Returns <code>true</code> if this classpath contains the specified entry.
+     */
+    public boolean contains(File entry) {
+        return index().contains(entry);
     }
 
     /**
      * Short hand for <code>entries().isEmpty()</code>.
      */
     public boolean isEmpty() {
-        return entries.isEmpty();
+        return entries.length == 0;
     }
 
     /**
@@ -129,9 +141,12 @@ public final class JkClasspath implements Iterable<File> {
      * Returns a <code>JkClasspath</code> made of, in the order, the specified
      * entries plus the entries of this one.
      */
-    @SuppressWarnings("unchecked")
     public JkClasspath andHead(Iterable<File> otherEntries) {
-        return new JkClasspath(JkUtilsIterable.chain(otherEntries, this.entries));
+        final JkClasspath others = JkClasspath.of(otherEntries);
+        if (others.isEmpty()) {
+            return this;
+        }
+        return others.and(this);
     }
 
     /**
@@ -145,24 +160,83 @@ public final class JkClasspath implements Iterable<File> {
      * Returns a <code>JkClasspath</code> made of, in the order, the entries of
      * this one plus the specified ones.
      */
-    @SuppressWarnings("unchecked")
     public JkClasspath and(Iterable<File> otherFiles) {
-        return new JkClasspath(JkUtilsIterable.chain(this.entries, otherFiles));
+        final JkClasspath others = JkClasspath.of(otherFiles);
+        if (this.isEmpty()) {
+            return others;
+        }
+
+        // Entries of both are already resolved and distinct, so only the ones of the other
+        // classpath already present in this one have to be removed
+        final List<File> added = new ArrayList<File>(others.entries.length);
+        for (final File file : others.entries) {
+            if (!this.contains(file)) {
+                added.add(file);
+            }
+        }
+        if (added.isEmpty()) {
+            return this;
+        }
+        final File[] result = new File[entries.length + added.size()];
+        System.arraycopy(entries, 0, result, 0, entries.length);
+        for (int i = 0; i < added.size(); i++) {
+            result[entries.length + i] = added.get(i);
+        }
+        return new JkClasspath(result);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(entries);
     }
 
+    /**
+     * Two classpaths are equal if they have the same entries in the same order.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        return Arrays.equals(entries, ((JkClasspath) obj).entries);
+    }
+
+    /**
+     * Returns the absolute paths of the entries separated with the path
+     * separator of the platform, as expected by the <code>-cp</code> option
+     * of the <code>java</code> command.
+     */
     @Override
     public String toString() {
-        final StringBuilder builder = new StringBuilder();
-        for (final Iterator<File> it = this.iterator(); it.hasNext();) {
-            builder.append(it.next().getAbsolutePath());
-            if (it.hasNext()) {
-                builder.append(File.pathSeparator);
+        String result = string;
+        if (result == null) {
+            final StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < entries.length; i++) {
+                if (i > 0) {
+                    builder.append(File.pathSeparator);
+                }
+                builder.append(entries[i].getAbsolutePath());
             }
+            result = builder.toString();
+            string = result;
         }
-        return builder.toString();
+        return result;
     }
 
-    private static List<File> resolveWildCard(Iterable<File> files) {
+    // Built on demand as most classpaths are only iterated. Races only lead to build it twice.
+    private Set<File> index() {
+        Set<File> result = index;
+        if (result == null) {
+            result = new HashSet<File>(entryList);
+            index = result;
+        }
+        return result;
+    }
+
+    private static File[] resolveWildCard(Iterable<File> files) {
         final LinkedHashSet<File> result = new LinkedHashSet<File>();
         for (final File file : files) {
             if (file.getName().equals(WILD_CARD)) {
@@ -188,7 +262,7 @@ public final class JkClasspath implements Iterable<File> {
                 result.add(file);
             }
         }
-        return new ArrayList<File>(result);
+        return result.toArray(new File[result.size()]);
     }
 
     /**
@@ -196,12 +270,13 @@ public final class JkClasspath implements Iterable<File> {
      */
     @Override
     public Iterator<File> iterator() {
-        return entries.iterator();
+        return entryList.iterator();
     }
 
     /**
      * Returns the first entry of this <code>classpath</code> containing the
-     * given class.
+     * given class. Archive entries are looked up through
+     * {@link JkClasspathIndex}.
      */
     public File getEntryContainingClass(String className) {
         final String path = toFilePath(className);
@@ -210,13 +285,8 @@ public final class JkClasspath implements Iterable<File> {
                 if (new File(file, path).exists()) {
                     return file;
                 }
-            } else {
-                final ZipFile zipFile = JkUtilsZip.zipFile(file);
-                if (zipFile.getEntry(path) != null) {
-                    JkUtilsIO.closeQuietly(zipFile);
-                    return file;
-                }
-                JkUtilsIO.closeQuietly(zipFile);
+            } else if (JkClasspathIndex.instance().contains(file, path)) {
+                return file;
             }
         }
         return null;
@@ -233,15 +303,11 @@ public final class JkClasspath implements Iterable<File> {
             if (classpathEntry.isDirectory()) {
                 result.addAll(JkFileTree.of(classpathEntry).andFilter(fileFilter).relativePathes());
             } else {
-                final ZipFile zipFile = JkUtilsZip.zipFile(classpathEntry);
-                for (final Enumeration<? extends ZipEntry> zipEntries = zipFile.entries(); zipEntries
-                        .hasMoreElements();) {
-                    final ZipEntry zipEntry = zipEntries.nextElement();
-                    if (fileFilter.accept(zipEntry.getName())) {
-                        result.add(zipEntry.getName());
+                for (final String item : JkClasspathIndex.instance().items(classpathEntry)) {
+                    if (fileFilter.accept(item)) {
+                        result.add(item);
                     }
                 }
-                JkUtilsIO.closeQuietly(zipFile);
             }
         }
         return result;
@@ -255,11 +321,9 @@ public final class JkClasspath implements Iterable<File> {
      * Returns this classpath as an array of URL.
      */
     public URL[] asArrayOfUrl() {
-        final URL[] result = new URL[this.entries.size()];
-        int i = 0;
-        for (final File file : this.entries) {
-            result[i] = JkUtilsFile.toUrl(file);
-            i++;
+        final URL[] result = new URL[this.entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            result[i] = JkUtilsFile.toUrl(entries[i]);
         }
         return result;
     }
@@ -0,0 +1,107 @@
+package org.jerkar.api.java;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.jerkar.api.file.JkPersistentFileCache;
+import org.jerkar.api.utils.JkUtilsIO;
+import org.jerkar.api.utils.JkUtilsZip;
+
+/**
+ * Indexes the items (classes and resources) contained in the archive entries
+ * of classpaths, so finding the entry containing a given class or listing
+ * resources does not open and scan every jar each time. Archives are read
+ * again only if their size or last modification time has changed since they
+ * were indexed. Folder entries are not indexed as their content is likely to
+ * change during the build.
+ * <p>
+ * The index is shared by the whole process (see {@link #instance()}) and can
+ * be stored in a file to be reused across runs.
+ *
+ * @author Jerome Angibaud
+ */
+public final class JkClasspathIndex extends JkPersistentFileCache<String[]> {
+
+    private static final JkClasspathIndex INSTANCE = new JkClasspathIndex();
+
+    private static final int FORMAT_VERSION = 1;
+
+    private JkClasspathIndex() {
+        super("Classpath index", FORMAT_VERSION);
+    }
+
+    /**
+     * Returns the index shared by the whole process.
+     */
+    public static JkClasspathIndex instance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns <code>true</code> if the specified archive contains an entry
+     * having the specified path, as <code>my/pack/MyClass.class</code>.
+     */
+    public boolean contains(File archive, String itemPath) {
+        return Arrays.binarySearch(items(archive), itemPath) >= 0;
+    }
+
+    /**
+     * Returns the path of all the files contained in the specified archive,
+     * sorted in alphabetical order. Directory entries are not included.
+     */
+    public List<String> itemsOf(File archive) {
+        return Arrays.asList(items(archive).clone());
+    }
+
+    // Returned array is sorted and must not be modified
+    String[] items(File archive) {
+        return get(archive);
+    }
+
+    // Only the central directory of the archive is read
+    @Override
+    protected String[] compute(File archive) {
+        final ZipFile zipFile = JkUtilsZip.zipFile(archive);
+        try {
+            final List<String> result = new ArrayList<String>(zipFile.size());
+            for (final Enumeration<? extends ZipEntry> zipEntries = zipFile.entries(); zipEntries
+                    .hasMoreElements();) {
+                final ZipEntry zipEntry = zipEntries.nextElement();
+                if (!zipEntry.isDirectory()) {
+                    result.add(zipEntry.getName());
+                }
+            }
+            final String[] items = result.toArray(new String[result.size()]);
+            Arrays.sort(items);
+            return items;
+        } finally {
+            JkUtilsIO.closeQuietly(zipFile);
+        }
+    }
+
+    @Override
+    protected String[] readValue(DataInput input) throws IOException {
+        final String[] items = new String[input.readInt()];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = input.readUTF();
+        }
+        return items;
+    }
+
+    @Override
+    protected void writeValue(DataOutput output, String[] items) throws IOException {
+        output.writeInt(items.length);
+        for (final String item : items) {
+            output.writeUTF(item);
+        }
+    }
+
+}
@@ -19,6 +19,7 @@ import org.jerkar.api.file.JkPathFilter;
 import org.jerkar.api.system.JkLog;
 import org.jerkar.api.system.JkProcess;
 import org.jerkar.api.utils.JkUtilsString;
+import org.jerkar.api.utils.JkUtilsSystem;
 
 /**
  * Stand for a compilation setting and process. Use this class to perform java
@@ -191,7 +192,7 @@ public final class JkJavaCompiler {
      */
     public JkJavaCompiler fork(String... parameters) {
         return new JkJavaCompiler(new LinkedList<String>(options), javaSourceFiles, failOnError,
-                JkProcess.ofJavaTool("javac", parameters), versionCache);
+                javac(JkProcess.ofJavaTool("javac", parameters)), versionCache);
     }
 
     /**
@@ -201,7 +202,7 @@ public final class JkJavaCompiler {
     public JkJavaCompiler fork(boolean fork, String... parameters) {
         if (fork) {
             return new JkJavaCompiler(new LinkedList<String>(options), javaSourceFiles,
-                    failOnError, JkProcess.ofJavaTool("javac"), versionCache);
+                    failOnError, javac(JkProcess.ofJavaTool("javac")), versionCache);
         } else {
             return new JkJavaCompiler(new LinkedList<String>(options), javaSourceFiles,
                     failOnError, null, versionCache);
@@ -218,8 +219,16 @@ public final class JkJavaCompiler {
      *            '/my/speciel/jdk/javac'
      */
     public JkJavaCompiler forkOnCompiler(String executable, String... parameters) {
+        final String name = new File(executable).getName();
+        final JkProcess process = JkProcess.of(executable, parameters);
         return new JkJavaCompiler(new LinkedList<String>(options), javaSourceFiles, failOnError,
-                JkProcess.of(executable, parameters), versionCache);
+                name.equals("javac") || name.equals("javac.exe") ? javac(process) : process,
+                versionCache);
+    }
+
+    // Beyond the command line limit, javac gets its arguments through an argument file
+    private static JkProcess javac(JkProcess process) {
+        return process.withArgumentFileThreshold(JkUtilsSystem.MAX_COMMAND_LINE_LENGTH);
     }
 
     /**
@@ -354,7 +363,7 @@ public final class JkJavaCompiler {
         final String cmd = path + "/bin/javac";
         JkLog.info("Current JDK does not match with source version (" + versionCache + "). Will use JDK "
                 + path);
-        final JkProcess process = JkProcess.of(cmd);
+        final JkProcess process = javac(JkProcess.of(cmd));
         return new JkJavaCompiler(options, javaSourceFiles, failOnError, process, versionCache);
     }
 
@@ -1,6 +1,8 @@
 package org.jerkar.api.java;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -9,8 +11,12 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
 
 import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsFile;
 import org.jerkar.api.utils.JkUtilsIO;
 import org.jerkar.api.utils.JkUtilsIO.StreamGobbler;
 import org.jerkar.api.utils.JkUtilsString;
@@ -25,6 +31,8 @@ public final class JkJavaProcess {
 
     private static final File CURRENT_JAVA_DIR = new File(System.getProperty("java.home"), "bin");
 
+    private static final Map<String, File> PATHING_JARS = new HashMap<String, File>();
+
     private final Map<String, String> sytemProperties;
 
     private final File javaDir;
@@ -228,9 +236,26 @@ public final class JkJavaProcess {
         runClassOrJarSync(mainClassName, null, arguments);
     }
 
-    private void runClassOrJarSync(String mainClassName, File jar, String... arguments) {
-        final List<String> command = new LinkedList<String>();
+    /**
+     * Starts the specified class without waiting for termination. The class
+     * has to be on this classpath. The caller is responsible for consuming the
+     * output of the returned process, error output being redirected to the
+     * standard one.
+     */
+    public Process startClass(String mainClassName, String... arguments) {
         final OptionAndEnv optionAndEnv = optionsAndEnv();
+        final List<String> command = command(optionAndEnv, mainClassName, null, arguments);
+        JkLog.trace("Starting java program : " + command.toString());
+        try {
+            return processBuilder(command, optionAndEnv.env).start();
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private List<String> command(OptionAndEnv optionAndEnv, String mainClassName, File jar,
+            String... arguments) {
+        final List<String> command = new LinkedList<String>();
         command.add(runningJavaCommand());
         command.addAll(optionAndEnv.options);
         if (mainClassName != null) {
@@ -241,27 +266,38 @@ public final class JkJavaProcess {
             command.add(jar.getPath());
         }
         command.addAll(Arrays.asList(arguments));
+        return command;
+    }
+
+    private void runClassOrJarSync(String mainClassName, File jar, String... arguments) {
+        final OptionAndEnv optionAndEnv = optionsAndEnv();
+        final List<String> command = command(optionAndEnv, mainClassName, jar, arguments);
         JkLog.startln("Starting java program : " + command.toString());
-        final int result;
+
+        // Closed even on failure as callers may carry on, as test launchers do
         try {
-            final Process process = processBuilder(command, optionAndEnv.env).start();
-
-            final StreamGobbler outputStreamGobbler = JkUtilsIO.newStreamGobbler(
-                    process.getInputStream(), JkLog.infoStream());
-            final StreamGobbler errorStreamGobbler = JkUtilsIO.newStreamGobbler(
-                    process.getErrorStream(), JkLog.warnStream());
-            process.waitFor();
-            outputStreamGobbler.stop();
-            errorStreamGobbler.stop();
-            result = process.exitValue();
-        } catch (final Exception e) {
-            throw new RuntimeException(e);
-        }
-        if (result != 0) {
-            throw new IllegalStateException("Process terminated in error : exit value = " + result
-                    + ".");
+            final int result;
+            try {
+                final Process process = processBuilder(command, optionAndEnv.env).start();
+
+                final StreamGobbler outputStreamGobbler = JkUtilsIO.newStreamGobbler(
+                        process.getInputStream(), JkLog.infoStream());
+                final StreamGobbler errorStreamGobbler = JkUtilsIO.newStreamGobbler(
+                        process.getErrorStream(), JkLog.warnStream());
+                process.waitFor();
+                outputStreamGobbler.stop();
+                errorStreamGobbler.stop();
+                result = process.exitValue();
+            } catch (final Exception e) {
+                throw new RuntimeException(e);
+            }
+            if (result != 0) {
+                throw new IllegalStateException("Process terminated in error : exit value = "
+                        + result + ".");
+            }
+        } finally {
+            JkLog.done();
         }
-        JkLog.done();
     }
 
     private OptionAndEnv optionsAndEnv() {
@@ -269,14 +305,67 @@ public final class JkJavaProcess {
         final Map<String, String> env = new HashMap<String, String>();
         if (classpath != null && !classpath.isEmpty()) {
             final String classpathString = classpath.toString();
-            if (JkUtilsSystem.IS_WINDOWS && classpathString.length() > 7500) {
-                JkLog.warn("classpath too long, classpath will be passed using CLASSPATH env variable.");
-                env.put("CLASSPATH", classpathString);
+            options.add("-cp");
+
+            // Beyond this length, the classpath is passed through a pathing jar
+            if (classpathString.length() > JkUtilsSystem.MAX_COMMAND_LINE_LENGTH) {
+                options.add(pathingJar(classpath).getAbsolutePath());
             } else {
-                options.add("-cp");
-                options.add(classpath.toString());
+                options.add(classpathString);
+            }
+        }
+        options.addAll(jvmOptions());
+        return new OptionAndEnv(options, env);
+    }
+
+    /*
+     * Returns an empty jar whose manifest references the specified classpath, so a classpath of
+     * any length can be passed to the JVM. Note that <code>java.class.path</code> then only
+     * mentions this jar. Jars are cached for the lifetime of this JVM as test processes are often
+     * launched several times with the same classpath.
+     */
+    private static synchronized File pathingJar(JkClasspath classpath) {
+        final String key = classpath.toString();
+        final File cached = PATHING_JARS.get(key);
+        if (cached != null && cached.exists()) {
+            return cached;
+        }
+        final StringBuilder builder = new StringBuilder();
+        for (final File entry : classpath) {
+            String url = entry.getAbsoluteFile().toURI().toString();
+            if (!entry.exists() && !entry.getName().toLowerCase().endsWith(".jar")
+                    && !url.endsWith("/")) {
+                url = url + "/"; // Not created yet but meant to be a class dir
             }
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            builder.append(url);
         }
+        final Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, builder.toString());
+        final File jar = JkUtilsFile.tempFile("pathing-", ".jar");
+        jar.deleteOnExit();
+        JarOutputStream outputStream = null;
+        try {
+            outputStream = new JarOutputStream(new FileOutputStream(jar), manifest);
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            JkUtilsIO.closeQuietly(outputStream);
+        }
+        JkLog.trace("Classpath too long, passed through pathing jar " + jar.getPath());
+        PATHING_JARS.put(key, jar);
+        return jar;
+    }
+
+    /**
+     * Returns the options passed to the JVM (agents, system properties and
+     * other options), classpath excepted.
+     */
+    public List<String> jvmOptions() {
+        final List<String> options = new LinkedList<String>();
         for (final AgentLibAndOption agentLibAndOption : agents) {
             final StringBuilder builder = new StringBuilder("-javaagent:")
             .append(agentLibAndOption.lib);
@@ -292,7 +381,7 @@ public final class JkJavaProcess {
         for (final String option : this.options) {
             options.add(option);
         }
-        return new OptionAndEnv(options, env);
+        return options;
     }
 
     private static final class OptionAndEnv {
@@ -319,6 +408,58 @@ public final class JkJavaProcess {
             this.lib = lib;
             this.options = options;
         }
+
+        @Override
+        public int hashCode() {
+            return 31 * lib.hashCode() + (options == null ? 0 : options.hashCode());
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            final AgentLibAndOption other = (AgentLibAndOption) obj;
+            return lib.equals(other.lib)
+                    && (options == null ? other.options == null : options.equals(other.options));
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = javaDir.hashCode();
+        result = prime * result + sytemProperties.hashCode();
+        result = prime * result + classpath.hashCode();
+        result = prime * result + agents.hashCode();
+        result = prime * result + new ArrayList<String>(options).hashCode();
+        result = prime * result + (workingDir == null ? 0 : workingDir.hashCode());
+        result = prime * result + environment.hashCode();
+        return result;
+    }
+
+    /**
+     * Two <code>JkJavaProcess</code> are equal if they launch the same JVM
+     * with the same settings.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        final JkJavaProcess other = (JkJavaProcess) obj;
+        return javaDir.equals(other.javaDir) && sytemProperties.equals(other.sytemProperties)
+                && classpath.equals(other.classpath) && agents.equals(other.agents)
+                && new ArrayList<String>(options).equals(new ArrayList<String>(other.options))
+                && (workingDir == null ? other.workingDir == null : workingDir
+                        .equals(other.workingDir))
+                && environment.equals(other.environment);
     }
 
     /**
@@ -1,16 +1,21 @@
 package org.jerkar.api.java;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
 import java.util.jar.Attributes;
 import java.util.jar.Attributes.Name;
 import java.util.jar.Manifest;
 
+import org.jerkar.api.file.JkZipEntryMerger;
 import org.jerkar.api.utils.JkUtilsFile;
 import org.jerkar.api.utils.JkUtilsIO;
 import org.jerkar.api.utils.JkUtilsThrowable;
@@ -46,6 +51,35 @@ public final class JkManifest {
      */
     private static final String BUILT_BY = "Built-By";
 
+    /**
+     * A {@link JkZipEntryMerger} merging the manifests met while creating an
+     * archive. Attributes of the first met manifests take precedence over
+     * those of manifests met afterward.
+     */
+    public static final JkZipEntryMerger ENTRY_MERGER = new JkZipEntryMerger() {
+
+        @Override
+        public byte[] merge(String entryName, List<byte[]> contents) {
+            final ListIterator<byte[]> it = contents.listIterator(contents.size());
+            final JkManifest result = JkManifest.of(new ByteArrayInputStream(it.previous()));
+            while (it.hasPrevious()) {
+                result.merge(JkManifest.of(new ByteArrayInputStream(it.previous())));
+            }
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            try {
+                result.manifest.write(outputStream);
+            } catch (final IOException e) {
+                throw new RuntimeException(e);
+            }
+            return outputStream.toByteArray();
+        }
+
+        @Override
+        public String toString() {
+            return "manifest merge";
+        }
+    };
+
     private final Manifest manifest;
 
     /**
@@ -162,7 +196,11 @@ public final class JkManifest {
         final Map<String, Attributes> otherEntryAttributes = other.manifest.getEntries();
         for (final String entry : otherEntryAttributes.keySet()) {
             final Attributes otherAttributes = otherEntryAttributes.get(entry);
-            final Attributes attributes = this.manifest.getAttributes(entry);
+            Attributes attributes = this.manifest.getAttributes(entry);
+            if (attributes == null) {
+                attributes = new Attributes();
+                this.manifest.getEntries().put(entry, attributes);
+            }
             merge(attributes, otherAttributes);
         }
         merge(this.manifest.getMainAttributes(), other.manifest.getMainAttributes());
@@ -170,7 +208,7 @@ public final class JkManifest {
     }
 
     private static void merge(Attributes attributes, Attributes others) {
-        for (final Object key : others.entrySet()) {
+        for (final Object key : others.keySet()) {
             attributes.putValue(key.toString(), others.getValue(key.toString()));
         }
     }
@@ -1,21 +1,31 @@
 package org.jerkar.api.java;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.TreeMap;
 
 import org.jerkar.api.file.JkFileTree;
 import org.jerkar.api.file.JkFileTreeSet;
 import org.jerkar.api.file.JkPathFilter;
 import org.jerkar.api.system.JkLog;
 import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsIO;
 import org.jerkar.api.utils.JkUtilsIterable;
+import org.jerkar.api.utils.JkUtilsString;
 
 /**
  * This processor basically copies some resource files to a target folder
@@ -24,11 +34,19 @@ import org.jerkar.api.utils.JkUtilsIterable;
  * values.<br/>
  * The processor is constructed using a list of <code>JkDirSets</code> and for
  * each of them, we can associate a map of token to replace.<br/>
+ * Processing is incremental : the files produced are recorded in an index
+ * file lying beside the output directory, so files whose source and token
+ * values have not changed are not copied again and files whose source has
+ * disappeared are deleted.
  * 
  * @author Jerome Angibaud
  */
 public final class JkResourceProcessor {
 
+    private static final String INDEX_SUFFIX = ".resource-index";
+
+    private static final int INDEX_FORMAT_VERSION = 1;
+
     private final JkFileTreeSet resourceTrees;
 
     private final Collection<JkInterpolator> interpolators;
@@ -58,25 +76,66 @@ public final class JkResourceProcessor {
 
     /**
      * Actually processes the resources, meaning copies the resources to the
-     * specified output directory along replacing specified tokens.
+     * specified output directory along replacing specified tokens. Output
+     * files that are already up to date are left untouched and output files
+     * produced by a previous processing whose source does not exist anymore
+     * are deleted.
      */
     public void generateTo(File outputDir) {
+        generateChangesTo(outputDir);
+    }
+
+    /**
+     * Same as {@link #generateTo(File)} but returns the output files that have
+     * been created, updated or deleted.
+     */
+    public List<File> generateChangesTo(File outputDir) {
         JkLog.startln("Coping resource files to " + outputDir.getPath());
-        final Set<File> files = new HashSet<File>();
+        final Map<String, File> sources = new LinkedHashMap<String, File>();
         for (final JkFileTree resourceTree : this.resourceTrees.fileTrees()) {
             if (!resourceTree.root().exists()) {
                 continue;
             }
             for (final File file : resourceTree) {
-                final String relativePath = resourceTree.relativePath(file);
-                final File out = new File(outputDir, relativePath);
-                final Map<String, String> data = JkInterpolator.interpolateData(relativePath,
-                        interpolators);
-                JkUtilsFile.copyFileReplacingTokens(file, out, data, JkLog.infoStreamIfVerbose());
-                files.add(JkUtilsFile.canonicalFile(file));
+                sources.put(resourceTree.relativePath(file), file);
+            }
+        }
+        final File indexFile = new File(outputDir.getParentFile(), outputDir.getName()
+                + INDEX_SUFFIX);
+        final Map<String, IndexEntry> previousIndex = IndexEntry.load(indexFile);
+        final Map<String, IndexEntry> index = new HashMap<String, IndexEntry>();
+        final List<File> changedFiles = new LinkedList<File>();
+        for (final Map.Entry<String, File> entry : sources.entrySet()) {
+            final String relativePath = entry.getKey();
+            final File file = entry.getValue();
+            final File out = new File(outputDir, relativePath);
+            final Map<String, String> data = JkInterpolator.interpolateData(relativePath,
+                    interpolators);
+            final String dataHash = JkInterpolator.hash(data);
+            final IndexEntry previous = previousIndex.get(relativePath);
+            if (previous != null && previous.isUpToDate(file, dataHash, out)) {
+                index.put(relativePath, previous);
+                continue;
+            }
+            JkUtilsFile.copyFileReplacingTokens(file, out, data, JkLog.infoStreamIfVerbose());
+            out.setLastModified(file.lastModified());
+            index.put(relativePath, new IndexEntry(file.getAbsolutePath(), file.length(),
+                    dataHash, out.length()));
+            changedFiles.add(out);
+        }
+        final int copyCount = changedFiles.size();
+        for (final String relativePath : previousIndex.keySet()) {
+            final File out = new File(outputDir, relativePath);
+            if (!index.containsKey(relativePath) && out.isFile()) {
+                JkLog.trace("Removing stale file " + out.getPath());
+                JkUtilsFile.delete(out);
+                changedFiles.add(out);
             }
         }
-        JkLog.done(files.size() + " file(s) copied.");
+        IndexEntry.save(index, indexFile);
+        JkLog.done(copyCount + " file(s) copied, " + (sources.size() - copyCount)
+                + " up to date, " + (changedFiles.size() - copyCount) + " stale file(s) removed.");
+        return changedFiles;
     }
 
     /**
@@ -198,6 +257,106 @@ public final class JkResourceProcessor {
             return result;
         }
 
+        // Hashed so that values, which may be passwords, are not written in the index
+        private static String hash(Map<String, String> data) {
+            if (data.isEmpty()) {
+                return "";
+            }
+            try {
+                final MessageDigest digest = MessageDigest.getInstance("MD5");
+                for (final Map.Entry<String, String> entry : new TreeMap<String, String>(data)
+                        .entrySet()) {
+                    digest.update(entry.getKey().getBytes("UTF-8"));
+                    digest.update((byte) 0);
+                    digest.update(String.valueOf(entry.getValue()).getBytes("UTF-8"));
+                    digest.update((byte) 0);
+                }
+                return JkUtilsString.toHexString(digest.digest());
+            } catch (final NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            } catch (final UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+    }
+
+    /*
+     * Records the source and token values an output file has been produced from. The output file
+     * gets the modification time of its source, so an output is up to date if this time, its
+     * size, the source size and the token values did not change since.
+     */
+    private static final class IndexEntry {
+
+        private final String sourcePath;
+
+        private final long sourceLength;
+
+        private final String dataHash;
+
+        private final long outputLength;
+
+        IndexEntry(String sourcePath, long sourceLength, String dataHash, long outputLength) {
+            this.sourcePath = sourcePath;
+            this.sourceLength = sourceLength;
+            this.dataHash = dataHash;
+            this.outputLength = outputLength;
+        }
+
+        boolean isUpToDate(File source, String dataHash, File output) {
+            return sourcePath.equals(source.getAbsolutePath())
+                    && sourceLength == source.length() && this.dataHash.equals(dataHash)
+                    && output.isFile() && outputLength == output.length()
+                    && output.lastModified() == source.lastModified();
+        }
+
+        static Map<String, IndexEntry> load(File indexFile) {
+            final Map<String, IndexEntry> result = new HashMap<String, IndexEntry>();
+            if (!indexFile.exists()) {
+                return result;
+            }
+            final DataInputStream inputStream = new DataInputStream(new BufferedInputStream(
+                    JkUtilsIO.inputStream(indexFile)));
+            try {
+                if (inputStream.readInt() != INDEX_FORMAT_VERSION) {
+                    return result;
+                }
+                final int count = inputStream.readInt();
+                for (int i = 0; i < count; i++) {
+                    result.put(inputStream.readUTF(), new IndexEntry(inputStream.readUTF(),
+                            inputStream.readLong(), inputStream.readUTF(), inputStream.readLong()));
+                }
+            } catch (final IOException e) {
+                JkLog.warn("Resource index " + indexFile.getPath() + " is unreadable, ignore it.");
+                result.clear();
+            } finally {
+                JkUtilsIO.closeQuietly(inputStream);
+            }
+            return result;
+        }
+
+        static void save(Map<String, IndexEntry> index, File indexFile) {
+            indexFile.getParentFile().mkdirs();
+            final DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(
+                    JkUtilsIO.outputStream(indexFile, false)));
+            try {
+                outputStream.writeInt(INDEX_FORMAT_VERSION);
+                outputStream.writeInt(index.size());
+                for (final Map.Entry<String, IndexEntry> entry : index.entrySet()) {
+                    final IndexEntry indexEntry = entry.getValue();
+                    outputStream.writeUTF(entry.getKey());
+                    outputStream.writeUTF(indexEntry.sourcePath);
+                    outputStream.writeLong(indexEntry.sourceLength);
+                    outputStream.writeUTF(indexEntry.dataHash);
+                    outputStream.writeLong(indexEntry.outputLength);
+                }
+            } catch (final IOException e) {
+                throw new RuntimeException(e);
+            } finally {
+                JkUtilsIO.closeQuietly(outputStream);
+            }
+        }
+
     }
 
 }
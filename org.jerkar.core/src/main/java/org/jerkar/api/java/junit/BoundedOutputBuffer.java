@@ -0,0 +1,111 @@
+package org.jerkar.api.java.junit;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/*
+ * Output stream keeping only the first and the last bytes written in it, so the captured output
+ * of tests printing heavily takes a bounded amount of memory. Buffers grow as bytes are written,
+ * so capturing silent tests costs nothing.
+ */
+final class BoundedOutputBuffer extends OutputStream {
+
+    private static final int INITIAL_SIZE = 256;
+
+    private final int headLimit;
+
+    private final int tailLimit;
+
+    private byte[] head = new byte[0];
+
+    private int headSize;
+
+    /** Circular buffer, allocated once the head is full */
+    private byte[] tail;
+
+    private long tailCount;
+
+    /**
+     * Creates a buffer keeping at most <code>limit</code> bytes : the first
+     * half and the last half of what is written.
+     */
+    BoundedOutputBuffer(int limit) {
+        this.headLimit = limit / 2;
+        this.tailLimit = limit - headLimit;
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public synchronized void write(byte[] bytes, int offset, int length) {
+        final int headLength = Math.min(length, headLimit - headSize);
+        if (headLength > 0) {
+            if (headSize + headLength > head.length) {
+                head = Arrays.copyOf(head, Math.min(headLimit,
+                        Math.max(INITIAL_SIZE, Math.max(headSize + headLength, head.length * 2))));
+            }
+            System.arraycopy(bytes, offset, head, headSize, headLength);
+            headSize += headLength;
+        }
+        int tailOffset = offset + headLength;
+        int tailLength = length - headLength;
+        if (tailLength <= 0 || tailLimit == 0) {
+            tailCount += Math.max(0, tailLength);
+            return;
+        }
+        if (tail == null) {
+            tail = new byte[tailLimit];
+        }
+        if (tailLength > tailLimit) {
+            tailCount += tailLength - tailLimit;
+            tailOffset += tailLength - tailLimit;
+            tailLength = tailLimit;
+        }
+        final int position = (int) (tailCount % tailLimit);
+        final int firstLength = Math.min(tailLength, tailLimit - position);
+        System.arraycopy(bytes, tailOffset, tail, position, firstLength);
+        System.arraycopy(bytes, tailOffset + firstLength, tail, 0, tailLength - firstLength);
+        tailCount += tailLength;
+    }
+
+    /**
+     * Returns the number of bytes written in this buffer but not kept.
+     */
+    synchronized long truncatedByteCount() {
+        return Math.max(0, tailCount - tailLimit);
+    }
+
+    /**
+     * Returns <code>true</code> if nothing has been written in this buffer.
+     */
+    synchronized boolean isEmpty() {
+        return headSize == 0 && tailCount == 0;
+    }
+
+    /**
+     * Returns the kept bytes as a string, mentioning how many bytes have been
+     * dropped between the head and the tail, if any.
+     */
+    @Override
+    public synchronized String toString() {
+        final StringBuilder builder = new StringBuilder(new String(head, 0, headSize));
+        final long truncated = truncatedByteCount();
+        if (truncated > 0) {
+            builder.append("\n[... ").append(truncated).append(" bytes truncated ...]\n");
+        }
+        if (tail != null) {
+            final int keptLength = (int) Math.min(tailCount, tailLimit);
+            final int start = (int) ((tailCount - keptLength) % tailLimit);
+            final byte[] kept = new byte[keptLength];
+            final int firstLength = Math.min(keptLength, tailLimit - start);
+            System.arraycopy(tail, start, kept, 0, firstLength);
+            System.arraycopy(tail, 0, kept, firstLength, keptLength - firstLength);
+            builder.append(new String(kept));
+        }
+        return builder.toString();
+    }
+
+}
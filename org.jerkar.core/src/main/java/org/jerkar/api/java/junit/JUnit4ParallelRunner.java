@@ -0,0 +1,178 @@
+package org.jerkar.api.java.junit;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jerkar.api.java.junit.JkUnit.JunitReportDetail;
+import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsTime;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.notification.RunListener;
+
+/*
+ * Runs test classes concurrently in the current JVM. Each class runs in its own JUnit run with its
+ * own listeners, so per class results and reports are computed as if the class ran alone. Classes
+ * annotated with an annotation named NotThreadSafe run after the others, one at a time.
+ */
+final class JUnit4ParallelRunner {
+
+    /** Simple name of the annotations marking test classes that can't run concurrently */
+    static final String NOT_THREAD_SAFE_ANNOTATION = "NotThreadSafe";
+
+    private final int threadCount;
+
+    private final boolean printEachTestOnConsole;
+
+    private final JunitReportDetail reportDetail;
+
+    private final File reportDir;
+
+    private final int reportOutputLimit;
+
+    private final RunListener eventListener;
+
+    JUnit4ParallelRunner(int threadCount, boolean printEachTestOnConsole,
+            JunitReportDetail reportDetail, File reportDir, int reportOutputLimit,
+            RunListener eventListener) {
+        this.threadCount = threadCount;
+        this.printEachTestOnConsole = printEachTestOnConsole;
+        this.reportDetail = reportDetail;
+        this.reportDir = reportDir;
+        this.reportOutputLimit = reportOutputLimit;
+        this.eventListener = eventListener;
+    }
+
+    /**
+     * Runs the specified classes and merges their results. The output of
+     * each class is printed in a single block when it ends, unless the
+     * standard streams are already discarded, and is copied to its report.
+     */
+    JkTestSuiteResult run(Class<?>[] classes, final Properties properties,
+            boolean outputDiscarded) {
+        final long start = System.nanoTime();
+        final List<Class<?>> concurrentClasses = new ArrayList<Class<?>>();
+        final List<Class<?>> sequentialClasses = new ArrayList<Class<?>>();
+        for (final Class<?> clazz : classes) {
+            if (isNotThreadSafe(clazz)) {
+                sequentialClasses.add(clazz);
+            } else {
+                concurrentClasses.add(clazz);
+            }
+        }
+        final PrintStream target = printEachTestOnConsole ? JkLog.infoStream() : System.out;
+        final ThreadOutputCapture capture = outputDiscarded && !reportsOutput() ? null
+                : ThreadOutputCapture.install();
+        final List<JkTestSuiteResult> results = new ArrayList<JkTestSuiteResult>();
+        try {
+            results.addAll(runConcurrently(concurrentClasses, properties, capture, target,
+                    outputDiscarded));
+            for (final Class<?> clazz : sequentialClasses) {
+                results.add(runClass(clazz, properties, capture, target, outputDiscarded));
+            }
+        } finally {
+            if (capture != null) {
+                capture.uninstall();
+            }
+        }
+        return JkTestSuiteResult.merge(properties, "all", results,
+                JkUtilsTime.durationInMillis(start));
+    }
+
+    private List<JkTestSuiteResult> runConcurrently(List<Class<?>> classes,
+            final Properties properties, final ThreadOutputCapture capture,
+            final PrintStream target, final boolean outputDiscarded) {
+        final List<JkTestSuiteResult> results = new ArrayList<JkTestSuiteResult>();
+        if (classes.isEmpty()) {
+            return results;
+        }
+        final ExecutorService executorService = Executors.newFixedThreadPool(Math.min(
+                threadCount, classes.size()));
+        final List<Future<JkTestSuiteResult>> futures = new ArrayList<Future<JkTestSuiteResult>>();
+        for (final Class<?> clazz : classes) {
+            futures.add(executorService.submit(new Callable<JkTestSuiteResult>() {
+
+                @Override
+                public JkTestSuiteResult call() throws Exception {
+                    return runClass(clazz, properties, capture, target, outputDiscarded);
+                }
+            }));
+        }
+        executorService.shutdown();
+
+        // Wait for all the classes, even if one fails, so no test is left running.
+        RuntimeException exception = null;
+        for (final Future<JkTestSuiteResult> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (final ExecutionException e) {
+                if (exception == null) {
+                    exception = e.getCause() instanceof RuntimeException ? (RuntimeException) e
+                            .getCause() : new RuntimeException(e.getCause());
+                }
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+        return results;
+    }
+
+    private JkTestSuiteResult runClass(Class<?> clazz, Properties properties,
+            ThreadOutputCapture capture, PrintStream target, boolean outputDiscarded) {
+        final JUnitCore jUnitCore = new JUnitCore();
+        if (eventListener != null) {
+            jUnitCore.addListener(eventListener);
+        }
+        final JUnitClassResultListener classResultListener = new JUnitClassResultListener();
+        jUnitCore.addListener(classResultListener);
+        JUnitReportListener reportListener = null;
+        if (reportDetail.equals(JunitReportDetail.FULL)) {
+            reportListener = new JUnitReportListener(reportDir, reportOutputLimit, false);
+            jUnitCore.addListener(reportListener);
+        }
+        if (printEachTestOnConsole) {
+            jUnitCore.addListener(new JUnitConsoleListener(true));
+        }
+        if (capture != null) {
+            capture.start(!outputDiscarded, reportsOutput() ? reportListener.outputSink()
+                    : null);
+        }
+        final Result result;
+        try {
+            result = jUnitCore.run(clazz);
+        } finally {
+            if (capture != null) {
+                capture.flush(target);
+            }
+        }
+        return JkTestSuiteResult.fromJunit4Result(properties, "all", result, result.getRunTime(),
+                classResultListener.results());
+    }
+
+    private boolean reportsOutput() {
+        return reportDetail.equals(JunitReportDetail.FULL) && reportOutputLimit > 0;
+    }
+
+    private static boolean isNotThreadSafe(Class<?> clazz) {
+        for (final Annotation annotation : clazz.getAnnotations()) {
+            if (annotation.annotationType().getSimpleName().equals(NOT_THREAD_SAFE_ANNOTATION)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -7,13 +7,14 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
 
-import org.jerkar.api.java.JkClassLoader;
 import org.jerkar.api.java.junit.JkUnit.JunitReportDetail;
 import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsFile;
 import org.jerkar.api.utils.JkUtilsIO;
 import org.jerkar.api.utils.JkUtilsTime;
 import org.junit.runner.JUnitCore;
 import org.junit.runner.Result;
+import org.junit.runner.notification.RunListener;
 
 class JUnit4TestExecutor {
 
@@ -21,29 +22,63 @@ class JUnit4TestExecutor {
      * Use this main class to run test in a separate process.
      */
     public static void main(String[] args) {
-        if (args.length == 0) {
+        run(args, JUnit4TestExecutor.class.getClassLoader());
+    }
+
+    /**
+     * Runs the tests as the main method does, test classes being loaded with
+     * the specified class loader.
+     */
+    static void run(String[] args, ClassLoader classLoader) {
+        if (args.length < 9) {
             throw new IllegalArgumentException(
-                    "There should be at least 2 args. "
-                            + "First is the file where is serialized the result, and others are the classes to test.");
+                    "There should be at least 9 args. "
+                            + "First is the file where is serialized the result, and last ones are the classes to test.");
         }
         final File resultFile = new File(args[0]);
         final boolean printEachTestInConsole = Boolean.parseBoolean(args[1]);
         final JunitReportDetail reportDetail = JunitReportDetail.valueOf(args[2]);
         final File reportDir = new File(args[3]);
-        final Class<?>[] classes = toClassArray(Arrays.copyOfRange(args, 4, args.length));
-        final JkTestSuiteResult result = launchInProcess(classes, printEachTestInConsole,
-                reportDetail, reportDir, false);
-        JkUtilsIO.serialize(result, resultFile);
+        final int eventPort = Integer.parseInt(args[4]);
+        final long timeoutInMillis = Long.parseLong(args[5]);
+        final int threadCount = Integer.parseInt(args[6]);
+        final int reportOutputLimit = Integer.parseInt(args[7]);
+        final Class<?>[] classes = toClassArray(Arrays.copyOfRange(args, 8, args.length),
+                classLoader);
+        final JUnitEventStreamListener eventListener = JUnitEventStreamListener.connect(
+                eventPort, timeoutInMillis);
+        try {
+            final JkTestSuiteResult result = launchInProcess(classes, printEachTestInConsole,
+                    reportDetail, reportDir, false, eventListener, threadCount,
+                    reportOutputLimit);
+            JkUtilsIO.serialize(result, resultFile);
+        } finally {
+            eventListener.close();
+        }
     }
 
     private static JkTestSuiteResult launchInProcess(Class<?>[] classes,
             boolean printEachTestOnConsole, JunitReportDetail reportDetail, File reportDir,
-            boolean restoreSystemOut) {
-        final JUnitCore jUnitCore = new JUnitCore();
+            boolean restoreSystemOut, int threadCount, int reportOutputLimit) {
+        return launchInProcess(classes, printEachTestOnConsole, reportDetail, reportDir,
+                restoreSystemOut, null, threadCount, reportOutputLimit);
+    }
 
-        if (reportDetail.equals(JunitReportDetail.FULL)) {
-            jUnitCore.addListener(new JUnitReportListener(reportDir));
+    private static JkTestSuiteResult launchInProcess(Class<?>[] classes,
+            boolean printEachTestOnConsole, JunitReportDetail reportDetail, File reportDir,
+            boolean restoreSystemOut, RunListener eventListener, int threadCount,
+            int reportOutputLimit) {
+        if (threadCount > 1 && classes.length > 1) {
+            return launchConcurrently(classes, printEachTestOnConsole, reportDetail, reportDir,
+                    restoreSystemOut, eventListener, threadCount, reportOutputLimit);
         }
+        final JUnitCore jUnitCore = new JUnitCore();
+        if (eventListener != null) {
+            jUnitCore.addListener(eventListener);
+        }
+        final JUnitClassResultListener classResultListener = new JUnitClassResultListener();
+        jUnitCore.addListener(classResultListener);
+
         final PrintStream out = System.out;
         final PrintStream err = System.err;
         if (printEachTestOnConsole) {
@@ -53,6 +88,11 @@ class JUnit4TestExecutor {
             System.setOut(JkUtilsIO.nopPrintStream());
         }
 
+        // Added last so it captures the streams set by the other listeners
+        if (reportDetail.equals(JunitReportDetail.FULL)) {
+            jUnitCore.addListener(new JUnitReportListener(reportDir, reportOutputLimit, true));
+        }
+
         final Properties properties = (Properties) System.getProperties().clone();
         final long start = System.nanoTime();
         final Result result;
@@ -65,17 +105,57 @@ class JUnit4TestExecutor {
             }
         }
         final long durationInMillis = JkUtilsTime.durationInMillis(start);
-        return JkTestSuiteResult.fromJunit4Result(properties, "all", result, durationInMillis);
+        return JkTestSuiteResult.fromJunit4Result(properties, "all", result, durationInMillis,
+                classResultListener.results());
     }
 
-    private static Class<?>[] toClassArray(String[] classNames) {
+    private static JkTestSuiteResult launchConcurrently(Class<?>[] classes,
+            boolean printEachTestOnConsole, JunitReportDetail reportDetail, File reportDir,
+            boolean restoreSystemOut, RunListener eventListener, int threadCount,
+            int reportOutputLimit) {
+        final PrintStream out = System.out;
+        final PrintStream err = System.err;
+        final boolean outputDiscarded = !printEachTestOnConsole && !JkLog.verbose();
+        if (outputDiscarded) {
+            System.setErr(JkUtilsIO.nopPrintStream());
+            System.setOut(JkUtilsIO.nopPrintStream());
+        }
+        final Properties properties = (Properties) System.getProperties().clone();
+        final JUnit4ParallelRunner runner = new JUnit4ParallelRunner(threadCount,
+                printEachTestOnConsole, reportDetail, reportDir, reportOutputLimit, eventListener);
+        try {
+            return runner.run(classes, properties, outputDiscarded);
+        } finally {
+            if (restoreSystemOut) {
+                System.setErr(err);
+                System.setOut(out);
+            }
+        }
+    }
+
+    /*
+     * Arguments starting with '@' are files containing a class name per line.
+     */
+    private static Class<?>[] toClassArray(String[] args, ClassLoader classLoader) {
+        final List<String> classNames = new ArrayList<String>();
+        for (final String arg : args) {
+            if (arg.startsWith("@")) {
+                for (final String line : JkUtilsFile.readLines(new File(arg.substring(1)))) {
+                    if (line.trim().length() > 0) {
+                        classNames.add(line.trim());
+                    }
+                }
+            } else {
+                classNames.add(arg);
+            }
+        }
         final List<Class<?>> classes = new ArrayList<Class<?>>();
         for (final String each : classNames) {
             try {
-                classes.add(Class.forName(each));
+                classes.add(Class.forName(each, true, classLoader));
             } catch (final ClassNotFoundException e) {
                 throw new IllegalArgumentException("Class " + each + " not found in classloader "
-                        + JkClassLoader.current());
+                        + classLoader);
             }
         }
         return classes.toArray(new Class[0]);
@@ -1,8 +1,14 @@
 package org.jerkar.api.java.junit;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.jerkar.api.java.JkClassLoader;
 import org.jerkar.api.java.JkClasspath;
@@ -13,26 +19,154 @@ import org.jerkar.api.system.JkLog;
 import org.jerkar.api.utils.JkUtilsFile;
 import org.jerkar.api.utils.JkUtilsIO;
 import org.jerkar.api.utils.JkUtilsIterable;
+import org.jerkar.api.utils.JkUtilsString;
+import org.jerkar.api.utils.JkUtilsTime;
 
 class JUnit4TestLauncher {
 
+    /**
+     * Runs the specified test classes in forked processes. Classes are
+     * distributed among at most <code>forkCount</code> processes running
+     * concurrently, and their results are merged in a single one.
+     */
     @SuppressWarnings("rawtypes")
     public static JkTestSuiteResult launchInFork(JkJavaProcess jkJavaProcess,
-            boolean printEachTestOnConsole, JunitReportDetail reportDetail,
-            Iterable<Class> classes, File reportDir) {
-        final List<String> args = new LinkedList<String>();
-        final File file = JkUtilsFile.tempFile("testResult-", ".ser");
-        args.add("\"" + file.getAbsolutePath() + "\"");
-        args.add(Boolean.toString(printEachTestOnConsole));
-        args.add(reportDetail.name());
-        args.add("\"" + reportDir.getAbsolutePath() + "\"");
+            final boolean printEachTestOnConsole, final JunitReportDetail reportDetail,
+            Iterable<Class> classes, final File reportDir, int forkCount,
+            JkTestDistribution distribution, final long testTimeout,
+            final JkTestJvmPool jvmPool, final int threadCount, final int reportOutputLimit) {
+        final List<String> classNames = new ArrayList<String>();
         for (final Class<?> clazz : classes) {
-            args.add(clazz.getName());
+            classNames.add(clazz.getName());
+        }
+        final JkJavaProcess process = jkJavaProcess.andClasspath(JkClasspath.of(JkLocator
+                .jerkarJarFile()));
+        final int shardCount = Math.min(forkCount, classNames.size());
+        if (shardCount <= 1) {
+            return launchShard(process, printEachTestOnConsole, reportDetail, classNames,
+                    reportDir, testTimeout, jvmPool, threadCount, reportOutputLimit);
+        }
+        final List<List<String>> shards = new ArrayList<List<String>>();
+        for (final List<String> shard : distribution.split(classNames, shardCount)) {
+            if (!shard.isEmpty()) {
+                shards.add(shard);
+            }
+        }
+        JkLog.info("Distribute " + classNames.size() + " test classes " + distribution
+                + " among " + shards.size() + " forked processes.");
+        final long start = System.nanoTime();
+        final ExecutorService executorService = Executors.newFixedThreadPool(shards.size());
+        final List<Future<JkTestSuiteResult>> futures = new ArrayList<Future<JkTestSuiteResult>>();
+        for (final List<String> shard : shards) {
+            futures.add(executorService.submit(new Callable<JkTestSuiteResult>() {
+
+                @Override
+                public JkTestSuiteResult call() throws Exception {
+                    return launchShard(process, printEachTestOnConsole, reportDetail, shard,
+                            reportDir, testTimeout, jvmPool, threadCount, reportOutputLimit);
+                }
+            }));
+        }
+        executorService.shutdown();
+
+        // Wait for all the shards, even if one fails, so no process is left running.
+        final List<JkTestSuiteResult> results = new ArrayList<JkTestSuiteResult>();
+        RuntimeException exception = null;
+        for (final Future<JkTestSuiteResult> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (final ExecutionException e) {
+                if (exception == null) {
+                    exception = e.getCause() instanceof RuntimeException ? (RuntimeException) e
+                            .getCause() : new RuntimeException(e.getCause());
+                }
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+        return JkTestSuiteResult.merge(results.get(0).getSystemProperties(), "all", results,
+                JkUtilsTime.durationInMillis(start));
+    }
+
+    /*
+     * Runs the specified classes in a forked process. If the process terminates abnormally, the
+     * result is computed from the events received so far and the classes not started yet are run
+     * in a new process. Processes are borrowed from the specified pool if not null.
+     */
+    private static JkTestSuiteResult launchShard(JkJavaProcess process,
+            boolean printEachTestOnConsole, JunitReportDetail reportDetail,
+            List<String> classNames, File reportDir, long testTimeout, JkTestJvmPool jvmPool,
+            int threadCount, int reportOutputLimit) {
+        final long start = System.nanoTime();
+        final List<JkTestSuiteResult> results = new ArrayList<JkTestSuiteResult>();
+        List<String> remainingClassNames = classNames;
+        while (!remainingClassNames.isEmpty()) {
+            final TestEventReceiver receiver = TestEventReceiver.start(!printEachTestOnConsole,
+                    reportDir);
+            final List<String> args = new LinkedList<String>();
+            final File file = JkUtilsFile.tempFile("testResult-", ".ser");
+            args.add(file.getAbsolutePath());
+            args.add(Boolean.toString(printEachTestOnConsole));
+            args.add(reportDetail.name());
+            args.add(reportDir.getAbsolutePath());
+            args.add(Integer.toString(receiver.port()));
+            args.add(Long.toString(testTimeout));
+            args.add(Integer.toString(threadCount));
+            args.add(Integer.toString(reportOutputLimit));
+
+            // Class names are passed in a file as they may exceed the command line limit
+            final File classListFile = JkUtilsFile.tempFile("testClasses-", ".txt");
+            JkUtilsFile.writeString(classListFile, JkUtilsString.join(remainingClassNames, "\n"),
+                    false);
+            args.add("@" + classListFile.getAbsolutePath());
+            IllegalStateException termination = null;
+            try {
+                if (jvmPool == null) {
+                    process.runClassSync(JUnit4TestExecutor.class.getName(),
+                            args.toArray(new String[0]));
+                } else {
+                    jvmPool.run(process, args.toArray(new String[0]));
+                }
+            } catch (final IllegalStateException e) {
+                termination = e;
+            } catch (final RuntimeException e) {
+                receiver.stop();
+                throw e;
+            } finally {
+                classListFile.delete();
+            }
+            final List<TestEvent> events = receiver.stop();
+            if (termination == null) {
+                results.add((JkTestSuiteResult) JkUtilsIO.deserialize(file));
+                break;
+            }
+            if (events.isEmpty() && results.isEmpty()) {
+                throw termination; // Nothing ran, the process can't even start tests
+            }
+            JkLog.warn("Forked test process terminated abnormally ("
+                    + termination.getMessage() + "), compute results from received events.");
+            final JkTestSuiteResult partialResult = TestEventReceiver.partialResult(events,
+                    remainingClassNames, termination.getMessage());
+            results.add(partialResult);
+            if (reportDetail == JunitReportDetail.FULL) {
+                TestEventReceiver.writeUnfinishedReports(partialResult, events, reportDir);
+            }
+            remainingClassNames = TestEventReceiver.classesNotStarted(events,
+                    remainingClassNames, partialResult);
+            if (!remainingClassNames.isEmpty()) {
+                JkLog.warn("Run the " + remainingClassNames.size()
+                        + " test class(es) not started in a new process.");
+            }
+        }
+        if (results.size() == 1) {
+            return results.get(0);
         }
-        final JkJavaProcess process;
-        process = jkJavaProcess.andClasspath(JkClasspath.of(JkLocator.jerkarJarFile()));
-        process.runClassSync(JUnit4TestExecutor.class.getName(), args.toArray(new String[0]));
-        return (JkTestSuiteResult) JkUtilsIO.deserialize(file);
+        return JkTestSuiteResult.merge(results.get(results.size() - 1).getSystemProperties(),
+                "all", results, JkUtilsTime.durationInMillis(start));
     }
 
     @SuppressWarnings("rawtypes")
@@ -41,7 +175,8 @@ class JUnit4TestLauncher {
      *            Non-empty <code>Iterable</code>.
      */
     public static JkTestSuiteResult launchInClassLoader(Iterable<Class> classes, boolean verbose,
-            JunitReportDetail reportDetail, File reportDir) {
+            JunitReportDetail reportDetail, File reportDir, int threadCount,
+            int reportOutputLimit) {
         final JkClassLoader classloader = JkClassLoader.of(classes.iterator().next());
         final Class[] classArray = JkUtilsIterable.arrayOf(classes, Class.class);
         classloader.addEntry(JkLocator.jerkarJarFile());
@@ -50,7 +185,8 @@ class JUnit4TestLauncher {
             JkLog.info(classloader.toString());
         }
         return classloader.invokeStaticMethod(true, JUnit4TestExecutor.class.getName(),
-                "launchInProcess", classArray, verbose, reportDetail, reportDir, true);
+                "launchInProcess", classArray, verbose, reportDetail, reportDir, true,
+                threadCount, reportOutputLimit);
     }
 
 }
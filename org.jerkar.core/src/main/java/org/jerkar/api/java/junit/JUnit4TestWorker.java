@@ -0,0 +1,100 @@
+package org.jerkar.api.java.junit;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsString;
+
+/**
+ * Main class of the JVMs of a {@link JkTestJvmPool}. It connects to the pool
+ * then runs the test requests it receives, until the connection is closed.
+ * Classes of the request classpath are loaded in a fresh class loader for each
+ * request, and system properties and standard streams are restored after
+ * each, so requests do not see state left by previous ones.
+ */
+class JUnit4TestWorker {
+
+    static final String PING = "ping";
+
+    static final String RUN = "run";
+
+    static final String DONE = "done";
+
+    static final String ERROR_PREFIX = "error:";
+
+    public static void main(String[] args) throws Exception {
+        final Socket socket = new Socket(InetAddress.getByName(null), Integer.parseInt(args[0]));
+        final ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(
+                socket.getOutputStream()));
+        out.flush();
+        final ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(
+                socket.getInputStream()));
+        final Properties systemProperties = (Properties) System.getProperties().clone();
+        final PrintStream systemOut = System.out;
+        final PrintStream systemErr = System.err;
+        while (true) {
+            final String[] request;
+            try {
+                request = (String[]) in.readObject();
+            } catch (final EOFException e) {
+                // The pool has been closed or the launching process is dead. Exit even if tests
+                // have left non daemon threads running.
+                System.exit(0);
+                return;
+            }
+            String reply;
+            if (PING.equals(request[0])) {
+                reply = PING;
+            } else {
+                try {
+                    run(request);
+                    reply = DONE;
+                } catch (final Throwable e) {
+                    e.printStackTrace();
+                    reply = ERROR_PREFIX + e;
+                } finally {
+                    System.setProperties((Properties) systemProperties.clone());
+                    System.setOut(systemOut);
+                    System.setErr(systemErr);
+                }
+            }
+            out.writeObject(reply);
+            out.flush();
+        }
+    }
+
+    /*
+     * The request is made of the run command, the classpath specific to this run then the
+     * arguments expected by JUnit4TestExecutor.
+     */
+    private static void run(String[] request) throws Exception {
+        final String[] paths = JkUtilsString.split(request[1], File.pathSeparator);
+        final URL[] urls = new URL[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            urls[i] = JkUtilsFile.toUrl(new File(paths[i]));
+        }
+        final URLClassLoader classLoader = new URLClassLoader(urls,
+                JUnit4TestWorker.class.getClassLoader());
+        final Thread thread = Thread.currentThread();
+        final ClassLoader contextClassLoader = thread.getContextClassLoader();
+        thread.setContextClassLoader(classLoader);
+        try {
+            JUnit4TestExecutor.run(Arrays.copyOfRange(request, 2, request.length), classLoader);
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+    }
+
+}
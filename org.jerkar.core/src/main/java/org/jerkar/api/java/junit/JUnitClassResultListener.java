@@ -0,0 +1,82 @@
+package org.jerkar.api.java.junit;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jerkar.api.java.junit.JkTestSuiteResult.TestClassResult;
+import org.junit.runner.Description;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+
+/*
+ * Computes a summary of the result of each test class. The duration of a class spans from the start
+ * of its first test to the end of its last test.
+ */
+class JUnitClassResultListener extends RunListener {
+
+    private final Map<String, Counter> counters = new LinkedHashMap<String, Counter>();
+
+    @Override
+    public synchronized void testStarted(Description description) throws Exception {
+        final Counter counter = counter(description);
+        if (counter.startNano == 0) {
+            counter.startNano = System.nanoTime();
+        }
+    }
+
+    @Override
+    public synchronized void testFinished(Description description) throws Exception {
+        final Counter counter = counter(description);
+        counter.runCount++;
+        counter.endNano = System.nanoTime();
+    }
+
+    @Override
+    public synchronized void testIgnored(Description description) throws Exception {
+        counter(description).ignoreCount++;
+    }
+
+    @Override
+    public synchronized void testFailure(Failure failure) throws Exception {
+        counter(failure.getDescription()).failureCount++;
+    }
+
+    synchronized List<TestClassResult> results() {
+        final List<TestClassResult> result = new ArrayList<TestClassResult>(counters.size());
+        for (final Map.Entry<String, Counter> entry : counters.entrySet()) {
+            final Counter counter = entry.getValue();
+            final long durationInMillis = counter.startNano == 0 || counter.endNano == 0 ? 0
+                    : (counter.endNano - counter.startNano) / 1000000;
+            result.add(new TestClassResult(entry.getKey(), counter.runCount,
+                    counter.ignoreCount, counter.failureCount, durationInMillis));
+        }
+        return result;
+    }
+
+    private Counter counter(Description description) {
+        final String className = description.getClassName();
+        Counter counter = counters.get(className);
+        if (counter == null) {
+            counter = new Counter();
+            counters.put(className, counter);
+        }
+        return counter;
+    }
+
+    private static final class Counter {
+
+        long startNano;
+
+        long endNano;
+
+        int runCount;
+
+        int ignoreCount;
+
+        int failureCount;
+
+    }
+
+}
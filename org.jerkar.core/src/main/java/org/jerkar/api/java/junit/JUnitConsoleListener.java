@@ -9,12 +9,32 @@ import org.junit.runner.notification.RunListener;
 
 class JUnitConsoleListener extends RunListener {
 
+    private final boolean concurrent;
+
     private PrintStream out;
 
     private PrintStream err;
 
+    JUnitConsoleListener() {
+        this(false);
+    }
+
+    /*
+     * When tests run concurrently, standard streams are captured per thread by a
+     * ThreadOutputCapture, so they are left as is and test names are printed in them rather than
+     * in the log.
+     */
+    JUnitConsoleListener(boolean concurrent) {
+        this.concurrent = concurrent;
+    }
+
     @Override
     public void testStarted(Description description) throws Exception {
+        if (concurrent) {
+            System.out.println("Running " + description.getClassName() + "."
+                    + description.getMethodName());
+            return;
+        }
         JkLog.start("Running " + description.getClassName() + "." + description.getMethodName());
         out = System.out;
         err = System.err;
@@ -24,6 +44,9 @@ class JUnitConsoleListener extends RunListener {
 
     @Override
     public void testFinished(Description description) throws Exception {
+        if (concurrent) {
+            return;
+        }
         JkLog.done();
         System.setOut(out);
         System.setErr(err);
@@ -31,18 +54,25 @@ class JUnitConsoleListener extends RunListener {
 
     @Override
     public void testIgnored(Description description) throws Exception {
-        JkLog.info("- Test " + description.getDisplayName() + " ignored.");
+        if (concurrent) {
+            System.out.println("- Test " + description.getDisplayName() + " ignored.");
+        } else {
+            JkLog.info("- Test " + description.getDisplayName() + " ignored.");
+        }
     }
 
     @Override
     public void testAssumptionFailure(Failure failure) {
-        failure.getException().printStackTrace(JkLog.infoStream());
+        failure.getException().printStackTrace(stream());
     }
 
     @Override
     public void testFailure(Failure failure) throws Exception {
-        failure.getException().printStackTrace(JkLog.infoStream());
-        ;
+        failure.getException().printStackTrace(stream());
+    }
+
+    private PrintStream stream() {
+        return concurrent ? System.out : JkLog.infoStream();
     }
 
 }
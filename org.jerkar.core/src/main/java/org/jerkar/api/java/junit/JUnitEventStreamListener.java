@@ -0,0 +1,175 @@
+package org.jerkar.api.java.junit;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.jerkar.api.java.junit.JkTestSuiteResult.ExceptionDescription;
+import org.jerkar.api.utils.JkUtilsIO;
+import org.junit.runner.Description;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+
+/*
+ * Streams test events to the launching process through a local socket, flushing each event as
+ * soon as it happens. If a timeout is set, a test lasting longer makes this process send a dump
+ * of all its threads then halt, as there is no safe way to stop the test thread.
+ */
+class JUnitEventStreamListener extends RunListener {
+
+    /** Exit value of the process when a test has timed out */
+    static final int TIMEOUT_EXIT_VALUE = 3;
+
+    private final Socket socket;
+
+    private final ObjectOutputStream out;
+
+    private final long timeoutInMillis;
+
+    private final Timer timer;
+
+    private final Map<Description, TimerTask> timeoutTasks =
+            new HashMap<Description, TimerTask>();
+
+    private boolean broken;
+
+    private JUnitEventStreamListener(Socket socket, long timeoutInMillis) throws IOException {
+        this.socket = socket;
+        this.out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        this.out.flush();
+        this.timeoutInMillis = timeoutInMillis;
+        this.timer = timeoutInMillis > 0 ? new Timer("test-timeout", true) : null;
+    }
+
+    /**
+     * Connects to the specified port of the local host.
+     */
+    static JUnitEventStreamListener connect(int port, long timeoutInMillis) {
+        try {
+            return new JUnitEventStreamListener(new Socket(InetAddress.getByName(null), port),
+                    timeoutInMillis);
+        } catch (final IOException e) {
+            throw new RuntimeException("Can't connect to test event receiver on port " + port, e);
+        }
+    }
+
+    @Override
+    public void testStarted(final Description description) throws Exception {
+        send(new TestEvent(TestEvent.Kind.STARTED, description.getClassName(),
+                description.getMethodName()));
+        if (timer != null) {
+            final Thread testThread = Thread.currentThread();
+            final TimerTask task = new TimerTask() {
+
+                @Override
+                public void run() {
+                    timeOut(description, testThread);
+                }
+            };
+            synchronized (timeoutTasks) {
+                timeoutTasks.put(description, task);
+            }
+            timer.schedule(task, timeoutInMillis);
+        }
+    }
+
+    @Override
+    public void testFinished(Description description) throws Exception {
+        if (timer != null) {
+            final TimerTask task;
+            synchronized (timeoutTasks) {
+                task = timeoutTasks.remove(description);
+            }
+            if (task != null) {
+                task.cancel();
+            }
+        }
+        send(new TestEvent(TestEvent.Kind.FINISHED, description.getClassName(),
+                description.getMethodName()));
+    }
+
+    @Override
+    public void testFailure(Failure failure) throws Exception {
+        final Description description = failure.getDescription();
+        send(new TestEvent(TestEvent.Kind.FAILED, description.getClassName(),
+                description.getMethodName(), new ExceptionDescription(failure.getException()),
+                null));
+    }
+
+    @Override
+    public void testIgnored(Description description) throws Exception {
+        send(new TestEvent(TestEvent.Kind.IGNORED, description.getClassName(),
+                description.getMethodName()));
+    }
+
+    /**
+     * Flushes and releases the connection.
+     */
+    void close() {
+        if (timer != null) {
+            timer.cancel();
+        }
+        synchronized (this) {
+            broken = true;
+            JkUtilsIO.closeQuietly(out);
+            try {
+                socket.close();
+            } catch (final IOException e) {
+                // Nothing left to do with the socket
+            }
+        }
+    }
+
+    private void timeOut(Description description, Thread testThread) {
+        final RuntimeException exception = new RuntimeException("Test timed out after "
+                + timeoutInMillis + " ms.");
+        exception.setStackTrace(testThread.getStackTrace());
+        send(new TestEvent(TestEvent.Kind.TIMED_OUT, description.getClassName(),
+                description.getMethodName(), new ExceptionDescription(exception), threadDump()));
+        close();
+        Runtime.getRuntime().halt(TIMEOUT_EXIT_VALUE);
+    }
+
+    private static String threadDump() {
+        final StringBuilder builder = new StringBuilder();
+        for (final Map.Entry<Thread, StackTraceElement[]> entry : Thread.getAllStackTraces()
+                .entrySet()) {
+            final Thread thread = entry.getKey();
+            builder.append('"').append(thread.getName()).append('"');
+            if (thread.isDaemon()) {
+                builder.append(" daemon");
+            }
+            builder.append(" ").append(thread.getState()).append('\n');
+            for (final StackTraceElement element : entry.getValue()) {
+                builder.append("  at ").append(element).append('\n');
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    /*
+     * A failure to send an event must not make the tests fail, so the stream is just given up.
+     * Nothing is printed, as the output belongs to the running test, and the parent process still
+     * gets the final result through the result file.
+     */
+    private synchronized void send(TestEvent event) {
+        if (broken) {
+            return;
+        }
+        try {
+            out.writeObject(event);
+            out.reset();
+            out.flush();
+        } catch (final IOException e) {
+            broken = true;
+        }
+    }
+
+}
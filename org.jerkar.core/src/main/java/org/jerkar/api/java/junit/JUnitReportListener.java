@@ -1,8 +1,9 @@
 package org.jerkar.api.java.junit;
 
 import java.io.File;
-import java.util.LinkedList;
-import java.util.List;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
 import java.util.Properties;
 
 import org.jerkar.api.java.junit.JkTestSuiteResult.ExceptionDescription;
@@ -15,9 +16,40 @@ import org.junit.runner.Result;
 import org.junit.runner.notification.Failure;
 import org.junit.runner.notification.RunListener;
 
+/*
+ * Writes the report of each test class as soon as it is done. Test cases are streamed to the
+ * report as they finish and the output of the tests, if captured, is kept in bounded buffers, so
+ * the memory used does not depend on the number of tests nor on the amount they print.
+ */
 class JUnitReportListener extends RunListener {
 
-    private List<JkTestSuiteResult.TestCaseResult> cases;
+    private final File folder;
+
+    private final int outputLimit;
+
+    private final boolean captureStandardStreams;
+
+    private final OutputStream outputSink = new OutputStream() {
+
+        @Override
+        public void write(int b) throws IOException {
+            final BoundedOutputBuffer buffer = out;
+            if (buffer != null) {
+                buffer.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            final BoundedOutputBuffer buffer = out;
+            if (buffer != null) {
+                buffer.write(b, off, len);
+            }
+        }
+
+    };
+
+    private TestReportWriter writer;
 
     private Properties properties;
 
@@ -27,55 +59,98 @@ class JUnitReportListener extends RunListener {
 
     private long testTimeNano;
 
-    private int ignoreCount;
+    private int caseCount;
 
-    private final File folder;
+    private int ignoreCount;
 
     private String currentTestName;
 
     private boolean failureFlag;
 
-    public JUnitReportListener(File folder) {
+    private volatile BoundedOutputBuffer out;
+
+    private BoundedOutputBuffer err;
+
+    private PrintStream savedOut;
+
+    private PrintStream savedErr;
+
+    private PrintStream teeOut;
+
+    private PrintStream teeErr;
+
+    /**
+     * Creates a listener writing reports in the specified folder. The output
+     * of the tests is included in the reports if <code>outputLimit</code> is
+     * greater than 0, keeping at most this number of bytes per class and per
+     * stream : the head and the tail of the output. The standard streams are
+     * captured during each test if <code>captureStandardStreams</code> is
+     * <code>true</code>, otherwise the output must be written in
+     * {@link #outputSink()} by the caller.
+     */
+    JUnitReportListener(File folder, int outputLimit, boolean captureStandardStreams) {
         super();
         this.folder = folder;
+        this.outputLimit = outputLimit;
+        this.captureStandardStreams = captureStandardStreams && outputLimit > 0;
     }
 
     @Override
     public void testStarted(Description description) throws Exception {
-        final Class<?> clazz = description.getTestClass();
-        if (!clazz.equals(currentClass)) {
-            dump();
-            init(clazz);
-        }
+        switchClass(description.getTestClass());
         testTimeNano = System.nanoTime();
         currentTestName = description.getMethodName();
         failureFlag = false;
+        if (captureStandardStreams) {
+            savedOut = System.out;
+            savedErr = System.err;
+            teeOut = new PrintStream(new Tee(savedOut, out), true);
+            teeErr = new PrintStream(new Tee(savedErr, err), true);
+            System.setOut(teeOut);
+            System.setErr(teeErr);
+        }
     }
 
     @Override
     public void testIgnored(Description description) throws Exception {
+        switchClass(description.getTestClass());
         ignoreCount++;
-        final IgnoredCase ignoredCase = new IgnoredCase(currentClass.getName(), currentTestName);
-        this.cases.add(ignoredCase);
+        caseCount++;
+        writer.add(new IgnoredCase(currentClass.getName(), description.getMethodName()));
     }
 
     @Override
     public void testFinished(Description description) throws Exception {
+        if (captureStandardStreams) {
+
+            // Listeners added after this one may have already restored their own streams
+            if (System.out == teeOut) {
+                System.setOut(savedOut);
+            }
+            if (System.err == teeErr) {
+                System.setErr(savedErr);
+            }
+        }
         final float duration = (JkUtilsTime.durationInMillis(testTimeNano)) / 1000f;
         if (!failureFlag) {
-            final TestCaseResult result = new TestCaseResult(currentClass.getName(),
-                    currentTestName, duration);
-            cases.add(result);
+            caseCount++;
+            writer.add(new TestCaseResult(currentClass.getName(), currentTestName, duration));
         }
     }
 
     @Override
     public void testFailure(Failure failure) throws Exception {
+        final Description description = failure.getDescription();
+        switchClass(description.getTestClass());
         failureFlag = true;
         final float duration = (JkUtilsTime.durationInMillis(testTimeNano)) / 1000f;
-        final TestCaseFailure caseFailure = new TestCaseFailure(currentClass.getName(),
-                currentTestName, duration, new ExceptionDescription(failure.getException()));
-        cases.add(caseFailure);
+        caseCount++;
+
+        // Failures outside of tests, as in @BeforeClass methods, are reported under the class
+        final String testName = description.getMethodName() == null ? description
+                .getDisplayName() : currentTestName;
+        writer.add(new TestCaseFailure(currentClass.getName(), testName, duration,
+                new ExceptionDescription(failure.getException())));
     }
 
     @Override
@@ -83,13 +158,32 @@ class JUnitReportListener extends RunListener {
         dump();
     }
 
+    /**
+     * Returns the stream to write the output of the current class in, when
+     * standard streams are not captured by this listener.
+     */
+    OutputStream outputSink() {
+        return outputSink;
+    }
+
+    private void switchClass(Class<?> clazz) {
+        if (clazz == null || clazz.equals(currentClass)) {
+            return;
+        }
+        dump();
+        init(clazz);
+    }
+
     private void init(Class<?> clazz) {
         this.currentClass = clazz;
         this.properties = new Properties();
         this.properties.putAll(System.getProperties());
         this.suiteTimeNano = System.nanoTime();
-        this.cases = new LinkedList<JkTestSuiteResult.TestCaseResult>();
+        this.writer = TestReportWriter.start(folder, clazz.getName());
+        this.caseCount = 0;
         this.ignoreCount = 0;
+        this.out = outputLimit > 0 ? new BoundedOutputBuffer(outputLimit) : null;
+        this.err = outputLimit > 0 ? new BoundedOutputBuffer(outputLimit) : null;
     }
 
     private void dump() {
@@ -97,11 +191,42 @@ class JUnitReportListener extends RunListener {
             return;
         }
         final long duration = JkUtilsTime.durationInMillis(suiteTimeNano);
-        final String suiteName = currentClass.getName();
-        final int count = cases.size();
-        final JkTestSuiteResult result = new JkTestSuiteResult(properties, suiteName, count,
-                ignoreCount, cases, duration);
-        TestReportBuilder.of(result).writeToFileSystem(folder);
+        writer.finish(properties, caseCount, ignoreCount, duration, output(out), output(err));
+        currentClass = null;
+    }
+
+    private static String output(BoundedOutputBuffer buffer) {
+        return buffer == null || buffer.isEmpty() ? null : buffer.toString();
+    }
+
+    private static final class Tee extends OutputStream {
+
+        private final OutputStream first;
+
+        private final OutputStream second;
+
+        Tee(OutputStream first, OutputStream second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            first.write(b);
+            second.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            first.write(b, off, len);
+            second.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            first.flush();
+        }
+
     }
 
 }
@@ -0,0 +1,190 @@
+package org.jerkar.api.java.junit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Strategy to distribute test classes among several forked processes.
+ *
+ * @see JkUnit#withForkCount(int, JkTestDistribution)
+ */
+public abstract class JkTestDistribution {
+
+    /**
+     * Deals test classes one by one to each shard, in turn.
+     */
+    public static final JkTestDistribution ROUND_ROBIN = new JkTestDistribution() {
+
+        @Override
+        public List<List<String>> split(List<String> classNames, int shardCount) {
+            final List<List<String>> result = emptyShards(shardCount);
+            for (int i = 0; i < classNames.size(); i++) {
+                result.get(i % shardCount).add(classNames.get(i));
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "round robin";
+        }
+    };
+
+    /**
+     * Keeps test classes of a same package within the same shard. Packages are
+     * dealt, largest first, to the shard containing the fewest classes.
+     */
+    public static final JkTestDistribution BY_PACKAGE = new JkTestDistribution() {
+
+        @Override
+        public List<List<String>> split(List<String> classNames, int shardCount) {
+            final Map<String, List<String>> packages = new LinkedHashMap<String, List<String>>();
+            for (final String className : classNames) {
+                final String packageName = packageName(className);
+                List<String> classes = packages.get(packageName);
+                if (classes == null) {
+                    classes = new ArrayList<String>();
+                    packages.put(packageName, classes);
+                }
+                classes.add(className);
+            }
+            final List<List<String>> groups = new ArrayList<List<String>>(packages.values());
+            Collections.sort(groups, new Comparator<List<String>>() {
+
+                @Override
+                public int compare(List<String> o1, List<String> o2) {
+                    return o2.size() - o1.size();
+                }
+            });
+            final List<List<String>> result = emptyShards(shardCount);
+            final long[] loads = new long[shardCount];
+            for (final List<String> group : groups) {
+                final int index = lightest(loads);
+                result.get(index).addAll(group);
+                loads[index] += group.size();
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "by package";
+        }
+    };
+
+    /**
+     * Balances shards according to the durations of test classes recorded by
+     * {@link JkUnit} on previous runs, as {@link #byDuration(Map)} does. This
+     * requires a cache directory to be set on the {@link JkUnit}, otherwise
+     * or if no duration has been recorded yet, classes are distributed as
+     * {@link #ROUND_ROBIN} does.
+     *
+     * @see JkUnit#withCacheDir(java.io.File)
+     */
+    public static final JkTestDistribution BY_RECORDED_DURATION = new JkTestDistribution() {
+
+        @Override
+        public List<List<String>> split(List<String> classNames, int shardCount) {
+            return ROUND_ROBIN.split(classNames, shardCount);
+        }
+
+        @Override
+        public String toString() {
+            return "by recorded duration";
+        }
+    };
+
+    /**
+     * Returns a distribution balancing shards according the specified durations
+     * (in any unit) of test classes, typically measured on a previous run. The
+     * longest classes are dealt first, each one to the shard having the
+     * smallest cumulated duration. Classes with no known duration are
+     * considered to last the average known duration.
+     */
+    public static JkTestDistribution byDuration(final Map<String, Long> durations) {
+        return new JkTestDistribution() {
+
+            @Override
+            public List<List<String>> split(List<String> classNames, int shardCount) {
+                final Map<String, Long> estimates = estimates(classNames, durations);
+                final List<String> sorted = new ArrayList<String>(classNames);
+                Collections.sort(sorted, new Comparator<String>() {
+
+                    @Override
+                    public int compare(String o1, String o2) {
+                        return estimates.get(o2).compareTo(estimates.get(o1));
+                    }
+                });
+                final List<List<String>> result = emptyShards(shardCount);
+                final long[] loads = new long[shardCount];
+                for (final String className : sorted) {
+                    final int index = lightest(loads);
+                    result.get(index).add(className);
+                    loads[index] += estimates.get(className);
+                }
+                return result;
+            }
+
+            @Override
+            public String toString() {
+                return "by duration";
+            }
+        };
+    }
+
+    /**
+     * Splits the specified test class names in at most <code>shardCount</code>
+     * lists. The returned lists may be empty. Each class name must appear in
+     * exactly one list.
+     */
+    public abstract List<List<String>> split(List<String> classNames, int shardCount);
+
+    private static List<List<String>> emptyShards(int shardCount) {
+        final List<List<String>> result = new ArrayList<List<String>>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            result.add(new ArrayList<String>());
+        }
+        return result;
+    }
+
+    private static int lightest(long[] loads) {
+        int result = 0;
+        for (int i = 1; i < loads.length; i++) {
+            if (loads[i] < loads[result]) {
+                result = i;
+            }
+        }
+        return result;
+    }
+
+    private static String packageName(String className) {
+        final int index = className.lastIndexOf('.');
+        return index < 0 ? "" : className.substring(0, index);
+    }
+
+    private static Map<String, Long> estimates(List<String> classNames,
+            Map<String, Long> durations) {
+        long total = 0;
+        int count = 0;
+        for (final String className : classNames) {
+            final Long duration = durations.get(className);
+            if (duration != null) {
+                total += duration;
+                count++;
+            }
+        }
+        final long average = count == 0 ? 1 : Math.max(1, total / count);
+        final Map<String, Long> result = new HashMap<String, Long>();
+        for (final String className : classNames) {
+            final Long duration = durations.get(className);
+            result.put(className, duration == null ? average : duration);
+        }
+        return result;
+    }
+
+}
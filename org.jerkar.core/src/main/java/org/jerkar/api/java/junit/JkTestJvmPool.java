@@ -0,0 +1,416 @@
+package org.jerkar.api.java.junit;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.jerkar.api.java.JkClasspath;
+import org.jerkar.api.java.JkJavaProcess;
+import org.jerkar.api.system.JkLocator;
+import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsSystem;
+
+/**
+ * A pool of JVMs started once and reused to run forked tests, so test runs do
+ * not pay for the JVM startup and for loading the libraries they use.
+ * <p>
+ * JVMs are pooled per {@link JkJavaProcess} settings (JVM options, agents,
+ * working directory...) and per jar files of the classpath. Jar files are
+ * loaded by the system class loader of the JVM while directories of the
+ * classpath are loaded in a fresh class loader for each run, and system
+ * properties are restored after each run. So state held by the classes of
+ * the tested project does not leak from a run to another, but static state
+ * held by libraries does.
+ * <p>
+ * A JVM is checked to be alive, responsive and to have its jar files
+ * unchanged before being reused. The pool holds at most a given number of
+ * JVMs : when they are all busy, extra JVMs are started and stopped after
+ * use. JVMs exit by themselves when the process owning the pool dies but
+ * the pool should be closed as soon as it is not needed anymore.
+ *
+ * @author Jerome Angibaud
+ */
+public final class JkTestJvmPool {
+
+    private static final int CONNECTION_TIMEOUT_IN_MILLIS = 60000;
+
+    private static final int PING_TIMEOUT_IN_MILLIS = 5000;
+
+    private static JkTestJvmPool shared;
+
+    private final int maxSize;
+
+    private final Map<JkJavaProcess, LinkedList<Worker>> idleWorkers =
+            new HashMap<JkJavaProcess, LinkedList<Worker>>();
+
+    private int size;
+
+    private boolean closed;
+
+    private JkTestJvmPool(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Creates a pool holding at most the specified number of JVMs.
+     */
+    public static JkTestJvmPool of(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1, was " + maxSize);
+        }
+        return new JkTestJvmPool(maxSize);
+    }
+
+    /**
+     * Returns a pool shared by all the builds run in this JVM, holding at most
+     * one JVM per available processor. It is closed when this JVM exits if
+     * {@link #closeShared()} has not been invoked before.
+     */
+    public static synchronized JkTestJvmPool shared() {
+        if (shared == null) {
+            final JkTestJvmPool pool = of(Runtime.getRuntime().availableProcessors());
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+
+                @Override
+                public void run() {
+                    pool.close();
+                }
+            });
+            shared = pool;
+        }
+        return shared;
+    }
+
+    /**
+     * Closes the shared pool, if it has been created.
+     */
+    public static synchronized void closeShared() {
+        if (shared != null) {
+            shared.close();
+            shared = null;
+        }
+    }
+
+    /**
+     * Returns the number of running JVMs of this pool, idle or not.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Stops the idle JVMs of this pool now, and the busy ones as soon as they
+     * are done. The pool can't be used anymore afterward.
+     */
+    public void close() {
+        final List<Worker> workers = new LinkedList<Worker>();
+        synchronized (this) {
+            closed = true;
+            for (final LinkedList<Worker> idles : idleWorkers.values()) {
+                workers.addAll(idles);
+            }
+            idleWorkers.clear();
+            size -= workers.size();
+        }
+        for (final Worker worker : workers) {
+            worker.destroy();
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "JVM pool of " + size + "/" + maxSize + " JVMs";
+    }
+
+    /*
+     * Runs JUnit4TestExecutor with the specified arguments in a JVM of this pool matching the
+     * specified process. An IllegalStateException is thrown if the JVM terminates abnormally.
+     */
+    void run(JkJavaProcess process, String[] executorArgs) {
+        final List<File> jars = new LinkedList<File>();
+        final List<File> dirs = new LinkedList<File>();
+        final File jerkarJar = JkLocator.jerkarJarFile();
+        for (final File entry : process.classpath()) {
+            if (entry.isDirectory() && !entry.equals(jerkarJar)) {
+                dirs.add(entry);
+            } else {
+                jars.add(entry);
+            }
+        }
+        final Worker worker = borrow(process.withClasspath(jars));
+        boolean reusable = false;
+        try {
+            worker.run(JkClasspath.of(dirs).toString(), executorArgs);
+            reusable = true;
+        } finally {
+            release(worker, reusable);
+        }
+    }
+
+    private Worker borrow(JkJavaProcess key) {
+        Worker worker = pollIdle(key);
+        while (worker != null) {
+            if (worker.isHealthy()) {
+                return worker;
+            }
+            JkLog.trace("Test JVM " + worker + " is not reusable anymore, discard it.");
+            release(worker, false);
+            worker = pollIdle(key);
+        }
+        final boolean pooled = reserve();
+        try {
+            return Worker.start(key, pooled);
+        } catch (final RuntimeException e) {
+            if (pooled) {
+                synchronized (this) {
+                    size--;
+                }
+            }
+            throw e;
+        }
+    }
+
+    private synchronized Worker pollIdle(JkJavaProcess key) {
+        if (closed) {
+            throw new IllegalStateException("Test JVM pool is closed.");
+        }
+        final LinkedList<Worker> idles = idleWorkers.get(key);
+        return idles == null || idles.isEmpty() ? null : idles.removeFirst();
+    }
+
+    /*
+     * Returns true if a new JVM can be part of the pool, stopping an idle JVM dedicated to other
+     * settings if the pool is full.
+     */
+    private synchronized boolean reserve() {
+        if (size >= maxSize) {
+            final Worker evicted = pollAnyIdle();
+            if (evicted == null) {
+                return false;
+            }
+            evicted.destroy();
+            size--;
+        }
+        size++;
+        return true;
+    }
+
+    private Worker pollAnyIdle() {
+        for (final Iterator<LinkedList<Worker>> it = idleWorkers.values().iterator(); it
+                .hasNext();) {
+            final LinkedList<Worker> idles = it.next();
+            if (!idles.isEmpty()) {
+                return idles.removeFirst();
+            }
+            it.remove();
+        }
+        return null;
+    }
+
+    private void release(Worker worker, boolean reusable) {
+        synchronized (this) {
+            if (reusable && worker.pooled && !closed) {
+                LinkedList<Worker> idles = idleWorkers.get(worker.key);
+                if (idles == null) {
+                    idles = new LinkedList<Worker>();
+                    idleWorkers.put(worker.key, idles);
+                }
+                idles.addLast(worker);
+                return;
+            }
+            if (worker.pooled) {
+                size--;
+            }
+        }
+        worker.destroy();
+    }
+
+    private static final class Worker {
+
+        private final JkJavaProcess key;
+
+        private final boolean pooled;
+
+        private final Process process;
+
+        private final Socket socket;
+
+        private final ObjectOutputStream out;
+
+        private final ObjectInputStream in;
+
+        private final String jarStamp;
+
+        private Worker(JkJavaProcess key, boolean pooled, Process process, Socket socket)
+                throws IOException {
+            this.key = key;
+            this.pooled = pooled;
+            this.process = process;
+            this.socket = socket;
+            this.out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            this.out.flush();
+            this.in = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.jarStamp = jarStamp(key.classpath());
+        }
+
+        static Worker start(JkJavaProcess key, boolean pooled) {
+            final ServerSocket serverSocket;
+            try {
+                serverSocket = new ServerSocket(0, 1, InetAddress.getByName(null));
+                serverSocket.setSoTimeout(CONNECTION_TIMEOUT_IN_MILLIS);
+            } catch (final IOException e) {
+                throw new RuntimeException(e);
+            }
+            Process process = null;
+            try {
+                JkLog.trace("Start a test JVM with classpath " + key.classpath());
+                process = key.startClass(JUnit4TestWorker.class.getName(),
+                        Integer.toString(serverSocket.getLocalPort()));
+                pumpOutput(process);
+                return new Worker(key, pooled, process, serverSocket.accept());
+            } catch (final SocketTimeoutException e) {
+                process.destroy();
+                throw new IllegalStateException("Test JVM did not connect within "
+                        + CONNECTION_TIMEOUT_IN_MILLIS + " ms.", e);
+            } catch (final IOException e) {
+                if (process != null) {
+                    process.destroy();
+                }
+                throw new RuntimeException(e);
+            } finally {
+                try {
+                    serverSocket.close();
+                } catch (final IOException e) {
+                    // Nothing left to do with the socket
+                }
+            }
+        }
+
+        boolean isHealthy() {
+            try {
+                process.exitValue();
+                return false;
+            } catch (final IllegalThreadStateException e) {
+                // Still running
+            }
+            if (!jarStamp.equals(jarStamp(key.classpath()))) {
+                return false;
+            }
+            try {
+                socket.setSoTimeout(PING_TIMEOUT_IN_MILLIS);
+                return JUnit4TestWorker.PING.equals(send(new String[] { JUnit4TestWorker.PING }));
+            } catch (final IOException e) {
+                return false;
+            }
+        }
+
+        void run(String classpath, String[] executorArgs) {
+            final String[] request = new String[executorArgs.length + 2];
+            request[0] = JUnit4TestWorker.RUN;
+            request[1] = classpath;
+            System.arraycopy(executorArgs, 0, request, 2, executorArgs.length);
+            final String reply;
+            try {
+                socket.setSoTimeout(0);
+                reply = send(request);
+            } catch (final IOException e) {
+                throw new IllegalStateException("Test JVM terminated in error : exit value = "
+                        + exitValue() + ".", e);
+            }
+            if (reply.startsWith(JUnit4TestWorker.ERROR_PREFIX)) {
+                throw new IllegalStateException("Test JVM failed to run tests : "
+                        + reply.substring(JUnit4TestWorker.ERROR_PREFIX.length()));
+            }
+        }
+
+        void destroy() {
+            try {
+                socket.close();
+            } catch (final IOException e) {
+                // Nothing left to do with the socket
+            }
+            process.destroy();
+        }
+
+        @Override
+        public String toString() {
+            return "on port " + socket.getLocalPort();
+        }
+
+        private String send(String[] request) throws IOException {
+            out.writeObject(request);
+            out.reset();
+            out.flush();
+            try {
+                return (String) in.readObject();
+            } catch (final ClassNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /*
+         * The connection being lost, the JVM is expected to be dead or dying. It is killed if
+         * still alive after a few seconds.
+         */
+        private int exitValue() {
+            for (int i = 0; i < 50; i++) {
+                try {
+                    return process.exitValue();
+                } catch (final IllegalThreadStateException e) {
+                    JkUtilsSystem.sleep(100);
+                }
+            }
+            process.destroy();
+            return -1;
+        }
+
+        private static String jarStamp(Iterable<File> jars) {
+            final StringBuilder builder = new StringBuilder();
+            for (final File jar : jars) {
+                builder.append(jar.length()).append(':').append(jar.lastModified()).append(';');
+            }
+            return builder.toString();
+        }
+
+        /*
+         * Copies the output of the JVM to the log as long as the JVM runs. The thread is a daemon
+         * so it does not prevent this process to exit.
+         */
+        private static void pumpOutput(final Process process) {
+            final Thread thread = new Thread("test-jvm-output") {
+
+                @Override
+                public void run() {
+                    final BufferedReader reader = new BufferedReader(new InputStreamReader(
+                            process.getInputStream()));
+                    try {
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            JkLog.infoStream().println(line);
+                        }
+                    } catch (final IOException e) {
+                        // The process has been destroyed
+                    }
+                }
+            };
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+    }
+
+}
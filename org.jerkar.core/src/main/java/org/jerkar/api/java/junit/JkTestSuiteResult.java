@@ -20,16 +20,26 @@ public class JkTestSuiteResult implements Serializable {
     private final int ignoreCount;
     private final long durationInMilis;
     private final Properties systemProperties;
+    private final List<TestClassResult> testClassResults;
 
+    @SuppressWarnings("unchecked")
     public JkTestSuiteResult(Properties properties, String suiteName, int totaltestCount,
             int ignoreCount, Iterable<? extends TestCaseResult> testCaseResult,
             long durationInMillis) {
+        this(properties, suiteName, totaltestCount, ignoreCount, testCaseResult,
+                durationInMillis, Collections.EMPTY_LIST);
+    }
+
+    public JkTestSuiteResult(Properties properties, String suiteName, int totaltestCount,
+            int ignoreCount, Iterable<? extends TestCaseResult> testCaseResult,
+            long durationInMillis, Iterable<TestClassResult> testClassResults) {
         this.systemProperties = properties;
         this.suiteName = suiteName;
         this.runCount = totaltestCount;
         this.ignoreCount = ignoreCount;
         this.testCaseResults = JkUtilsIterable.listOf(testCaseResult);
         this.durationInMilis = durationInMillis;
+        this.testClassResults = JkUtilsIterable.listOf(testClassResults);
     }
 
     @SuppressWarnings("unchecked")
@@ -38,10 +48,38 @@ public class JkTestSuiteResult implements Serializable {
                 durationInMillis);
     }
 
+    /**
+     * Returns a result aggregating the specified ones, as the results of test
+     * classes run in distinct processes.
+     */
+    public static JkTestSuiteResult merge(Properties properties, String name,
+            Iterable<JkTestSuiteResult> results, long durationInMillis) {
+        int runCount = 0;
+        int ignoreCount = 0;
+        final List<TestCaseResult> testCaseResults = new ArrayList<TestCaseResult>();
+        final List<TestClassResult> testClassResults = new ArrayList<TestClassResult>();
+        for (final JkTestSuiteResult result : results) {
+            runCount += result.runCount;
+            ignoreCount += result.ignoreCount;
+            testCaseResults.addAll(result.testCaseResults);
+            testClassResults.addAll(result.testClassResults);
+        }
+        return new JkTestSuiteResult(properties, name, runCount, ignoreCount, testCaseResults,
+                durationInMillis, testClassResults);
+    }
+
     public List<? extends TestCaseResult> testCaseResults() {
         return testCaseResults;
     }
 
+    /**
+     * Returns a summary of the result of each test class. It may be empty if the
+     * test runner does not provide per class results (as JUnit 3 runner).
+     */
+    public List<TestClassResult> testClassResults() {
+        return testClassResults;
+    }
+
     public List<TestCaseFailure> failures() {
         final List<TestCaseFailure> result = new LinkedList<JkTestSuiteResult.TestCaseFailure>();
         for (final TestCaseResult caseResult : this.testCaseResults) {
@@ -143,6 +181,50 @@ public class JkTestSuiteResult implements Serializable {
 
     }
 
+    /**
+     * Summary of the result of all the tests of a test class.
+     */
+    public static class TestClassResult implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String className;
+        private final int runCount;
+        private final int ignoreCount;
+        private final int failureCount;
+        private final long durationInMillis;
+
+        public TestClassResult(String className, int runCount, int ignoreCount,
+                int failureCount, long durationInMillis) {
+            this.className = className;
+            this.runCount = runCount;
+            this.ignoreCount = ignoreCount;
+            this.failureCount = failureCount;
+            this.durationInMillis = durationInMillis;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public int getRunCount() {
+            return runCount;
+        }
+
+        public int getIgnoreCount() {
+            return ignoreCount;
+        }
+
+        public int getFailureCount() {
+            return failureCount;
+        }
+
+        public long getDurationInMillis() {
+            return durationInMillis;
+        }
+
+    }
+
     public static class TestCaseFailure extends TestCaseResult implements Serializable {
 
         private static final long serialVersionUID = 7089021299483181605L;
@@ -262,7 +344,7 @@ public class JkTestSuiteResult implements Serializable {
     }
 
     static JkTestSuiteResult fromJunit4Result(Properties properties, String suiteName,
-            Object result, long durationInMillis) {
+            Object result, long durationInMillis, Iterable<TestClassResult> testClassResults) {
         final Integer runCount = JkUtilsReflect.invoke(result, "getRunCount");
         final Integer ignoreCount = JkUtilsReflect.invoke(result, "getIgnoreCount");
         final List<Object> junitFailures = JkUtilsReflect.invoke(result, "getFailures");
@@ -272,7 +354,7 @@ public class JkTestSuiteResult implements Serializable {
             failures.add(fromJunit4Failure(junitFailure));
         }
         return new JkTestSuiteResult(properties, suiteName, runCount, ignoreCount, failures,
-                durationInMillis);
+                durationInMillis, testClassResults);
 
     }
 
@@ -2,6 +2,7 @@ package org.jerkar.api.java.junit;
 
 import java.io.File;
 import java.lang.annotation.Annotation;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
@@ -10,10 +11,13 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 import org.jerkar.api.file.JkFileTree;
 import org.jerkar.api.file.JkFileTreeSet;
@@ -21,9 +25,11 @@ import org.jerkar.api.java.JkClassLoader;
 import org.jerkar.api.java.JkClasspath;
 import org.jerkar.api.java.JkJavaProcess;
 import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsFile;
 import org.jerkar.api.utils.JkUtilsIterable;
 import org.jerkar.api.utils.JkUtilsReflect;
 import org.jerkar.api.utils.JkUtilsString;
+import org.jerkar.api.utils.JkUtilsTime;
 
 /**
  * Convenient class to launch Junit tests.
@@ -59,6 +65,8 @@ public final class JkUnit {
 
     private static final String JUNIT3_TEST_RESULT_CLASS_NAME = "junit.framework.TestResult";
 
+    private static final int DEFAULT_REPORT_OUTPUT_LIMIT = 1024 * 1024;
+
     public static interface Enhancer {
 
         JkUnit enhance(JkUnit jkUnit);
@@ -81,9 +89,30 @@ public final class JkUnit {
 
     private final boolean printOutputOnConsole;
 
+    private final int forkCount;
+
+    private final JkTestDistribution distribution;
+
+    private final File cacheDir;
+
+    private final boolean forcedRun;
+
+    private final boolean impactAnalysis;
+
+    private final long testTimeout;
+
+    private final JkTestJvmPool jvmPool;
+
+    private final int threadCount;
+
+    private final int reportOutputLimit;
+
     private JkUnit(JkClasspath classpath, JunitReportDetail reportDetail, File reportDir,
             JkJavaProcess fork, List<Runnable> runnables, JkFileTreeSet testClasses,
-            boolean crashOnFailed, boolean printOutputOnConsole) {
+            boolean crashOnFailed, boolean printOutputOnConsole, int forkCount,
+            JkTestDistribution distribution, File cacheDir, boolean forcedRun,
+            boolean impactAnalysis, long testTimeout, JkTestJvmPool jvmPool, int threadCount,
+            int reportOutputLimit) {
         this.classpath = classpath;
         this.reportDetail = reportDetail;
         this.reportDir = reportDir;
@@ -92,19 +121,32 @@ public final class JkUnit {
         this.classesToTest = testClasses;
         this.breakOnFailure = crashOnFailed;
         this.printOutputOnConsole = printOutputOnConsole;
+        this.forkCount = forkCount;
+        this.distribution = distribution;
+        this.cacheDir = cacheDir;
+        this.forcedRun = forcedRun;
+        this.impactAnalysis = impactAnalysis;
+        this.testTimeout = testTimeout;
+        this.jvmPool = jvmPool;
+        this.threadCount = threadCount;
+        this.reportOutputLimit = reportOutputLimit;
     }
 
     @SuppressWarnings("unchecked")
     private JkUnit(JkClasspath classpath, JunitReportDetail reportDetail, File reportDir,
             JkJavaProcess fork, JkFileTreeSet testClasses, boolean crashOnFailed,
-            boolean printOutputOnConsole) {
+            boolean printOutputOnConsole, int forkCount, JkTestDistribution distribution,
+            File cacheDir, boolean forcedRun, boolean impactAnalysis, long testTimeout,
+            JkTestJvmPool jvmPool, int threadCount, int reportOutputLimit) {
         this(classpath, reportDetail, reportDir, fork, Collections.EMPTY_LIST, testClasses,
-                crashOnFailed, printOutputOnConsole);
+                crashOnFailed, printOutputOnConsole, forkCount, distribution, cacheDir,
+                forcedRun, impactAnalysis, testTimeout, jvmPool, threadCount, reportOutputLimit);
     }
 
     public static JkUnit ofFork(JkJavaProcess jkJavaProcess) {
         return new JkUnit(null, JunitReportDetail.NONE, null, jkJavaProcess, JkFileTreeSet.empty(),
-                true, true);
+                true, true, 1, JkTestDistribution.BY_RECORDED_DURATION, null, false, false, 0,
+                null, 1, DEFAULT_REPORT_OUTPUT_LIMIT);
     }
 
     public static JkUnit ofFork(JkClasspath classpath) {
@@ -117,35 +159,51 @@ public final class JkUnit {
 
     public static JkUnit of(JkClasspath classpath) {
         return new JkUnit(classpath, JunitReportDetail.NONE, null, null, JkFileTreeSet.empty(),
-                true, true);
+                true, true, 1, JkTestDistribution.BY_RECORDED_DURATION, null, false, false, 0,
+                null, 1, DEFAULT_REPORT_OUTPUT_LIMIT);
     }
 
     public JkUnit withReport(JunitReportDetail reportDetail) {
         return new JkUnit(this.classpath, reportDetail, reportDir, this.forkedProcess,
-                classesToTest, this.breakOnFailure, this.printOutputOnConsole);
+                classesToTest, this.breakOnFailure, this.printOutputOnConsole,
+                this.forkCount, this.distribution, this.cacheDir, this.forcedRun,
+                this.impactAnalysis, this.testTimeout,
+                this.jvmPool, this.threadCount, this.reportOutputLimit);
     }
 
     public JkUnit withBreakOnFailure(boolean crashOnFailure) {
         return new JkUnit(this.classpath, reportDetail, reportDir, this.forkedProcess,
-                classesToTest, this.breakOnFailure, this.printOutputOnConsole);
+                classesToTest, crashOnFailure, this.printOutputOnConsole,
+                this.forkCount, this.distribution, this.cacheDir, this.forcedRun,
+                this.impactAnalysis, this.testTimeout,
+                this.jvmPool, this.threadCount, this.reportOutputLimit);
     }
 
     public JkUnit withReportDir(File reportDir) {
         return new JkUnit(this.classpath, reportDetail, reportDir, this.forkedProcess,
-                classesToTest, this.breakOnFailure, this.printOutputOnConsole);
+                classesToTest, this.breakOnFailure, this.printOutputOnConsole,
+                this.forkCount, this.distribution, this.cacheDir, this.forcedRun,
+                this.impactAnalysis, this.testTimeout,
+                this.jvmPool, this.threadCount, this.reportOutputLimit);
     }
 
     public JkUnit forkKeepingSameClassPath(JkJavaProcess process) {
         final JkJavaProcess fork = process.withClasspath(jkClasspath());
         return new JkUnit(null, reportDetail, reportDir, fork, this.classesToTest,
-                this.breakOnFailure, this.printOutputOnConsole);
+                this.breakOnFailure, this.printOutputOnConsole,
+                this.forkCount, this.distribution, this.cacheDir, this.forcedRun,
+                this.impactAnalysis, this.testTimeout,
+                this.jvmPool, this.threadCount, this.reportOutputLimit);
     }
 
     public JkUnit withPostAction(Runnable runnable) {
         final List<Runnable> list = new LinkedList<Runnable>(this.postActions);
         list.add(runnable);
         return new JkUnit(classpath, reportDetail, reportDir, forkedProcess, list,
-                this.classesToTest, this.breakOnFailure, this.printOutputOnConsole);
+                this.classesToTest, this.breakOnFailure, this.printOutputOnConsole,
+                this.forkCount, this.distribution, this.cacheDir, this.forcedRun,
+                this.impactAnalysis, this.testTimeout,
+                this.jvmPool, this.threadCount, this.reportOutputLimit);
     }
 
     public JkUnit enhancedWith(Enhancer enhancer) {
@@ -170,7 +228,10 @@ public final class JkUnit {
         final JkJavaProcess effectiveProcess = appendClasspath ? process
                 .andClasspath(this.classpath) : process;
                 return new JkUnit(null, reportDetail, reportDir, effectiveProcess, this.classesToTest,
-                        this.breakOnFailure, this.printOutputOnConsole);
+                        this.breakOnFailure, this.printOutputOnConsole,
+                        this.forkCount, this.distribution, this.cacheDir, this.forcedRun,
+                this.impactAnalysis, this.testTimeout,
+                this.jvmPool, this.threadCount, this.reportOutputLimit);
     }
 
     /**
@@ -184,7 +245,10 @@ public final class JkUnit {
         }
         if (!fork && forked()) {
             return new JkUnit(forkedProcess.classpath(), reportDetail, reportDir, null,
-                    this.classesToTest, this.breakOnFailure, this.printOutputOnConsole);
+                    this.classesToTest, this.breakOnFailure, this.printOutputOnConsole,
+                    this.forkCount, this.distribution, this.cacheDir, this.forcedRun,
+                this.impactAnalysis, this.testTimeout,
+                this.jvmPool, this.threadCount, this.reportOutputLimit);
         }
         return this;
     }
@@ -200,22 +264,175 @@ public final class JkUnit {
 
     public JkUnit withClassesToTest(JkFileTreeSet classesToTest) {
         return new JkUnit(this.classpath, reportDetail, reportDir, forkedProcess, classesToTest,
-                this.breakOnFailure, this.printOutputOnConsole);
+                this.breakOnFailure, this.printOutputOnConsole,
+                this.forkCount, this.distribution, this.cacheDir, this.forcedRun,
+                this.impactAnalysis, this.testTimeout,
+                this.jvmPool, this.threadCount, this.reportOutputLimit);
     }
 
     public JkUnit withOutputOnConsole(boolean outputOnConsole) {
         return new JkUnit(this.classpath, reportDetail, reportDir, forkedProcess, classesToTest,
-                this.breakOnFailure, outputOnConsole);
+                this.breakOnFailure, outputOnConsole,
+                this.forkCount, this.distribution, this.cacheDir, this.forcedRun,
+                this.impactAnalysis, this.testTimeout,
+                this.jvmPool, this.threadCount, this.reportOutputLimit);
     }
 
     public JkUnit withClassesToTest(JkFileTree classesToTest) {
         return new JkUnit(this.classpath, reportDetail, reportDir, forkedProcess,
-                JkFileTreeSet.of(classesToTest), this.breakOnFailure, this.printOutputOnConsole);
+                JkFileTreeSet.of(classesToTest), this.breakOnFailure, this.printOutputOnConsole,
+                this.forkCount, this.distribution, this.cacheDir, this.forcedRun,
+                this.impactAnalysis, this.testTimeout,
+                this.jvmPool, this.threadCount, this.reportOutputLimit);
     }
 
     public JkUnit withClassesToTest(File... classDirs) {
         return new JkUnit(this.classpath, reportDetail, reportDir, forkedProcess,
-                JkFileTreeSet.of(classDirs), this.breakOnFailure, this.printOutputOnConsole);
+                JkFileTreeSet.of(classDirs), this.breakOnFailure, this.printOutputOnConsole,
+                this.forkCount, this.distribution, this.cacheDir, this.forcedRun,
+                this.impactAnalysis, this.testTimeout,
+                this.jvmPool, this.threadCount, this.reportOutputLimit);
+    }
+
+    /**
+     * Creates an identical JkUnit to this one but running tests in the
+     * specified number of concurrent forked processes, when forked. Test
+     * classes are distributed among processes according the specified
+     * distribution and the results of all processes are merged in a single
+     * one.
+     */
+    public JkUnit withForkCount(int forkCount, JkTestDistribution distribution) {
+        if (forkCount < 1) {
+            throw new IllegalArgumentException("Fork count must be at least 1, was " + forkCount
+                    + ".");
+        }
+        return new JkUnit(this.classpath, reportDetail, reportDir, forkedProcess, postActions,
+                classesToTest, this.breakOnFailure, this.printOutputOnConsole, forkCount,
+                distribution, this.cacheDir, this.forcedRun,
+                this.impactAnalysis, this.testTimeout,
+                this.jvmPool, this.threadCount, this.reportOutputLimit);
+    }
+
+    /**
+     * Same as {@link #withForkCount(int, JkTestDistribution)} but keeping the
+     * current distribution, which is {@link JkTestDistribution#BY_RECORDED_DURATION}
+     * by default.
+     */
+    public JkUnit withForkCount(int forkCount) {
+        return withForkCount(forkCount, this.distribution);
+    }
+
+    /**
+     * Creates an identical JkUnit to this one but storing in the specified
+     * directory data that speeds up next runs : the description of the
+     * scanned test class files and the result of the test classes that
+     * passed. A test class that passed is not run again as long as its class
+     * files, the classpath content and the JVM options are unchanged : its
+     * previous result is replayed instead.
+     *
+     * @see #withForcedRun(boolean)
+     */
+    public JkUnit withCacheDir(File cacheDir) {
+        return new JkUnit(this.classpath, reportDetail, reportDir, forkedProcess, postActions,
+                classesToTest, this.breakOnFailure, this.printOutputOnConsole, this.forkCount,
+                this.distribution, cacheDir, this.forcedRun, this.impactAnalysis, this.testTimeout,
+                this.jvmPool, this.threadCount, this.reportOutputLimit);
+    }
+
+    /**
+     * Creates an identical JkUnit to this one but, if <code>true</code>,
+     * running all test classes, even those whose result is known from a
+     * previous run.
+     *
+     * @see #withCacheDir(File)
+     */
+    public JkUnit withForcedRun(boolean forcedRun) {
+        return new JkUnit(this.classpath, reportDetail, reportDir, forkedProcess, postActions,
+                classesToTest, this.breakOnFailure, this.printOutputOnConsole, this.forkCount,
+                this.distribution, this.cacheDir, forcedRun, this.impactAnalysis, this.testTimeout,
+                this.jvmPool, this.threadCount, this.reportOutputLimit);
+    }
+
+    /**
+     * Creates an identical JkUnit to this one but, if <code>true</code>,
+     * narrowing the classes a test class result depends on to the ones it
+     * references, transitively, in its bytecode. So a test class that passed
+     * is run again only if one of these classes changed, or if a jar or a
+     * resource file of the classpath changed. It takes effect only if a cache
+     * directory is defined.<br/>
+     * Beware that classes only reached through reflection are ignored, so
+     * tests depending on such classes may not be run when they should.
+     *
+     * @see #withCacheDir(File)
+     */
+    public JkUnit withImpactAnalysis(boolean impactAnalysis) {
+        return new JkUnit(this.classpath, reportDetail, reportDir, forkedProcess, postActions,
+                classesToTest, this.breakOnFailure, this.printOutputOnConsole, this.forkCount,
+                this.distribution, this.cacheDir, this.forcedRun, impactAnalysis,
+                this.testTimeout, this.jvmPool, this.threadCount, this.reportOutputLimit);
+    }
+
+    /**
+     * Creates an identical JkUnit to this one but failing any test lasting
+     * more than the specified duration. It applies only to forked tests : on
+     * timeout, a dump of the threads of the forked process is written in the
+     * report directory, then the process is killed and the test classes not
+     * run yet are run in a new process. <code>0</code> means no timeout.
+     */
+    public JkUnit withTestTimeout(long millis) {
+        return new JkUnit(this.classpath, reportDetail, reportDir, forkedProcess, postActions,
+                classesToTest, this.breakOnFailure, this.printOutputOnConsole, this.forkCount,
+                this.distribution, this.cacheDir, this.forcedRun, this.impactAnalysis, millis,
+                this.jvmPool, this.threadCount, this.reportOutputLimit);
+    }
+
+    /**
+     * Creates an identical JkUnit to this one but running forked tests in JVMs
+     * borrowed from the specified pool instead of starting a new JVM each
+     * time. <code>null</code> means no pool.
+     *
+     * @see JkTestJvmPool
+     */
+    public JkUnit withJvmPool(JkTestJvmPool jvmPool) {
+        return new JkUnit(this.classpath, reportDetail, reportDir, forkedProcess, postActions,
+                classesToTest, this.breakOnFailure, this.printOutputOnConsole, this.forkCount,
+                this.distribution, this.cacheDir, this.forcedRun, this.impactAnalysis,
+                this.testTimeout, jvmPool, this.threadCount, this.reportOutputLimit);
+    }
+
+    /**
+     * Creates an identical JkUnit to this one but running up to the specified
+     * number of test classes concurrently in each JVM running tests, forked or
+     * not. Each test class runs on its own, so its result and report are not
+     * mixed with the others, and its output is captured then printed in a
+     * single block when it ends.<br/>
+     * Test classes annotated with an annotation named <code>NotThreadSafe</code>
+     * (whatever its package, but with a runtime retention) run after the
+     * others, one at a time.
+     */
+    public JkUnit withThreadCount(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1, was "
+                    + threadCount + ".");
+        }
+        return new JkUnit(this.classpath, reportDetail, reportDir, forkedProcess, postActions,
+                classesToTest, this.breakOnFailure, this.printOutputOnConsole, this.forkCount,
+                this.distribution, this.cacheDir, this.forcedRun, this.impactAnalysis,
+                this.testTimeout, this.jvmPool, threadCount, this.reportOutputLimit);
+    }
+
+    /**
+     * Creates an identical JkUnit to this one but keeping at most the
+     * specified number of bytes of the output of each test class, per stream,
+     * in {@link JunitReportDetail#FULL} reports. When a class prints more, the
+     * head and the tail of its output are kept. <code>0</code> means output is
+     * not included in reports. It is 1 MB by default.
+     */
+    public JkUnit withReportOutputLimit(int bytes) {
+        return new JkUnit(this.classpath, reportDetail, reportDir, forkedProcess, postActions,
+                classesToTest, this.breakOnFailure, this.printOutputOnConsole, this.forkCount,
+                this.distribution, this.cacheDir, this.forcedRun, this.impactAnalysis,
+                this.testTimeout, this.jvmPool, this.threadCount, bytes);
     }
 
     public boolean forked() {
@@ -238,28 +455,101 @@ public final class JkUnit {
         return forkedProcess;
     }
 
+    public int forkCount() {
+        return forkCount;
+    }
+
+    public int threadCount() {
+        return threadCount;
+    }
+
     @SuppressWarnings({ "rawtypes", "unchecked" })
     public JkTestSuiteResult run() {
-        final Collection<Class> classes = getClassesToTest();
-        final String name = getSuiteName(classes);
+        final TestClassScanner scanner = new TestClassScanner(this.classesToTest,
+                cacheFile("test-classes.ser"));
+        final Collection<Class> allClasses = getClassesToTest(scanner);
+        final String name = getSuiteName(allClasses);
 
-        if (!classes.iterator().hasNext()) {
+        if (!allClasses.iterator().hasNext()) {
             JkLog.warn("No test class found.");
             return JkTestSuiteResult.empty((Properties) System.getProperties().clone(), name, 0);
         }
         final long start = System.nanoTime();
-        final JkClassLoader classLoader = JkClassLoader.of(classes.iterator().next());
+        final TestResultCache resultCache = resultCache(scanner, allClasses);
+        final List<Class> classes = new LinkedList<Class>();
+        final List<String> upToDateClassNames = new LinkedList<String>();
+        for (final Class clazz : allClasses) {
+            if (resultCache != null && !forcedRun && resultCache.isUpToDate(clazz.getName())) {
+                upToDateClassNames.add(clazz.getName());
+            } else {
+                classes.add(clazz);
+            }
+        }
         JkLog.startln("Run JUnit tests");
+        if (!upToDateClassNames.isEmpty()) {
+            JkLog.info(upToDateClassNames.size() + " test class(es) unchanged since they passed,"
+                    + " skip them.");
+        }
 
-        final JkTestSuiteResult result;
+        final TestDurationHistory durationHistory = new TestDurationHistory(
+                cacheFile("test-durations.ser"));
+        JkTestSuiteResult result = runClasses(classes, name, start, durationHistory);
+        reportDurations(result, durationHistory);
+        if (resultCache != null) {
+            final File fullReportDir = reportDetail.equals(JunitReportDetail.FULL) ? reportDir
+                    : null;
+            resultCache.update(result, fullReportDir);
+            if (!upToDateClassNames.isEmpty()) {
+                final List<JkTestSuiteResult> results = JkUtilsIterable.listOf(result,
+                        resultCache.replay(upToDateClassNames, fullReportDir));
+                result = JkTestSuiteResult.merge(result.getSystemProperties(),
+                        result.suiteName(), results, JkUtilsTime.durationInMillis(start));
+            }
+        }
+
+        if (result.failureCount() > 0) {
+            if (breakOnFailure) {
+                JkLog.error(result.toStrings(JkLog.verbose()));
+                throw new IllegalStateException("Test failed : " + result.toString());
+            } else {
+                JkLog.warn(result.toStrings(JkLog.verbose()));
+            }
+        } else {
+            JkLog.info(result.toStrings(JkLog.verbose()));
+        }
+        if (!JkLog.verbose() && result.failureCount() > 0) {
+            JkLog.info("Launch Jerkar in verbose mode to display failure stack traces in console.");
+        }
+        if (reportDetail.equals(JunitReportDetail.BASIC)) {
+            TestReportBuilder.of(result).writeToFileSystem(reportDir);
+        }
+        for (final Runnable runnable : this.postActions) {
+            runnable.run(); // NOSONAR
+        }
+        JkLog.done("Tests run");
+        return result;
+    }
 
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private JkTestSuiteResult runClasses(List<Class> classes, String name, long start,
+            TestDurationHistory durationHistory) {
+        if (classes.isEmpty()) {
+            return JkTestSuiteResult.empty((Properties) System.getProperties().clone(), name, 0);
+        }
+        final JkClassLoader classLoader = JkClassLoader.of(classes.get(0));
+        final JkTestSuiteResult result;
         if (classLoader.isDefined(JUNIT4_RUNNER_CLASS_NAME)) {
             if (this.forkedProcess != null) {
+                final Map<String, Long> durations = durationHistory.estimates();
+                final JkTestDistribution effectiveDistribution = distribution
+                        .equals(JkTestDistribution.BY_RECORDED_DURATION) && !durations.isEmpty()
+                        ? JkTestDistribution.byDuration(durations) : distribution;
                 result = JUnit4TestLauncher.launchInFork(forkedProcess, printOutputOnConsole,
-                        reportDetail, classes, reportDir);
+                        reportDetail, classes, reportDir, forkCount, effectiveDistribution,
+                        testTimeout, jvmPool, threadCount, reportOutputLimit);
             } else {
                 result = JUnit4TestLauncher.launchInClassLoader(classes, printOutputOnConsole,
-                        reportDetail, reportDir);
+                        reportDetail, reportDir, threadCount, reportOutputLimit);
             }
         } else if (classLoader.isDefined(JUNIT3_RUNNER_CLASS_NAME)) {
             final Object suite = createJunit3TestSuite(classLoader, classes);
@@ -275,28 +565,65 @@ public final class JkUnit {
         } else {
             throw new IllegalStateException("No Junit found on test classpath.");
         }
+        return result;
+    }
 
-        if (result.failureCount() > 0) {
-            if (breakOnFailure) {
-                JkLog.error(result.toStrings(JkLog.verbose()));
-                throw new IllegalStateException("Test failed : " + result.toString());
-            } else {
-                JkLog.warn(result.toStrings(JkLog.verbose()));
+    /*
+     * Reports the slowest test classes in the report directory and the ones that regressed in the
+     * console, then records durations for next runs.
+     */
+    private void reportDurations(JkTestSuiteResult result, TestDurationHistory durationHistory) {
+        final List<String> regressions = durationHistory.regressions(result);
+        if (!regressions.isEmpty()) {
+            JkLog.warn(regressions);
+        }
+        if (reportDir != null && !reportDetail.equals(JunitReportDetail.NONE)) {
+            final List<String> lines = durationHistory.slowest(result);
+            lines.addAll(regressions);
+            if (!lines.isEmpty()) {
+                reportDir.mkdirs();
+                JkUtilsFile.writeString(new File(reportDir, "test-durations.txt"),
+                        JkUtilsString.join(lines, "\n") + "\n", false);
             }
-        } else {
-            JkLog.info(result.toStrings(JkLog.verbose()));
         }
-        if (!JkLog.verbose() && result.failureCount() > 0) {
-            JkLog.info("Launch Jerkar in verbose mode to display failure stack traces in console.");
+        durationHistory.record(result);
+    }
+
+    private File cacheFile(String name) {
+        return cacheDir == null ? null : new File(cacheDir, name);
+    }
+
+    @SuppressWarnings("rawtypes")
+    private TestResultCache resultCache(TestClassScanner scanner, Collection<Class> classes) {
+        if (cacheDir == null) {
+            return null;
         }
-        if (reportDetail.equals(JunitReportDetail.BASIC)) {
-            TestReportBuilder.of(result).writeToFileSystem(reportDir);
+        final Set<String> classNames = new HashSet<String>();
+        for (final Class clazz : classes) {
+            classNames.add(clazz.getName());
         }
-        for (final Runnable runnable : this.postActions) {
-            runnable.run(); // NOSONAR
+        final List<String> jvmOptions = forked() ? forkedProcess.jvmOptions() : ManagementFactory
+                .getRuntimeMXBean().getInputArguments();
+        final JkClasspath classpath = this.jkClasspath().andHead(this.classesToTest.roots());
+        final Map<String, String> keys;
+        if (impactAnalysis) {
+            final List<File> classDirs = new LinkedList<File>();
+            for (final File entry : classpath) {
+                if (entry.isDirectory()) {
+                    classDirs.add(entry);
+                }
+            }
+            final Map<String, String> footprintHashes = scanner.footprintHashes(classDirs,
+                    classNames);
+            final String environmentHash = TestResultCache.environmentHash(classpath,
+                    jvmOptions, scanner.classHashes.keySet());
+            keys = TestResultCache.keys(environmentHash, footprintHashes, classNames);
+        } else {
+            final String environmentHash = TestResultCache.environmentHash(classpath,
+                    jvmOptions, classNames);
+            keys = TestResultCache.keys(environmentHash, scanner.classHashes, classNames);
         }
-        JkLog.done("Tests run");
-        return result;
+        return new TestResultCache(cacheFile("test-results.ser"), keys);
     }
 
     private JkClasspath jkClasspath() {
@@ -307,33 +634,40 @@ public final class JkUnit {
     }
 
     @SuppressWarnings("rawtypes")
-    private Collection<Class> getClassesToTest() {
+    private Collection<Class> getClassesToTest(TestClassScanner scanner) {
         final JkClasspath classpath = this.jkClasspath().andHead(this.classesToTest.roots());
         final JkClassLoader classLoader = JkClassLoader.system().parent().child(classpath)
                 .loadAllServices();
-        return getJunitTestClassesInClassLoader(classLoader, this.classesToTest);
+        return getJunitTestClassesInClassLoader(classLoader, scanner);
     }
 
+    /*
+     * Test classes are found reading class files, so only test classes get loaded, unless their
+     * hierarchy goes through classes outside of the scanned files.
+     */
     @SuppressWarnings("rawtypes")
-    private static Collection<Class> getJunitTestClassesInClassLoader(JkClassLoader classloader,
-            JkFileTreeSet jkFileTreeSet) {
-        final Iterable<Class<?>> classes = classloader.loadClassesIn(jkFileTreeSet);
+    private static Collection<Class> getJunitTestClassesInClassLoader(
+            JkClassLoader classloader, TestClassScanner scanner) {
         final List<Class> testClasses = new LinkedList<Class>();
-        if (classloader.isDefined(JUNIT4_RUNNER_CLASS_NAME)) {
-            final Class<Annotation> testAnnotation = classloader
-                    .load(JUNIT4_TEST_ANNOTATION_CLASS_NAME);
-            final Class<?> testCaseClass = classloader.load(JUNIT3_TEST_CASE_CLASS_NAME);
-            for (final Class clazz : classes) {
-                if (isJunit3Test(clazz, testCaseClass) || isJunit4Test(clazz, testAnnotation)) {
-                    testClasses.add(clazz);
-                }
-            }
-        } else if (classloader.isDefined(JUNIT3_RUNNER_CLASS_NAME)) {
-            final Class<?> testCaseClass = classloader.load(JUNIT3_TEST_CASE_CLASS_NAME);
-            for (final Class clazz : classes) {
-                if (isJunit3Test(clazz, testCaseClass)) {
-                    testClasses.add(clazz);
-                }
+        final boolean junit4 = classloader.isDefined(JUNIT4_RUNNER_CLASS_NAME);
+        if (!junit4 && !classloader.isDefined(JUNIT3_RUNNER_CLASS_NAME)) {
+            return testClasses;
+        }
+        scanner.scan(junit4);
+        for (final String className : scanner.testClassNames) {
+            testClasses.add(classloader.load(className));
+        }
+        if (scanner.undecidedClassNames.isEmpty()) {
+            return testClasses;
+        }
+        final Class<?> testCaseClass = classloader.load(JUNIT3_TEST_CASE_CLASS_NAME);
+        final Class<Annotation> testAnnotation = junit4 ? classloader
+                .<Annotation> load(JUNIT4_TEST_ANNOTATION_CLASS_NAME) : null;
+        for (final String className : scanner.undecidedClassNames) {
+            final Class<?> clazz = classloader.load(className);
+            if (isJunit3Test(clazz, testCaseClass)
+                    || (junit4 && isJunit4Test(clazz, testAnnotation))) {
+                testClasses.add(clazz);
             }
         }
         return testClasses;
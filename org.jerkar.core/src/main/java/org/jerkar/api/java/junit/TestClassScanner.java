@@ -0,0 +1,213 @@
+package org.jerkar.api.java.junit;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jerkar.api.file.JkFileTree;
+import org.jerkar.api.file.JkFileTreeSet;
+import org.jerkar.api.file.JkPathFilter;
+import org.jerkar.api.java.JkClassFile;
+import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsIO;
+import org.jerkar.api.utils.JkUtilsString;
+
+/*
+ * Finds test classes, and the classes they depend on, by reading class files instead of loading
+ * them. Parsed class files are cached by content hash in the specified cache file, if any, so
+ * unchanged classes are not parsed again on next runs.
+ */
+final class TestClassScanner {
+
+    private static final String JUNIT4_TEST_ANNOTATION = "org.junit.Test";
+
+    private static final String JUNIT3_TEST_CASE = "junit.framework.TestCase";
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final JkFileTreeSet classesToTest;
+
+    private final File cacheFile;
+
+    /** Parsed class files, keyed by the hash of their content, as stored in the cache file */
+    private Map<String, JkClassFile> cache;
+
+    /** Part of the cache actually used, the only one to be stored in the cache file */
+    private final Map<String, JkClassFile> usedCache = new HashMap<String, JkClassFile>();
+
+    private final Map<String, JkClassFile> classFiles = new LinkedHashMap<String, JkClassFile>();
+
+    /** Test classes, in the order they have been met */
+    final List<String> testClassNames = new LinkedList<String>();
+
+    /**
+     * Classes having an ancestor defined outside of the scanned trees, so they have to be loaded to
+     * be classified.
+     */
+    final List<String> undecidedClassNames = new LinkedList<String>();
+
+    /** MD5 of the class file content of every scanned class, keyed by class name */
+    final Map<String, String> classHashes = new HashMap<String, String>();
+
+    TestClassScanner(JkFileTreeSet classesToTest, File cacheFile) {
+        this.classesToTest = classesToTest;
+        this.cacheFile = cacheFile;
+    }
+
+    TestClassScanner scan(boolean junit4) {
+        for (final File file : classesToTest.andFilter(JkPathFilter.include("**/*.class")).files(
+                false)) {
+            read(file);
+        }
+        for (final JkClassFile classFile : classFiles.values()) {
+            if (classFile.isAbstract()) {
+                continue;
+            }
+            final Boolean test = isTest(classFile, classFiles, junit4);
+            if (test == null) {
+                undecidedClassNames.add(classFile.name());
+            } else if (test) {
+                testClassNames.add(classFile.name());
+            }
+        }
+        writeCache();
+        return this;
+    }
+
+    /**
+     * Returns, for each specified test class, a hash of the content of all
+     * the classes it may depend on, transitively, among the scanned classes
+     * and the classes found in the specified directories. After this call
+     * {@link #classHashes} contains all the classes of these directories.
+     */
+    Map<String, String> footprintHashes(Iterable<File> classDirs,
+            Collection<String> testClassNames) {
+        for (final File dir : classDirs) {
+            final JkFileTree tree = JkFileTree.of(dir).andFilter(
+                    JkPathFilter.include("**/*.class"));
+            for (final String path : tree.relativePathes()) {
+                final String className = path.replace(File.separatorChar, '/')
+                        .substring(0, path.length() - CLASS_SUFFIX.length()).replace('/', '.');
+                if (!classHashes.containsKey(className)) {
+                    read(new File(dir, path));
+                }
+            }
+        }
+        writeCache();
+        final Map<String, String> result = new HashMap<String, String>();
+        for (final String testClassName : testClassNames) {
+            final List<String> footprint = new ArrayList<String>(footprint(testClassName));
+            Collections.sort(footprint);
+            final StringBuilder builder = new StringBuilder();
+            for (final String className : footprint) {
+                builder.append(className).append('=').append(classHashes.get(className))
+                .append('\n');
+            }
+            result.put(testClassName, md5(builder.toString().getBytes(UTF8)));
+        }
+        return result;
+    }
+
+    private Set<String> footprint(String className) {
+        final Set<String> result = new HashSet<String>();
+        final LinkedList<String> queue = new LinkedList<String>();
+        result.add(className);
+        queue.add(className);
+        while (!queue.isEmpty()) {
+            final JkClassFile classFile = classFiles.get(queue.removeFirst());
+            if (classFile == null) {
+                continue;
+            }
+            for (final String reference : classFile.referencedClassNames()) {
+                if (classFiles.containsKey(reference) && result.add(reference)) {
+                    queue.add(reference);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void read(File file) {
+        final byte[] content = JkUtilsFile.readBytes(file);
+        final String hash = md5(content);
+        JkClassFile classFile = cache().get(hash);
+        if (classFile == null) {
+            classFile = JkClassFile.of(content);
+        }
+        usedCache.put(hash, classFile);
+        classFiles.put(classFile.name(), classFile);
+        classHashes.put(classFile.name(), hash);
+    }
+
+    /*
+     * Returns null if the class hierarchy can not be fully resolved from the scanned class files.
+     */
+    private static Boolean isTest(JkClassFile classFile, Map<String, JkClassFile> classFiles,
+            boolean junit4) {
+        JkClassFile current = classFile;
+        while (true) {
+            if (junit4 && current.publicMethodAnnotations().contains(JUNIT4_TEST_ANNOTATION)) {
+                return true;
+            }
+            final String superName = current.superName();
+            if (superName == null || superName.equals(Object.class.getName())) {
+                return false;
+            }
+            if (superName.equals(JUNIT3_TEST_CASE)) {
+                return true;
+            }
+            current = classFiles.get(superName);
+            if (current == null) {
+                return null;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, JkClassFile> cache() {
+        if (cache != null) {
+            return cache;
+        }
+        cache = new HashMap<String, JkClassFile>();
+        if (cacheFile != null && cacheFile.exists()) {
+            try {
+                cache = (Map<String, JkClassFile>) JkUtilsIO.deserialize(cacheFile);
+            } catch (final RuntimeException e) {
+                JkLog.warn("Test class cache " + cacheFile.getPath()
+                        + " is unreadable, ignore it.");
+            }
+        }
+        return cache;
+    }
+
+    private void writeCache() {
+        if (cacheFile == null) {
+            return;
+        }
+        cacheFile.getParentFile().mkdirs();
+        JkUtilsIO.serialize(usedCache, cacheFile);
+    }
+
+    static String md5(byte[] content) {
+        try {
+            return JkUtilsString.toHexString(MessageDigest.getInstance("MD5").digest(content));
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,176 @@
+package org.jerkar.api.java.junit;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.jerkar.api.java.junit.JkTestSuiteResult.TestClassResult;
+import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsIO;
+
+/*
+ * Durations of the last runs of each test class, stored in a file so they can be used to balance
+ * test classes among processes and to spot the slowest classes and the ones getting slower.
+ */
+final class TestDurationHistory {
+
+    /** Number of durations kept per class */
+    static final int SAMPLE_COUNT = 5;
+
+    /** A class has regressed if it lasts at least this more than usual ... */
+    private static final long REGRESSION_MIN_DELTA_IN_MILLIS = 100;
+
+    /** ... and this factor times its usual duration */
+    private static final double REGRESSION_MIN_RATIO = 1.5;
+
+    private static final int REPORTED_CLASS_COUNT = 10;
+
+    private final File file;
+
+    /** Durations in milliseconds, the most recent last */
+    private final Map<String, long[]> durations;
+
+    /**
+     * Creates a history stored in the specified file, or not stored at all if
+     * the file is <code>null</code>.
+     */
+    TestDurationHistory(File file) {
+        this.file = file;
+        this.durations = read();
+    }
+
+    /**
+     * Returns the usual duration of each known class, as the median of its
+     * recorded durations.
+     */
+    Map<String, Long> estimates() {
+        final Map<String, Long> result = new HashMap<String, Long>();
+        for (final Map.Entry<String, long[]> entry : durations.entrySet()) {
+            result.put(entry.getKey(), median(entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Records the durations of the specified result. Classes with failures
+     * are ignored as their duration is not representative.
+     */
+    void record(JkTestSuiteResult result) {
+        for (final TestClassResult classResult : result.testClassResults()) {
+            if (classResult.getFailureCount() > 0 || classResult.getRunCount() == 0) {
+                continue;
+            }
+            final long[] previous = durations.get(classResult.getClassName());
+            final long[] samples;
+            if (previous == null) {
+                samples = new long[1];
+            } else if (previous.length < SAMPLE_COUNT) {
+                samples = Arrays.copyOf(previous, previous.length + 1);
+            } else {
+                samples = new long[SAMPLE_COUNT];
+                System.arraycopy(previous, 1, samples, 0, SAMPLE_COUNT - 1);
+            }
+            samples[samples.length - 1] = classResult.getDurationInMillis();
+            durations.put(classResult.getClassName(), samples);
+        }
+        if (file != null) {
+            file.getParentFile().mkdirs();
+            JkUtilsIO.serialize(durations, file);
+        }
+    }
+
+    /**
+     * Returns the lines of a report listing the slowest classes of the
+     * specified result.
+     */
+    List<String> slowest(JkTestSuiteResult result) {
+        final List<TestClassResult> classResults = new ArrayList<TestClassResult>(
+                result.testClassResults());
+        final List<String> lines = new LinkedList<String>();
+        if (classResults.isEmpty()) {
+            return lines;
+        }
+        Collections.sort(classResults, new Comparator<TestClassResult>() {
+
+            @Override
+            public int compare(TestClassResult o1, TestClassResult o2) {
+                return compareLongs(o2.getDurationInMillis(), o1.getDurationInMillis());
+            }
+        });
+        lines.add("Slowest test classes :");
+        for (final TestClassResult classResult : classResults.subList(0,
+                Math.min(REPORTED_CLASS_COUNT, classResults.size()))) {
+            lines.add("  " + classResult.getClassName() + " : "
+                    + classResult.getDurationInMillis() + " ms");
+        }
+        return lines;
+    }
+
+    /**
+     * Returns the lines of a report listing the classes of the specified
+     * result lasting far longer than usual, the ones having regressed the most
+     * first. It must be invoked before recording the result.
+     */
+    List<String> regressions(JkTestSuiteResult result) {
+        final Map<String, Long> estimates = estimates();
+        final List<TestClassResult> regressed = new ArrayList<TestClassResult>();
+        for (final TestClassResult classResult : result.testClassResults()) {
+            final Long usual = estimates.get(classResult.getClassName());
+            final long duration = classResult.getDurationInMillis();
+            if (usual != null && classResult.getFailureCount() == 0
+                    && duration - usual >= REGRESSION_MIN_DELTA_IN_MILLIS
+                    && duration >= usual * REGRESSION_MIN_RATIO) {
+                regressed.add(classResult);
+            }
+        }
+        final List<String> lines = new LinkedList<String>();
+        if (regressed.isEmpty()) {
+            return lines;
+        }
+        Collections.sort(regressed, new Comparator<TestClassResult>() {
+
+            @Override
+            public int compare(TestClassResult o1, TestClassResult o2) {
+                return compareLongs(o2.getDurationInMillis() - estimates.get(o2.getClassName()),
+                        o1.getDurationInMillis() - estimates.get(o1.getClassName()));
+            }
+        });
+        lines.add("Test classes slower than usual :");
+        for (final TestClassResult classResult : regressed) {
+            final long usual = estimates.get(classResult.getClassName());
+            lines.add("  " + classResult.getClassName() + " : "
+                    + classResult.getDurationInMillis() + " ms instead of " + usual + " ms");
+        }
+        return lines;
+    }
+
+    private static long median(long[] samples) {
+        final long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static int compareLongs(long first, long second) {
+        return first < second ? -1 : (first == second ? 0 : 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, long[]> read() {
+        if (file == null || !file.exists()) {
+            return new HashMap<String, long[]>();
+        }
+        try {
+            return (Map<String, long[]>) JkUtilsIO.deserialize(file);
+        } catch (final RuntimeException e) {
+            JkLog.warn("Test duration history " + file.getPath() + " is unreadable, ignore it.");
+            return new HashMap<String, long[]>();
+        }
+    }
+
+}
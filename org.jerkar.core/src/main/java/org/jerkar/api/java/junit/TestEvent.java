@@ -0,0 +1,53 @@
+package org.jerkar.api.java.junit;
+
+import java.io.Serializable;
+
+import org.jerkar.api.java.junit.JkTestSuiteResult.ExceptionDescription;
+
+/*
+ * Event sent by a forked test process as soon as it happens, so the launching process sees the
+ * tests progressing and still knows what happened if the forked process dies.
+ */
+final class TestEvent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    enum Kind {
+        STARTED, FINISHED, FAILED, IGNORED, TIMED_OUT
+    }
+
+    final Kind kind;
+
+    final String className;
+
+    final String testName;
+
+    /** Failure cause, for FAILED and TIMED_OUT events */
+    final ExceptionDescription exception;
+
+    /** Stack traces of all the threads, for TIMED_OUT events */
+    final String threadDump;
+
+    TestEvent(Kind kind, String className, String testName, ExceptionDescription exception,
+            String threadDump) {
+        this.kind = kind;
+        this.className = className;
+        this.testName = testName;
+        this.exception = exception;
+        this.threadDump = threadDump;
+    }
+
+    TestEvent(Kind kind, String className, String testName) {
+        this(kind, className, testName, null, null);
+    }
+
+    String testId() {
+        return className + "." + testName;
+    }
+
+    @Override
+    public String toString() {
+        return kind + " " + testId();
+    }
+
+}
@@ -0,0 +1,333 @@
+package org.jerkar.api.java.junit;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.jerkar.api.java.junit.JkTestSuiteResult.ExceptionDescription;
+import org.jerkar.api.java.junit.JkTestSuiteResult.IgnoredCase;
+import org.jerkar.api.java.junit.JkTestSuiteResult.TestCaseFailure;
+import org.jerkar.api.java.junit.JkTestSuiteResult.TestCaseResult;
+import org.jerkar.api.java.junit.JkTestSuiteResult.TestClassResult;
+import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsIO;
+
+/*
+ * Receives, on a local socket, the events sent by a forked test process. Events are logged as they
+ * come and kept, so a result can be computed from them if the forked process dies before
+ * delivering its own.
+ */
+final class TestEventReceiver implements Runnable {
+
+    private final ServerSocket serverSocket;
+
+    private final boolean logEvents;
+
+    private final File reportDir;
+
+    private final List<TestEvent> events = new ArrayList<TestEvent>();
+
+    private final Thread thread;
+
+    private TestEventReceiver(ServerSocket serverSocket, boolean logEvents, File reportDir) {
+        this.serverSocket = serverSocket;
+        this.logEvents = logEvents;
+        this.reportDir = reportDir;
+        this.thread = new Thread(this, "test-event-receiver");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Starts listening on a free port of the local host. If <code>logEvents</code>
+     * is <code>true</code>, failures are logged as soon as they are received.
+     * Thread dumps of timed out tests are written in the specified directory.
+     */
+    static TestEventReceiver start(boolean logEvents, File reportDir) {
+        final ServerSocket serverSocket;
+        try {
+            serverSocket = new ServerSocket(0, 1, InetAddress.getByName(null));
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        }
+        final TestEventReceiver result = new TestEventReceiver(serverSocket, logEvents,
+                reportDir);
+        result.thread.start();
+        return result;
+    }
+
+    int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Waits for the sender to close the connection, or stops waiting for a
+     * connection if none has been made, then returns the received events.
+     */
+    List<TestEvent> stop() {
+        try {
+            serverSocket.close();
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        }
+        try {
+            thread.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        synchronized (events) {
+            return new ArrayList<TestEvent>(events);
+        }
+    }
+
+    @Override
+    public void run() {
+        final Socket socket;
+        try {
+            socket = serverSocket.accept();
+        } catch (final IOException e) {
+            return; // Server socket closed before the sender connected
+        }
+        ObjectInputStream in = null;
+        try {
+            in = new ObjectInputStream(new BufferedInputStream(socket.getInputStream())) {
+
+                @Override
+                protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException,
+                ClassNotFoundException {
+                    return Class.forName(desc.getName(), false,
+                            TestEventReceiver.class.getClassLoader());
+                }
+
+            };
+            while (true) {
+                received((TestEvent) in.readObject());
+            }
+        } catch (final EOFException e) {
+            // The sender has closed the connection
+        } catch (final IOException e) {
+            JkLog.warn("Test event stream interrupted : " + e.getMessage());
+        } catch (final ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            if (in != null) {
+                JkUtilsIO.closeQuietly((ObjectInput) in);
+            }
+            try {
+                socket.close();
+            } catch (final IOException e) {
+                // Nothing left to do with the socket
+            }
+        }
+    }
+
+    private void received(TestEvent event) {
+        synchronized (events) {
+            events.add(event);
+        }
+        if (event.kind == TestEvent.Kind.TIMED_OUT) {
+            final File dumpFile = new File(reportDir, event.testId() + "-threaddump.txt");
+            JkUtilsFile.writeString(dumpFile, event.threadDump, false);
+            JkLog.warn(event.testId() + " : " + event.exception.getMessage()
+                    + " Thread dump written in " + dumpFile.getPath());
+        } else if (logEvents && event.kind == TestEvent.Kind.FAILED) {
+            JkLog.warn(event.testId() + " failed : " + event.exception.getMessage());
+        } else if (event.kind == TestEvent.Kind.FINISHED) {
+            JkLog.trace(event.testId() + " finished.");
+        }
+    }
+
+    /**
+     * Computes a result from the specified events, for a process that did not
+     * run all the specified classes because it terminated with the specified
+     * message. Tests running at that time are reported as failed or, if no
+     * test was running, the first class not started.
+     */
+    static JkTestSuiteResult partialResult(List<TestEvent> events, List<String> classNames,
+            String terminationMessage) {
+
+        // Run, ignored and failed test counts per class
+        final Map<String, int[]> counts = new LinkedHashMap<String, int[]>();
+        final Set<String> runningTests = new LinkedHashSet<String>();
+        final Set<String> timedOutTests = new LinkedHashSet<String>();
+        final List<TestCaseFailure> failures = new ArrayList<TestCaseFailure>();
+        for (final TestEvent event : events) {
+            final int[] count = count(counts, event.className);
+            switch (event.kind) {
+            case STARTED:
+                runningTests.add(event.testId());
+                break;
+            case FINISHED:
+                runningTests.remove(event.testId());
+                count[0]++;
+                break;
+            case IGNORED:
+                count[1]++;
+                break;
+            case TIMED_OUT:
+            case FAILED:
+                if (event.kind == TestEvent.Kind.TIMED_OUT) {
+                    timedOutTests.add(event.testId());
+                }
+                count[2]++;
+                failures.add(new TestCaseFailure(event.className, event.testName, -1,
+                        event.exception));
+                break;
+            }
+        }
+        boolean interrupted = !timedOutTests.isEmpty();
+        for (final TestEvent event : events) {
+            if (event.kind == TestEvent.Kind.STARTED && runningTests.remove(event.testId())) {
+                interrupted = true;
+                final int[] count = count(counts, event.className);
+                count[0]++;
+                if (!timedOutTests.contains(event.testId())) {
+                    count[2]++;
+                    failures.add(terminationFailure(event.className, event.testName,
+                            terminationMessage));
+                }
+            }
+        }
+        if (!interrupted) {
+            failures.add(blameFirstClassNotStarted(counts, classNames, terminationMessage));
+        }
+        int runCount = 0;
+        int ignoreCount = 0;
+        final List<TestClassResult> classResults = new ArrayList<TestClassResult>();
+        for (final Map.Entry<String, int[]> entry : counts.entrySet()) {
+            final int[] count = entry.getValue();
+            runCount += count[0];
+            ignoreCount += count[1];
+            classResults.add(new TestClassResult(entry.getKey(), count[0], count[1], count[2],
+                    0));
+        }
+        return new JkTestSuiteResult((Properties) System.getProperties().clone(), "all",
+                runCount, ignoreCount, failures, 0, classResults);
+    }
+
+    /**
+     * Writes the XML report of the classes of the specified partial result
+     * that the terminated process left unfinished. The cases of such a class
+     * have only been streamed in a <code>.part</code> file, which the process
+     * turns into the final report when the class ends. It also writes the
+     * report of a class blamed for the termination without having started.
+     * The reports are computed from the received events and replace the
+     * <code>.part</code> files. Reports of the classes that completed are left
+     * as they are.
+     */
+    static void writeUnfinishedReports(JkTestSuiteResult partialResult, List<TestEvent> events,
+            File reportDir) {
+        final Set<String> startedClasses = new LinkedHashSet<String>();
+        for (final TestEvent event : events) {
+            startedClasses.add(event.className);
+        }
+        for (final TestClassResult classResult : partialResult.testClassResults()) {
+            final String className = classResult.getClassName();
+            final File partFile = new File(reportDir, "TEST-" + className + ".xml.part");
+            if (startedClasses.contains(className) && !partFile.exists()) {
+                continue;
+            }
+            final Set<String> failedTests = new LinkedHashSet<String>();
+            final List<TestCaseFailure> failures = new ArrayList<TestCaseFailure>();
+            for (final TestCaseFailure failure : partialResult.failures()) {
+                if (failure.getClassName().equals(className)) {
+                    failedTests.add(failure.getTestName());
+
+                    // Failures not related to a test, as a crash before any test, are named
+                    // after the class
+                    final String testName = failure.getTestName() == null ? className
+                            : failure.getTestName();
+                    failures.add(new TestCaseFailure(className, testName, -1, failure
+                            .getExceptionDescription()));
+                }
+            }
+            final TestReportWriter writer = TestReportWriter.start(reportDir, className);
+            for (final TestEvent event : events) {
+                if (!event.className.equals(className)) {
+                    continue;
+                }
+                if (event.kind == TestEvent.Kind.IGNORED) {
+                    writer.add(new IgnoredCase(className, event.testName));
+                } else if (event.kind == TestEvent.Kind.FINISHED
+                        && !failedTests.contains(event.testName)) {
+                    writer.add(new TestCaseResult(className, event.testName, -1));
+                }
+            }
+            for (final TestCaseFailure failure : failures) {
+                writer.add(failure);
+            }
+            writer.finish(partialResult.getSystemProperties(), classResult.getRunCount(),
+                    classResult.getIgnoreCount(), 0, null, null);
+        }
+    }
+
+    /**
+     * Returns the specified classes for which no event has been received.
+     */
+    static List<String> classesNotStarted(List<TestEvent> events, List<String> classNames,
+            JkTestSuiteResult partialResult) {
+        final Set<String> started = new LinkedHashSet<String>();
+        for (final TestEvent event : events) {
+            started.add(event.className);
+        }
+        for (final TestClassResult classResult : partialResult.testClassResults()) {
+            started.add(classResult.getClassName());
+        }
+        final List<String> result = new ArrayList<String>();
+        for (final String className : classNames) {
+            if (!started.contains(className)) {
+                result.add(className);
+            }
+        }
+        return result;
+    }
+
+    /*
+     * Classes run in the specified order so the first one without event is the one whose
+     * initialisation made the process terminate. If all classes have run, the last one is blamed.
+     */
+    private static TestCaseFailure blameFirstClassNotStarted(Map<String, int[]> counts,
+            List<String> classNames, String message) {
+        String blamed = classNames.get(classNames.size() - 1);
+        for (final String className : classNames) {
+            if (!counts.containsKey(className)) {
+                blamed = className;
+                break;
+            }
+        }
+        count(counts, blamed)[2]++;
+        return terminationFailure(blamed, null, message);
+    }
+
+    private static int[] count(Map<String, int[]> counts, String className) {
+        int[] result = counts.get(className);
+        if (result == null) {
+            result = new int[3];
+            counts.put(className, result);
+        }
+        return result;
+    }
+
+    private static TestCaseFailure terminationFailure(String className, String testName,
+            String message) {
+        final IllegalStateException exception = new IllegalStateException(message);
+        exception.setStackTrace(new StackTraceElement[0]);
+        return new TestCaseFailure(className, testName, -1, new ExceptionDescription(exception));
+    }
+
+}
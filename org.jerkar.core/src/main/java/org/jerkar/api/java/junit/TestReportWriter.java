@@ -0,0 +1,251 @@
+package org.jerkar.api.java.junit;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Properties;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.jerkar.api.java.junit.JkTestSuiteResult.IgnoredCase;
+import org.jerkar.api.java.junit.JkTestSuiteResult.TestCaseFailure;
+import org.jerkar.api.java.junit.JkTestSuiteResult.TestCaseResult;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsIO;
+import org.jerkar.api.utils.JkUtilsString;
+
+/*
+ * Writes the XML and text reports of a test suite case by case, so the cases of a suite are not
+ * held in memory : they are written in a temporary file as they come, then copied in the XML
+ * report when the suite ends and its counts are known.
+ */
+final class TestReportWriter {
+
+    private static final String TEXT_HEAD = JkUtilsString.repeat("-", 79);
+
+    private static final XMLOutputFactory FACTORY = XMLOutputFactory.newInstance();
+
+    private static final String ENCODING = "UTF-8";
+
+    private final File folder;
+
+    private final String suiteName;
+
+    private final File casesFile;
+
+    private final Writer casesWriter;
+
+    private final XMLStreamWriter cases;
+
+    private int failureCount;
+
+    private int errorCount;
+
+    private TestReportWriter(File folder, String suiteName) throws IOException,
+            XMLStreamException {
+        this.folder = folder;
+        this.suiteName = suiteName;
+        folder.mkdirs();
+        this.casesFile = new File(folder, "TEST-" + suiteName + ".xml.part");
+        this.casesWriter = new OutputStreamWriter(new BufferedOutputStream(JkUtilsIO.outputStream(
+                casesFile, false)), ENCODING);
+        this.cases = FACTORY.createXMLStreamWriter(casesWriter);
+    }
+
+    /**
+     * Starts the report of the specified suite in the specified folder.
+     */
+    static TestReportWriter start(File folder, String suiteName) {
+        try {
+            return new TestReportWriter(folder, suiteName);
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        } catch (final XMLStreamException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Writes the specified test case.
+     */
+    void add(TestCaseResult testCaseResult) {
+        try {
+            writeTestCase(testCaseResult);
+        } catch (final XMLStreamException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Writes the XML and text reports, the XML one including the cases written
+     * so far and the specified captured outputs, which can be
+     * <code>null</code>.
+     */
+    void finish(Properties properties, int runCount, int ignoreCount, long durationInMillis,
+            String systemOut, String systemErr) {
+        try {
+            cases.flush();
+            cases.close();
+            casesWriter.close();
+            writeXmlFile(properties, runCount, ignoreCount, durationInMillis, systemOut,
+                    systemErr);
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        } catch (final XMLStreamException e) {
+            throw new RuntimeException(e);
+        } finally {
+            casesFile.delete();
+        }
+        writeTxtFile(runCount, ignoreCount, durationInMillis);
+    }
+
+    private void writeTxtFile(int runCount, int ignoreCount, long durationInMillis) {
+        final StringBuilder builder = new StringBuilder(TEXT_HEAD).append("\n")
+                .append("Test set: ").append(suiteName).append("\n").append(TEXT_HEAD)
+                .append("\n").append("Tests run: ").append(runCount).append(", ")
+                .append("Failures: ").append(failureCount).append(", ")
+                .append("Errors: ").append(errorCount).append(", ").append("Skipped: ")
+                .append(ignoreCount).append(", ").append("Time elapsed: ")
+                .append(durationInMillis / 1000f).append(" sec");
+        JkUtilsFile.writeString(new File(folder, suiteName + ".txt"), builder.toString(), false);
+    }
+
+    private void writeXmlFile(Properties properties, int runCount, int ignoreCount,
+            long durationInMillis, String systemOut, String systemErr) throws IOException,
+            XMLStreamException {
+        final OutputStream outputStream = new BufferedOutputStream(JkUtilsIO.outputStream(
+                new File(folder, "TEST-" + suiteName + ".xml"), false));
+        try {
+            final Writer fileWriter = new OutputStreamWriter(outputStream, ENCODING);
+            final XMLStreamWriter writer = FACTORY.createXMLStreamWriter(fileWriter);
+            writer.writeStartDocument(ENCODING, "1.0");
+            writer.writeCharacters("\n");
+            writer.writeStartElement("testsuite");
+            writer.writeAttribute("skipped", Integer.toString(ignoreCount));
+            writer.writeAttribute("tests", Integer.toString(runCount));
+            writer.writeAttribute("failures", Integer.toString(failureCount));
+            writer.writeAttribute("errors", Integer.toString(errorCount));
+            writer.writeAttribute("name", suiteName);
+            writer.writeAttribute("time", Float.toString(durationInMillis / 1000f));
+            writer.writeCharacters("\n");
+            writeProperties(writer, properties);
+
+            // Test cases are copied as is, the writer being flushed before and after
+            writer.flush();
+            fileWriter.flush();
+            final FileInputStream casesInputStream = JkUtilsIO.inputStream(casesFile);
+            try {
+                JkUtilsIO.copy(casesInputStream, outputStream);
+            } finally {
+                JkUtilsIO.closeQuietly(casesInputStream);
+            }
+
+            writeOutput(writer, "system-out", systemOut);
+            writeOutput(writer, "system-err", systemErr);
+            writer.writeCharacters("\n");
+            writer.writeEndElement(); // ends 'testsuite'
+            writer.writeEndDocument();
+            writer.flush();
+            writer.close();
+            fileWriter.flush();
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    private static void writeProperties(XMLStreamWriter writer, Properties properties)
+            throws XMLStreamException {
+        writer.writeCharacters("  ");
+        writer.writeStartElement("properties");
+        for (final Object name : properties.keySet()) {
+            writer.writeCharacters("\n    ");
+            writer.writeEmptyElement("property");
+            writer.writeAttribute("value", System.getProperty(name.toString()));
+            writer.writeAttribute("name", name.toString());
+        }
+        writer.writeCharacters("\n  ");
+        writer.writeEndElement();
+    }
+
+    private void writeTestCase(TestCaseResult testCaseResult) throws XMLStreamException {
+        cases.writeCharacters("\n  ");
+        cases.writeStartElement("testcase");
+        cases.writeAttribute("classname", testCaseResult.getClassName());
+        cases.writeAttribute("name", testCaseResult.getTestName());
+        if (testCaseResult.getDurationInSecond() != -1) {
+            cases.writeAttribute("time", Float.toString(testCaseResult.getDurationInSecond()));
+        } else {
+            cases.writeAttribute("time", "0.000");
+        }
+        if (testCaseResult instanceof TestCaseFailure) {
+            final TestCaseFailure failure = (TestCaseFailure) testCaseResult;
+            final boolean assertError = failure.getExceptionDescription().isAssertError();
+            if (assertError) {
+                failureCount++;
+            } else {
+                errorCount++;
+            }
+            cases.writeCharacters("\n    ");
+            cases.writeStartElement(assertError ? "failure" : "error");
+            cases.writeAttribute("message",
+                    JkUtilsString.escapeHtml(failure.getExceptionDescription().getMessage()));
+            cases.writeAttribute("type", failure.getExceptionDescription().getClassName());
+            final StringBuilder stringBuilder = new StringBuilder();
+            for (final String line : failure.getExceptionDescription().stackTracesAsStrings()) {
+                stringBuilder.append(line).append("\n");
+            }
+            stringBuilder.append("      ");
+            cases.writeCData(stringBuilder.toString());
+            cases.writeCharacters("\n    ");
+            cases.writeEndElement();
+        } else if (testCaseResult instanceof IgnoredCase) {
+            cases.writeCharacters("\n    ");
+            cases.writeEmptyElement("skipped");
+        }
+        cases.writeCharacters("\n  ");
+        cases.writeEndElement();
+    }
+
+    private static void writeOutput(XMLStreamWriter writer, String elementName, String output)
+            throws XMLStreamException {
+        if (output == null || output.length() == 0) {
+            return;
+        }
+        writer.writeCharacters("\n  ");
+        writer.writeStartElement(elementName);
+
+        // A CDATA section can't contain its end marker, so the marker is split between sections
+        final String text = xmlSafe(output);
+        int start = 0;
+        int index;
+        while ((index = text.indexOf("]]>", start)) >= 0) {
+            writer.writeCData(text.substring(start, index + 2));
+            start = index + 2;
+        }
+        writer.writeCData(text.substring(start));
+        writer.writeEndElement();
+    }
+
+    /*
+     * Test output may contain any character while only some are allowed in XML.
+     */
+    private static String xmlSafe(String text) {
+        final StringBuilder builder = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+                builder.append(c);
+            } else {
+                builder.append('?');
+            }
+        }
+        return builder.toString();
+    }
+
+}
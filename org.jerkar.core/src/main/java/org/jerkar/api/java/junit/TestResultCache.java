@@ -0,0 +1,268 @@
+package org.jerkar.api.java.junit;
+
+import java.io.File;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.jerkar.api.file.JkFileHashCache;
+import org.jerkar.api.java.junit.JkTestSuiteResult.TestClassResult;
+import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsIO;
+import org.jerkar.api.utils.JkUtilsIterable;
+import org.jerkar.api.utils.JkUtilsString;
+
+/*
+ * Stores the result of the test classes that passed. A result is keyed on the content of the test
+ * class (nested classes included), the content of the classpath and the JVM options, so a test
+ * class whose key has not changed since it passed does not need to run again.
+ */
+final class TestResultCache {
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final File file;
+
+    private final Map<String, String> keys;
+
+    private final Map<String, Entry> entries;
+
+    /**
+     * Creates a cache stored in the specified file, the specified map giving
+     * the current key of each test class.
+     *
+     * @see #keys(String, Map, Collection)
+     */
+    TestResultCache(File file, Map<String, String> keys) {
+        this.file = file;
+        this.keys = keys;
+        this.entries = read();
+    }
+
+    /**
+     * Returns the keys of the specified test classes. The key of a class
+     * combines the specified environment hash, its own hash and the ones of
+     * its nested classes, taken from the specified map.
+     */
+    static Map<String, String> keys(String environmentHash, Map<String, String> hashes,
+            Collection<String> testClassNames) {
+        final Map<String, List<String>> nestedClasses = new HashMap<String, List<String>>();
+        for (final String className : hashes.keySet()) {
+            final int index = className.indexOf('$');
+            if (index > 0) {
+                final String owner = className.substring(0, index);
+                List<String> nested = nestedClasses.get(owner);
+                if (nested == null) {
+                    nested = new ArrayList<String>();
+                    nestedClasses.put(owner, nested);
+                }
+                nested.add(className);
+            }
+        }
+        final Map<String, String> result = new HashMap<String, String>();
+        for (final String className : testClassNames) {
+            final MessageDigest digest = md5Digest();
+            update(digest, environmentHash);
+            update(digest, hashes.get(className));
+            final List<String> nested = nestedClasses.get(className);
+            if (nested != null) {
+                Collections.sort(nested);
+                for (final String nestedClass : nested) {
+                    update(digest, nestedClass);
+                    update(digest, hashes.get(nestedClass));
+                }
+            }
+            result.put(className, JkUtilsString.toHexString(digest.digest()));
+        }
+        return result;
+    }
+
+    /**
+     * Returns <code>true</code> if the specified class passed and its key has
+     * not changed since.
+     */
+    boolean isUpToDate(String className) {
+        final Entry entry = entries.get(className);
+        return entry != null && entry.key.equals(keys.get(className));
+    }
+
+    /**
+     * Returns the stored results of the specified classes, restoring their
+     * reports in the specified directory if not <code>null</code>.
+     */
+    JkTestSuiteResult replay(Collection<String> classNames, File reportDir) {
+        int runCount = 0;
+        int ignoreCount = 0;
+        final List<TestClassResult> results = new ArrayList<TestClassResult>();
+        for (final String className : classNames) {
+            final Entry entry = entries.get(className);
+            runCount += entry.result.getRunCount();
+            ignoreCount += entry.result.getIgnoreCount();
+            results.add(entry.result);
+            if (reportDir != null && entry.reports != null) {
+                reportDir.mkdirs();
+                for (final Map.Entry<String, byte[]> report : entry.reports.entrySet()) {
+                    JkUtilsFile.writeBytes(new File(reportDir, report.getKey()),
+                            report.getValue());
+                }
+            }
+        }
+        final List<JkTestSuiteResult.TestCaseResult> noCase = Collections.emptyList();
+        return new JkTestSuiteResult((Properties) System.getProperties().clone(), "all",
+                runCount, ignoreCount, noCase, 0, results);
+    }
+
+    /**
+     * Records the passed test classes of the specified result and forgets the
+     * failed ones. Reports found in the specified directory, if not
+     * <code>null</code>, are stored along.
+     */
+    void update(JkTestSuiteResult result, File reportDir) {
+        for (final TestClassResult classResult : result.testClassResults()) {
+            final String className = classResult.getClassName();
+            if (classResult.getFailureCount() == 0 && keys.containsKey(className)) {
+                entries.put(className, new Entry(keys.get(className), classResult, reports(
+                        reportDir, className)));
+            } else {
+                entries.remove(className);
+            }
+        }
+        for (final JkTestSuiteResult.TestCaseFailure failure : result.failures()) {
+            entries.remove(failure.getClassName());
+        }
+        entries.keySet().retainAll(keys.keySet());
+        file.getParentFile().mkdirs();
+        JkUtilsIO.serialize(entries, file);
+    }
+
+    /**
+     * Returns a hash of the content of the specified classpath and JVM
+     * options. Files of the specified classes (and their nested classes) are
+     * not taken in account as they are expected to be part of the key of each
+     * test class. Jar files are considered unchanged as long as their path,
+     * size and last modification time are unchanged. Content of directories is
+     * hashed through {@link JkFileHashCache}.
+     */
+    static String environmentHash(Iterable<File> classpath, List<String> jvmOptions,
+            Set<String> excludedClassNames) {
+        final MessageDigest digest = md5Digest();
+        update(digest, System.getProperty("java.version"));
+        for (final String option : jvmOptions) {
+            update(digest, option);
+        }
+        for (final File entry : new LinkedHashSet<File>(JkUtilsIterable.listOf(classpath))) {
+            update(digest, entry.getAbsolutePath());
+            if (entry.isDirectory()) {
+                updateWithDir(digest, entry, "", excludedClassNames);
+            } else if (entry.exists()) {
+                update(digest, entry.length() + ":" + entry.lastModified());
+            }
+        }
+        return JkUtilsString.toHexString(digest.digest());
+    }
+
+    private static void updateWithDir(MessageDigest digest, File dir, String relativePath,
+            Set<String> excludedClassNames) {
+        final File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        Arrays.sort(children);
+        for (final File child : children) {
+            final String childPath = relativePath + child.getName();
+            if (child.isDirectory()) {
+                updateWithDir(digest, child, childPath + "/", excludedClassNames);
+            } else if (!isExcludedClassFile(childPath, excludedClassNames)) {
+                update(digest, childPath);
+                update(digest, JkFileHashCache.instance().hash(child));
+            }
+        }
+    }
+
+    private static boolean isExcludedClassFile(String relativePath,
+            Set<String> excludedClassNames) {
+        if (!relativePath.endsWith(CLASS_SUFFIX)) {
+            return false;
+        }
+        final String className = relativePath.substring(0,
+                relativePath.length() - CLASS_SUFFIX.length()).replace('/', '.');
+        final int index = className.indexOf('$');
+        return excludedClassNames.contains(index > 0 ? className.substring(0, index)
+                : className);
+    }
+
+    private static Map<String, byte[]> reports(File reportDir, String className) {
+        if (reportDir == null) {
+            return null;
+        }
+        final Map<String, byte[]> result = new LinkedHashMap<String, byte[]>();
+        for (final String name : new String[] { "TEST-" + className + ".xml",
+                className + ".txt" }) {
+            final File report = new File(reportDir, name);
+            if (report.isFile()) {
+                result.put(name, JkUtilsFile.readBytes(report));
+            }
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Entry> read() {
+        if (!file.exists()) {
+            return new HashMap<String, Entry>();
+        }
+        try {
+            return (Map<String, Entry>) JkUtilsIO.deserialize(file);
+        } catch (final RuntimeException e) {
+            JkLog.warn("Test result cache " + file.getPath() + " is unreadable, ignore it.");
+            return new HashMap<String, Entry>();
+        }
+    }
+
+    private static MessageDigest md5Digest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(String.valueOf(value).getBytes(UTF8));
+        digest.update((byte) 0);
+    }
+
+    private static final class Entry implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final String key;
+
+        final TestClassResult result;
+
+        final Map<String, byte[]> reports;
+
+        Entry(String key, TestClassResult result, Map<String, byte[]> reports) {
+            this.key = key;
+            this.result = result;
+            this.reports = reports;
+        }
+
+    }
+
+}
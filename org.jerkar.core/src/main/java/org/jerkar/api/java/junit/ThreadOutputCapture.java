@@ -0,0 +1,121 @@
+package org.jerkar.api.java.junit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/*
+ * Replaces the standard output and error streams by streams writing in a buffer owned by the
+ * current thread, so the output of tests running concurrently is not interleaved. The output of a
+ * thread can also be copied to another stream, as a report. Threads that have not started a
+ * capture write directly in the replaced streams.
+ */
+final class ThreadOutputCapture {
+
+    private final PrintStream out;
+
+    private final PrintStream err;
+
+    private final ThreadLocal<Capture> captures = new ThreadLocal<Capture>();
+
+    private ThreadOutputCapture(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * Replaces the current standard streams until {@link #uninstall()} is invoked.
+     */
+    static ThreadOutputCapture install() {
+        final ThreadOutputCapture capture = new ThreadOutputCapture(System.out, System.err);
+        System.setOut(new PrintStream(capture.new Dispatcher(capture.out), true));
+        System.setErr(new PrintStream(capture.new Dispatcher(capture.err), true));
+        return capture;
+    }
+
+    /**
+     * Restores the standard streams as they were before installing this capture.
+     */
+    void uninstall() {
+        System.setOut(out);
+        System.setErr(err);
+    }
+
+    /**
+     * Starts capturing what the current thread writes in the standard
+     * streams : it is buffered if <code>buffered</code> is <code>true</code>,
+     * and copied to the specified stream if not <code>null</code>.
+     */
+    void start(boolean buffered, OutputStream copy) {
+        captures.set(new Capture(buffered ? new ByteArrayOutputStream() : null, copy));
+    }
+
+    /**
+     * Stops capturing for the current thread and writes what has been buffered
+     * in the specified stream, in a single block.
+     */
+    void flush(PrintStream target) {
+        final Capture capture = captures.get();
+        captures.remove();
+        final ByteArrayOutputStream buffer = capture == null ? null : capture.buffer;
+        if (buffer == null || buffer.size() == 0) {
+            return;
+        }
+        synchronized (target) {
+            target.write(buffer.toByteArray(), 0, buffer.size());
+            target.flush();
+        }
+    }
+
+    private final class Dispatcher extends OutputStream {
+
+        private final OutputStream replaced;
+
+        Dispatcher(OutputStream replaced) {
+            this.replaced = replaced;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            final Capture capture = captures.get();
+            if (capture == null) {
+                replaced.write(b, off, len);
+                return;
+            }
+            if (capture.buffer != null) {
+                capture.buffer.write(b, off, len);
+            }
+            if (capture.copy != null) {
+                capture.copy.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (captures.get() == null) {
+                replaced.flush();
+            }
+        }
+
+    }
+
+    private static final class Capture {
+
+        final ByteArrayOutputStream buffer;
+
+        final OutputStream copy;
+
+        Capture(ByteArrayOutputStream buffer, OutputStream copy) {
+            this.buffer = buffer;
+            this.copy = copy;
+        }
+
+    }
+
+}
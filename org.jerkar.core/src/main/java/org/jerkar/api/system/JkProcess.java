@@ -7,6 +7,7 @@ import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 
+import org.jerkar.api.utils.JkUtilsFile;
 import org.jerkar.api.utils.JkUtilsIO;
 import org.jerkar.api.utils.JkUtilsIO.StreamGobbler;
 import org.jerkar.api.utils.JkUtilsString;
@@ -51,11 +52,15 @@ public final class JkProcess implements Runnable {
 
     private final boolean failOnError;
 
-    private JkProcess(String command, List<String> parameters, File workingDir, boolean failOnError) {
+    private final int argumentFileThreshold;
+
+    private JkProcess(String command, List<String> parameters, File workingDir,
+            boolean failOnError, int argumentFileThreshold) {
         this.command = command;
         this.parameters = parameters;
         this.workingDir = workingDir;
         this.failOnError = failOnError;
+        this.argumentFileThreshold = argumentFileThreshold;
     }
 
     /**
@@ -63,7 +68,7 @@ public final class JkProcess implements Runnable {
      * parameters.
      */
     public static JkProcess of(String command, String... parameters) {
-        return new JkProcess(command, Arrays.asList(parameters), null, false);
+        return new JkProcess(command, Arrays.asList(parameters), null, false, 0);
     }
 
     /**
@@ -73,7 +78,7 @@ public final class JkProcess implements Runnable {
     public static JkProcess ofWinOrUx(String windowsCommand, String unixCommand,
             String... parameters) {
         final String cmd = JkUtilsSystem.IS_WINDOWS ? windowsCommand : unixCommand;
-        return new JkProcess(cmd, Arrays.asList(parameters), null, false);
+        return new JkProcess(cmd, Arrays.asList(parameters), null, false, 0);
     }
 
     /**
@@ -131,7 +136,7 @@ public final class JkProcess implements Runnable {
     public JkProcess andParameters(Collection<String> parameters) {
         final List<String> list = new ArrayList<String>(this.parameters);
         list.addAll(parameters);
-        return new JkProcess(command, list, workingDir, failOnError);
+        return new JkProcess(command, list, workingDir, failOnError, argumentFileThreshold);
     }
 
     /**
@@ -141,7 +146,8 @@ public final class JkProcess implements Runnable {
      * by the specified ones (not adding).
      */
     public JkProcess withParameters(String... parameters) {
-        return new JkProcess(command, Arrays.asList(parameters), workingDir, failOnError);
+        return new JkProcess(command, Arrays.asList(parameters), workingDir, failOnError,
+                argumentFileThreshold);
     }
 
     /**
@@ -160,7 +166,8 @@ public final class JkProcess implements Runnable {
      * specified directory as the working directory.
      */
     public JkProcess withWorkingDir(File workingDir) {
-        return new JkProcess(command, parameters, workingDir, failOnError);
+        return new JkProcess(command, parameters, workingDir, failOnError,
+                argumentFileThreshold);
     }
 
     /**
@@ -171,7 +178,21 @@ public final class JkProcess implements Runnable {
      * throw a {@link IllegalStateException}.
      */
     public JkProcess failOnError(boolean fail) {
-        return new JkProcess(command, parameters, workingDir, fail);
+        return new JkProcess(command, parameters, workingDir, fail, argumentFileThreshold);
+    }
+
+    /**
+     * Returns a <code>JkProcess</code> identical to this one but passing the
+     * parameters through an argument file, as <code>@argfile</code>, when the
+     * command line would be longer than the specified number of characters.
+     * It applies only to programs reading argument files, as <code>javac</code>
+     * or <code>javadoc</code>. <code>-J</code> options are kept on the command
+     * line as these tools do not accept them in argument files. <code>0</code>
+     * means parameters are always passed on the command line, which is the
+     * default.
+     */
+    public JkProcess withArgumentFileThreshold(int commandLineLength) {
+        return new JkProcess(command, parameters, workingDir, failOnError, commandLineLength);
     }
 
     /**
@@ -193,6 +214,17 @@ public final class JkProcess implements Runnable {
         command.add(this.command);
         command.addAll(parameters);
         JkLog.startln("Starting program : " + command.toString());
+        final File argumentFile = argumentFile(command);
+        if (argumentFile != null) {
+            JkLog.trace("Command line too long, parameters are passed through " + argumentFile);
+            command.subList(1, command.size()).clear();
+            for (final String parameter : parameters) {
+                if (isLauncherOption(parameter)) {
+                    command.add(parameter);
+                }
+            }
+            command.add("@" + argumentFile.getAbsolutePath());
+        }
         final int result;
         try {
             final ProcessBuilder processBuilder = processBuilder(command);
@@ -214,11 +246,48 @@ public final class JkProcess implements Runnable {
             }
         } catch (final Exception e) {
             throw new RuntimeException(e);
+        } finally {
+            if (argumentFile != null) {
+                argumentFile.delete();
+            }
         }
         JkLog.done(" process exit with return code : " + result);
         return result;
     }
 
+    /*
+     * Writes the parameters in a file if the command line exceeds the threshold, one quoted
+     * parameter per line, as expected by JDK tools.
+     */
+    private File argumentFile(List<String> command) {
+        if (argumentFileThreshold <= 0) {
+            return null;
+        }
+        int length = 0;
+        for (final String item : command) {
+            length += item.length() + 1;
+        }
+        if (length <= argumentFileThreshold) {
+            return null;
+        }
+        final StringBuilder builder = new StringBuilder();
+        for (final String parameter : parameters) {
+            if (isLauncherOption(parameter)) {
+                continue;
+            }
+            builder.append('"').append(parameter.replace("\\", "\\\\").replace("\"", "\\\""))
+                    .append("\"\n");
+        }
+        final File file = JkUtilsFile.tempFile("args-", ".txt");
+        JkUtilsFile.writeString(file, builder.toString(), false);
+        return file;
+    }
+
+    // Options passed to the JVM running the tool, which the tools read only on the command line
+    private static boolean isLauncherOption(String parameter) {
+        return parameter.startsWith("-J");
+    }
+
     private ProcessBuilder processBuilder(List<String> command) {
         final ProcessBuilder builder = new ProcessBuilder(command);
         builder.redirectErrorStream(true);
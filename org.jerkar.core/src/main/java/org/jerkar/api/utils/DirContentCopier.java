@@ -0,0 +1,146 @@
+package org.jerkar.api.utils;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Copies the content of a directory. The directories are walked first, creating the target
+ * directories, then files are copied, on a thread pool when there is enough of them to make it
+ * worth.
+ */
+final class DirContentCopier {
+
+    private static final int MIN_FILES_FOR_PARALLEL = 16;
+
+    private static final int MAX_THREADS = 8;
+
+    private final FileFilter filter;
+
+    private final boolean copyEmptyDir;
+
+    private final PrintStream reportStream;
+
+    private final Map<String, String> tokenValues;
+
+    private final boolean onlyChanged;
+
+    private final boolean hardLinkIfPossible;
+
+    /**
+     * Creates a copier replacing the specified tokens if any. If
+     * <code>onlyChanged</code> is <code>true</code> files are copied using
+     * {@link JkUtilsFile#copyFileIfChanged(File, File, boolean)}, tokens are
+     * then ignored.
+     */
+    DirContentCopier(FileFilter filter, boolean copyEmptyDir, PrintStream reportStream,
+            Map<String, String> tokenValues, boolean onlyChanged, boolean hardLinkIfPossible) {
+        this.filter = filter;
+        this.copyEmptyDir = copyEmptyDir;
+        this.reportStream = reportStream;
+        this.tokenValues = tokenValues;
+        this.onlyChanged = onlyChanged;
+        this.hardLinkIfPossible = hardLinkIfPossible;
+    }
+
+    /**
+     * Copies the content of the specified directory and returns the count of files actually
+     * copied.
+     */
+    int copy(File fromDir, File toDir) {
+        final List<File[]> copies = new ArrayList<File[]>();
+        collect(fromDir, toDir, copies);
+        final int threadCount = Math.min(Math.min(Runtime.getRuntime().availableProcessors(),
+                MAX_THREADS), copies.size() / MIN_FILES_FOR_PARALLEL);
+        if (threadCount <= 1) {
+            int count = 0;
+            for (final File[] copy : copies) {
+                if (copyFile(copy[0], copy[1])) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        return copyInParallel(copies, threadCount);
+    }
+
+    private void collect(File fromDir, File toDir, List<File[]> copies) {
+        if (reportStream != null) {
+            reportStream.append("Coping content of " + fromDir.getPath());
+        }
+        final File[] children = fromDir.listFiles();
+        boolean toDirCreated = false;
+        for (final File child : children) {
+            if (child.isFile()) {
+                if (filter.accept(child)) {
+
+                    // Created here so that parallel copies do not race to create it
+                    if (!toDirCreated) {
+                        toDir.mkdirs();
+                        toDirCreated = true;
+                    }
+                    copies.add(new File[] { child, new File(toDir, child.getName()) });
+                }
+            } else {
+                final File subdir = new File(toDir, child.getName());
+                if (filter.accept(child) && copyEmptyDir) {
+                    subdir.mkdirs();
+                }
+                if (!JkUtilsFile.mayAcceptUnder(filter, child)) {
+                    continue;
+                }
+                collect(child, subdir, copies);
+            }
+        }
+    }
+
+    private boolean copyFile(File from, File to) {
+        if (onlyChanged) {
+            return JkUtilsFile.copyFileIfChanged(from, to, hardLinkIfPossible);
+        }
+        JkUtilsFile.copyFileReplacingTokens(from, to, tokenValues, reportStream);
+        return true;
+    }
+
+    private int copyInParallel(List<File[]> copies, int threadCount) {
+        final ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        try {
+            final List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>(copies.size());
+            for (final File[] copy : copies) {
+                futures.add(executorService.submit(new Callable<Boolean>() {
+
+                    @Override
+                    public Boolean call() throws Exception {
+                        return copyFile(copy[0], copy[1]);
+                    }
+                }));
+            }
+            int count = 0;
+            for (final Future<Boolean> future : futures) {
+                if (future.get()) {
+                    count++;
+                }
+            }
+            return count;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,22 @@
+package org.jerkar.api.utils;
+
+import java.io.File;
+import java.io.FileFilter;
+
+/**
+ * A {@link FileFilter} that can tell when no file under a directory can be
+ * accepted. Methods walking file trees in {@link JkUtilsFile} then skip the
+ * whole directory instead of visiting every file in it.
+ * 
+ * @author Jerome Angibaud
+ */
+public abstract class JkPruningFileFilter implements FileFilter {
+
+    /**
+     * Returns <code>false</code> if this filter rejects every file and folder
+     * under the specified directory. Returns <code>true</code> if some may be
+     * accepted.
+     */
+    public abstract boolean mayAcceptUnder(File dir);
+
+}
@@ -1,5 +1,7 @@
 package org.jerkar.api.utils;
 
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileInputStream;
@@ -7,13 +9,15 @@ import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.PrintStream;
-import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -21,6 +25,7 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Properties;
 
 /**
@@ -30,6 +35,15 @@ import java.util.Properties;
  */
 public final class JkUtilsFile {
 
+    // Hard links are only supported from JDK 7 (java.nio.file) so it is accessed by reflection
+    private static final Method TO_PATH_METHOD = JkUtilsReflect.getMethodOrNull(File.class,
+            "toPath");
+
+    private static final Method CREATE_LINK_METHOD = createLinkMethod();
+
+    // Smaller files are copied faster through a plain buffer than through channels
+    private static final long MIN_SIZE_FOR_TRANSFER = 64 * 1024;
+
     /**
      * Throws an {@link IllegalArgumentException} if one of the specified file
      * is not a directory or does not exist.
@@ -76,6 +90,14 @@ public final class JkUtilsFile {
      * otherwise method throw an {@link IllegalArgumentException}.
      */
     public static String getRelativePath(File baseDir, File file) {
+
+        // Shortcut for files listed from the base dir, having its path as prefix
+        final String base = baseDir.getPath();
+        final String path = file.getPath();
+        if (path.length() > base.length() + 1 && path.startsWith(base)
+                && path.charAt(base.length()) == File.separatorChar) {
+            return path.substring(base.length() + 1);
+        }
         final FilePath basePath = FilePath.of(baseDir);
         final FilePath filePath = FilePath.of(file);
         return filePath.relativeTo(basePath).toString();
@@ -150,37 +172,33 @@ public final class JkUtilsFile {
         if (toDir.isFile()) {
             throw new IllegalArgumentException(toDir.getPath() + " is file. Should be directory");
         }
+        return new DirContentCopier(filter, copyEmptyDir, reportStream, tokenValues, false, false)
+        .copy(fromDir, toDir);
+    }
 
-        if (reportStream != null) {
-            reportStream.append("Coping content of " + fromDir.getPath());
-        }
-        final File[] children = fromDir.listFiles();
-        int count = 0;
-        for (final File child : children) {
-            if (child.isFile()) {
-                if (filter.accept(child)) {
-                    final File targetFile = new File(toDir, child.getName());
-                    if (tokenValues == null || tokenValues.isEmpty()) {
-                        copyFile(child, targetFile, reportStream);
-                    } else {
-                        final File toFile = new File(toDir, targetFile.getName());
-                        copyFileReplacingTokens(child, toFile, tokenValues, reportStream);
-                    }
-
-                    count++;
-                }
-            } else {
-                final File subdir = new File(toDir, child.getName());
-                if (filter.accept(child) && copyEmptyDir) {
-                    subdir.mkdirs();
-                }
-                final int subCount = copyDirContentReplacingTokens(child, subdir, filter,
-                        copyEmptyDir, reportStream, tokenValues);
-                count = count + subCount;
-            }
-
+    /**
+     * Copies the content of the specified directory to the target directory
+     * but only the files that do not exist in the target directory or that
+     * differ in size or last modification time. Copied files get the last
+     * modification time of their source so next invocations can skip them.
+     * If <code>hardLinkIfPossible</code> is <code>true</code>, files are hard
+     * linked instead of copied when the running JDK and the file system
+     * support it.
+     *
+     * @return The count of files actually copied or linked.
+     * @see #copyFileIfChanged(File, File, boolean)
+     */
+    public static int copyDirContentIfChanged(File fromDir, File toDir, FileFilter filterArg,
+            boolean hardLinkIfPossible) {
+        final FileFilter filter = JkUtilsObject.firstNonNull(filterArg, JkFileFilters.acceptAll());
+        assertAllDir(fromDir);
+        if (isAncestor(fromDir, toDir) && filter.accept(toDir)) {
+            throw new IllegalArgumentException("Base filtered directory " + fromDir.getPath()
+                    + ":(" + filter + ") cannot contain destination directory " + toDir.getPath()
+                    + ". Narrow filter or change the target directory.");
         }
-        return count;
+        return new DirContentCopier(filter, false, null, null, true, hardLinkIfPossible).copy(
+                fromDir, toDir);
     }
 
     /**
@@ -220,6 +238,27 @@ public final class JkUtilsFile {
         return result;
     }
 
+    /**
+     * Returns the content of the specified file as a byte array.
+     */
+    public static byte[] readBytes(File file) {
+        final long length = file.length();
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("File " + file.getPath()
+                    + " is too big to be read in memory.");
+        }
+        final byte[] result = new byte[(int) length];
+        final DataInputStream inputStream = new DataInputStream(JkUtilsIO.inputStream(file));
+        try {
+            inputStream.readFully(result);
+        } catch (final IOException e) {
+            throw new RuntimeException("Error while reading " + file.getPath(), e);
+        } finally {
+            JkUtilsIO.closeQuietly(inputStream);
+        }
+        return result;
+    }
+
     /**
      * Returns the content of the specified file as a list of string.
      */
@@ -259,7 +298,6 @@ public final class JkUtilsFile {
      * report stream.
      */
     public static void copyFile(File from, File toFile, PrintStream reportStream) {
-        createFileIfNotExist(toFile);
         if (reportStream != null) {
             reportStream.println("Coping file " + from.getAbsolutePath() + " to "
                     + toFile.getAbsolutePath());
@@ -271,28 +309,119 @@ public final class JkUtilsFile {
             throw new IllegalArgumentException(from.getPath()
                     + " is a directory. Should be a file.");
         }
+
+        // Not created empty beforehand : truncating a file just created makes some file systems
+        // flush it on close
+        if (toFile.getParentFile() != null && !toFile.getParentFile().exists()) {
+            toFile.getParentFile().mkdirs();
+        }
+        FileInputStream in = null;
+        FileOutputStream out = null;
         try {
-            final InputStream in = new FileInputStream(from);
-            if (!toFile.getParentFile().exists()) {
-                toFile.getParentFile().mkdirs();
-            }
-            if (!toFile.exists()) {
-                toFile.createNewFile();
-            }
-            final OutputStream out = new FileOutputStream(toFile);
+            in = new FileInputStream(from);
+            out = new FileOutputStream(toFile);
+            final long size = from.length();
+            if (size < MIN_SIZE_FOR_TRANSFER) {
+                final byte[] buf = new byte[(int) size + 1];
+                int len;
+                while ((len = in.read(buf)) > 0) {
+                    out.write(buf, 0, len);
+                }
+            } else {
 
-            final byte[] buf = new byte[1024];
-            int len;
-            while ((len = in.read(buf)) > 0) {
-                out.write(buf, 0, len);
+                // Lets the OS copy the content without passing it through the JVM
+                final FileChannel source = in.getChannel();
+                final FileChannel target = out.getChannel();
+                long position = 0;
+                while (position < size) {
+                    final long transferred = source.transferTo(position, size - position,
+                            target);
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    position += transferred;
+                }
+                if (position < size) {
+                    throw new IOException("Only " + position + " bytes out of " + size
+                            + " could be copied, the source file may have been truncated meanwhile.");
+                }
             }
-            in.close();
             out.close();
         } catch (final IOException e) {
             throw new RuntimeException("IO exception occured while copying file " + from.getPath()
                     + " to " + toFile.getPath(), e);
+        } finally {
+            JkUtilsIO.closeQuietly(in);
+            JkUtilsIO.closeQuietly(out);
         }
+    }
 
+    /**
+     * Copies the given file to the specified target file only if the target
+     * does not exist or differs from the source in size or last modification
+     * time. The target gets the last modification time of the source so that
+     * next invocations can skip it. If <code>hardLinkIfPossible</code> is
+     * <code>true</code>, a hard link is created instead of a copy when the
+     * running JDK and the file system support it.
+     *
+     * @return <code>false</code> if the target file was already up to date.
+     */
+    public static boolean copyFileIfChanged(File from, File toFile, boolean hardLinkIfPossible) {
+        if (toFile.isFile() && toFile.length() == from.length()
+                && toFile.lastModified() == from.lastModified()) {
+            return false;
+        }
+        if (hardLinkIfPossible && hardLink(from, toFile)) {
+            return true;
+        }
+
+        // Target may be a hard link, so writing in place would alter the linked file
+        if (toFile.exists()) {
+            delete(toFile);
+        }
+        copyFile(from, toFile);
+        toFile.setLastModified(from.lastModified());
+        return true;
+    }
+
+    /**
+     * Creates a hard link to the specified existing file. If the link file
+     * already exists, it is replaced. Returns <code>false</code> if the link
+     * can not be created, cause hard links are not supported by the running
+     * JDK (prior 7) or by the underlying file system.
+     */
+    public static boolean hardLink(File existing, File link) {
+        if (CREATE_LINK_METHOD == null) {
+            return false;
+        }
+        if (link.exists() && !link.delete()) {
+            return false;
+        }
+        if (link.getParentFile() != null) {
+            link.getParentFile().mkdirs();
+        }
+        try {
+            CREATE_LINK_METHOD.invoke(null, TO_PATH_METHOD.invoke(link),
+                    TO_PATH_METHOD.invoke(existing));
+            return true;
+        } catch (final InvocationTargetException e) {
+            return false;
+        } catch (final IllegalAccessException e) {
+            return false;
+        }
+    }
+
+    private static Method createLinkMethod() {
+        if (TO_PATH_METHOD == null) {
+            return null;
+        }
+        try {
+            final Class<?> filesClass = Class.forName("java.nio.file.Files");
+            final Class<?> pathClass = TO_PATH_METHOD.getReturnType();
+            return JkUtilsReflect.getMethodOrNull(filesClass, "createLink", pathClass, pathClass);
+        } catch (final ClassNotFoundException e) {
+            return null;
+        }
     }
 
     /**
@@ -394,34 +523,49 @@ public final class JkUtilsFile {
      * Returns all files contained recursively in the specified directory.
      */
     public static List<File> filesOf(File dir, FileFilter fileFilter, boolean includeFolders) {
-        assertAllDir(dir);
-        final List<File> result = new LinkedList<File>();
-        for (final File file : dir.listFiles()) {
-            if (file.isFile() && !fileFilter.accept(file)) {
-                continue;
-            }
-            if (file.isDirectory()) {
-                if (includeFolders && fileFilter.accept(file)) {
-                    result.add(file);
-                }
-                result.addAll(filesOf(file, fileFilter, includeFolders));
-            } else {
-                result.add(file);
-            }
+        final List<File> result = new ArrayList<File>();
+        final Iterator<File> it = fileIterator(dir, fileFilter, includeFolders);
+        while (it.hasNext()) {
+            result.add(it.next());
         }
         return result;
     }
 
+    /**
+     * Returns an iterator over the files contained recursively in the
+     * specified directory, in the same order as
+     * {@link #filesOf(File, FileFilter, boolean)}. Directories are listed only
+     * when the iteration reaches them, so callers stopping early or processing
+     * files one by one never hold the whole list.
+     */
+    public static Iterator<File> fileIterator(File dir, FileFilter fileFilter,
+            boolean includeFolders) {
+        assertAllDir(dir);
+        return new FileTreeIterator(dir, fileFilter, includeFolders);
+    }
+
+    static boolean mayAcceptUnder(FileFilter fileFilter, File dir) {
+        return !(fileFilter instanceof JkPruningFileFilter)
+                || ((JkPruningFileFilter) fileFilter).mayAcceptUnder(dir);
+    }
+
     /**
      * Returns <code>true</code> if the specified directory is empty.
      */
     public static boolean isEmpty(File dir, boolean countFolders) {
-        return count(dir, JkFileFilters.acceptAll(), countFolders) == 0;
+        if (!dir.exists()) {
+            return true;
+        }
+        if (countFolders) {
+            return dir.list().length == 0;
+        }
+        return !fileIterator(dir, JkFileFilters.acceptAll(), false).hasNext();
     }
 
     /**
      * Returns count of files contained recursively in the specified directory.
-     * If the dir does not exist then it returns 0.
+     * If the dir does not exist then it returns 0. Folders are counted whatever
+     * the filter, so sub-trees are skipped only when folders are not counted.
      */
     public static int count(File dir, FileFilter fileFilter, boolean includeFolders) {
         int result = 0;
@@ -429,15 +573,14 @@ public final class JkUtilsFile {
             return 0;
         }
         for (final File file : dir.listFiles()) {
-            if (file.isFile() && !fileFilter.accept(file)) {
-                continue;
-            }
             if (file.isDirectory()) {
                 if (includeFolders) {
                     result++;
+                } else if (!mayAcceptUnder(fileFilter, file)) {
+                    continue;
                 }
                 result = result + count(file, fileFilter, includeFolders);
-            } else {
+            } else if (fileFilter.accept(file)) {
                 result++;
             }
         }
@@ -481,6 +624,21 @@ public final class JkUtilsFile {
         }
     }
 
+    /**
+     * Writes the specified content in the the specified file, replacing the
+     * existing content if any.
+     */
+    public static void writeBytes(File file, byte[] content) {
+        final FileOutputStream outputStream = JkUtilsIO.outputStream(file, false);
+        try {
+            outputStream.write(content);
+        } catch (final IOException e) {
+            throw new RuntimeException("Error while writing " + file.getPath(), e);
+        } finally {
+            JkUtilsIO.closeQuietly(outputStream);
+        }
+    }
+
     /**
      * Inserts the specified content at the begining of the specified file. For
      * such a temp file is create then the original file is replaced by the temp
@@ -515,7 +673,7 @@ public final class JkUtilsFile {
         try {
             final MessageDigest md = MessageDigest.getInstance(algorithm);
             md.reset();
-            final byte[] buf = new byte[2048];
+            final byte[] buf = new byte[64 * 1024];
             int len = 0;
             while ((len = is.read(buf)) != -1) {
                 md.update(buf, 0, len);
@@ -616,30 +774,15 @@ public final class JkUtilsFile {
             throw new IllegalArgumentException(from.getPath()
                     + " is a directory. Should be a file.");
         }
-        final TokenReplacingReader replacingReader = new TokenReplacingReader(from, replacements);
-        createFileIfNotExist(toFile);
-        final Writer writer;
-        try {
-            writer = new FileWriter(toFile);
-        } catch (final IOException e) {
-            JkUtilsIO.closeQuietly(replacingReader);
-            throw new RuntimeException(e);
-        }
         if (reportStream != null) {
             reportStream.println("Coping and replacing tokens " + replacements + " from file "
                     + from.getAbsolutePath() + " to " + toFile.getAbsolutePath());
         }
-        final char[] buf = new char[1024];
-        int len;
+        final InputStream inputStream = JkUtilsIO.inputStream(from);
         try {
-            while ((len = replacingReader.read(buf)) > 0) {
-                writer.write(buf, 0, len);
-            }
-        } catch (final IOException e) {
-            throw new RuntimeException(e);
+            copyStreamWithInterpolation(inputStream, toFile, replacements);
         } finally {
-            JkUtilsIO.closeQuietly(writer);
-            JkUtilsIO.closeQuietly(replacingReader);
+            JkUtilsIO.closeQuietly(inputStream);
         }
     }
 
@@ -671,35 +814,109 @@ public final class JkUtilsFile {
      */
     public static void copyStreamWithInterpolation(InputStream inputStream, File toFile,
             Map<String, String> replacements, PrintStream reportStream) {
-        final TokenReplacingReader replacingReader = new TokenReplacingReader(
-                new InputStreamReader(inputStream), replacements);
-        if (!toFile.exists()) {
-            try {
-                toFile.createNewFile();
-            } catch (final IOException e) {
-                JkUtilsIO.closeQuietly(replacingReader);
-                throw new RuntimeException(e);
-            }
-        }
-        final Writer writer;
+        copyStreamWithInterpolation(inputStream, toFile, replacements);
+    }
+
+    // Content is read and written in the platform default charset
+    private static void copyStreamWithInterpolation(InputStream inputStream, File toFile,
+            Map<String, String> replacements) {
+        createFileIfNotExist(toFile);
+        final OutputStream outputStream = new BufferedOutputStream(JkUtilsIO.outputStream(toFile,
+                false), 64 * 1024);
         try {
-            writer = new FileWriter(toFile);
+            new TokenReplacer(replacements, Charset.defaultCharset()).copy(inputStream,
+                    outputStream);
+            outputStream.flush();
         } catch (final IOException e) {
-            JkUtilsIO.closeQuietly(replacingReader);
-            throw new RuntimeException(e);
+            throw new RuntimeException("IO exception occured while copying to file "
+                    + toFile.getPath(), e);
+        } finally {
+            JkUtilsIO.closeQuietly(outputStream);
         }
-        final char[] buf = new char[1024];
-        int len;
-        try {
-            while ((len = replacingReader.read(buf)) > 0) {
-                writer.write(buf, 0, len);
+    }
+
+    /*
+     * Depth-first walk keeping the listed but not yet visited entries of each directory on a
+     * stack. Entries are tested with a single isDirectory call, anything else being a file.
+     */
+    private static final class FileTreeIterator implements Iterator<File> {
+
+        private final FileFilter fileFilter;
+
+        private final boolean includeFolders;
+
+        private final LinkedList<Level> stack = new LinkedList<Level>();
+
+        private File next;
+
+        FileTreeIterator(File dir, FileFilter fileFilter, boolean includeFolders) {
+            this.fileFilter = fileFilter;
+            this.includeFolders = includeFolders;
+            push(dir);
+            next = advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public File next() {
+            if (next == null) {
+                throw new NoSuchElementException();
             }
-        } catch (final IOException e) {
-            throw new RuntimeException(e);
-        } finally {
-            JkUtilsIO.closeQuietly(writer);
-            JkUtilsIO.closeQuietly(replacingReader);
+            final File result = next;
+            next = advance();
+            return result;
         }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private void push(File dir) {
+            final File[] children = dir.listFiles();
+            if (children != null && children.length > 0) {
+                stack.addLast(new Level(children));
+            }
+        }
+
+        private File advance() {
+            while (!stack.isEmpty()) {
+                final Level level = stack.getLast();
+                if (level.index >= level.children.length) {
+                    stack.removeLast();
+                    continue;
+                }
+                final File file = level.children[level.index++];
+                if (file.isDirectory()) {
+                    if (mayAcceptUnder(fileFilter, file)) {
+                        push(file);
+                    }
+                    if (includeFolders && fileFilter.accept(file)) {
+                        return file;
+                    }
+                } else if (fileFilter.accept(file)) {
+                    return file;
+                }
+            }
+            return null;
+        }
+
+        private static final class Level {
+
+            final File[] children;
+
+            int index;
+
+            Level(File[] children) {
+                this.children = children;
+            }
+
+        }
+
     }
 
     private static class FilePath {
@@ -30,6 +30,12 @@ public final class JkUtilsSystem {
         return osName.startsWith("Windows");
     }
 
+    /**
+     * Length, in characters, beyond which a command line may be rejected by
+     * the running underlying system.
+     */
+    public static final int MAX_COMMAND_LINE_LENGTH = IS_WINDOWS ? 7500 : 100000;
+
     /**
      * Returns the classpath of this classloader without mentioning classpath of
      * the parent classloaders.
@@ -1,15 +1,17 @@
 package org.jerkar.api.utils;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileFilter;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.zip.CRC32;
@@ -47,6 +49,11 @@ public final class JkUtilsZip {
             load(inputStream);
         }
 
+        CrcAndSize(byte[] content) {
+            this.crc.update(content);
+            this.size = content.length;
+        }
+
         private void load(InputStream inputStream) throws IOException {
             final byte[] buffer = new byte[BUFFER_SIZE];
             int bytesRead = -1;
@@ -82,37 +89,34 @@ public final class JkUtilsZip {
      * specified directory doen snot exist, it is created.
      */
     public static void unzip(File zip, File directory) {
-        final byte[] buffer = new byte[1024];
+        unzip(zip, directory, null);
+    }
+
+    /**
+     * Unzip the entries of the specified zip file into the specified directory. Only entries
+     * whose target file is accepted by the specified filter are extracted (a <code>null</code>
+     * filter accepts all). Entries whose target file already exists with the same size and CRC
+     * are not rewritten. Large archives are extracted concurrently.
+     *
+     * @return The number of files actually written.
+     */
+    public static int unzip(File zip, File directory, FileFilter filter) {
+        final ZipFile zipFile = zipFile(zip);
         try {
-            if (!directory.exists()) {
-                directory.mkdirs();
-            }
-            final ZipInputStream zis = new ZipInputStream(new FileInputStream(zip));
-            ZipEntry ze = zis.getNextEntry();
-            while (ze != null) {
-                final String fileName = ze.getName();
-                final File newFile = new File(directory, fileName);
-                if (ze.isDirectory()) {
-                    newFile.mkdirs();
-                } else {
-                    newFile.getParentFile().mkdirs();
-                    newFile.createNewFile();
-                    final FileOutputStream fos = new FileOutputStream(newFile);
-                    int len;
-                    while ((len = zis.read(buffer)) > 0) {
-                        fos.write(buffer, 0, len);
-                    }
-                    fos.close();
-                }
-                ze = zis.getNextEntry();
-            }
-            zis.closeEntry();
-            zis.close();
-        } catch (final IOException e) {
-            throw JkUtilsThrowable.unchecked(e);
+            return unzip(zipFile, directory, filter);
+        } finally {
+            JkUtilsIO.closeQuietly(zipFile);
         }
     }
 
+    /**
+     * Same as {@link #unzip(File, File, FileFilter)} but taking an opened {@link ZipFile} as
+     * argument. The zip file is not closed by this method.
+     */
+    public static int unzip(ZipFile zipFile, File directory, FileFilter filter) {
+        return new ZipExtractor(zipFile, directory, filter).extract();
+    }
+
     private static boolean addEntryInputStream(ZipOutputStream zos, String entryName,
             InputStream inputStream, boolean storedMethod, CrcAndSize crcAndSize) {
         final ZipEntry zipEntry = new ZipEntry(entryName);
@@ -124,8 +128,10 @@ public final class JkUtilsZip {
         } catch (final ZipException e) {
 
             // Ignore duplicate entry - no overwriting
+            JkUtilsIO.closeQuietly(inputStream);
             return false;
         } catch (final IOException e) {
+            JkUtilsIO.closeQuietly(inputStream);
             throw new RuntimeException("Error while adding zip entry " + zipEntry, e);
         }
         final int buffer = 2048;
@@ -136,12 +142,12 @@ public final class JkUtilsZip {
             while ((count = bufferedInputStream.read(data, 0, buffer)) != -1) {
                 zos.write(data, 0, count);
             }
-            bufferedInputStream.close();
-            inputStream.close();
             zos.closeEntry();
             return true;
         } catch (final IOException e) {
             throw new RuntimeException(e);
+        } finally {
+            JkUtilsIO.closeQuietly(bufferedInputStream, inputStream);
         }
     }
 
@@ -224,6 +230,48 @@ public final class JkUtilsZip {
         }
     }
 
+    /**
+     * Add a zip entry having the specified content into the provided <code>ZipOutputStream</code>.
+     * Returns <code>false</code> if the entry was not added cause an entry with the same name
+     * already exists.
+     */
+    public static boolean addZipEntry(ZipOutputStream zos, String entryName, byte[] content,
+            boolean storedMethod) {
+        final InputStream inputStream = new ByteArrayInputStream(content);
+        if (storedMethod) {
+            final CrcAndSize crcAndSize = new CrcAndSize(content);
+            return addEntryInputStream(zos, entryName, inputStream, true, crcAndSize);
+        }
+        return addEntryInputStream(zos, entryName, inputStream, false, null);
+    }
+
+    /**
+     * Copies the specified entry of the specified zip file into the provided
+     * <code>ZipOutputStream</code>. Returns <code>false</code> if the entry was
+     * not added cause an entry with the same name already exists.
+     */
+    public static boolean addZipEntry(ZipOutputStream zos, ZipFile zipFile, ZipEntry entry,
+            boolean storeMethod) {
+        try {
+            if (storeMethod) {
+                final InputStream countInputStream = zipFile.getInputStream(entry);
+                final CrcAndSize crcAndSize;
+                try {
+                    crcAndSize = new CrcAndSize(countInputStream);
+                } finally {
+                    countInputStream.close();
+                }
+                return addEntryInputStream(zos, entry.getName(), zipFile.getInputStream(entry),
+                        true, crcAndSize);
+            }
+            return addEntryInputStream(zos, entry.getName(), zipFile.getInputStream(entry),
+                    false, null);
+        } catch (final IOException e) {
+            throw new RuntimeException("Error while merging entry " + entry.getName()
+                    + " from zip file " + zipFile.getName(), e);
+        }
+    }
+
     /**
      * Writes all the entries from a given ZipFile to the specified
      * {@link ZipOutputStream}.
@@ -233,26 +281,8 @@ public final class JkUtilsZip {
         final Enumeration<? extends ZipEntry> entries = zipFile.entries();
         while (entries.hasMoreElements()) {
             final ZipEntry e = entries.nextElement();
-            try {
-                if (!e.isDirectory()) {
-                    final boolean success;
-                    if (storeMethod) {
-                        final InputStream countInputStream = zipFile.getInputStream(e);
-                        final CrcAndSize crcAndSize = new CrcAndSize(countInputStream);
-                        countInputStream.close();
-                        success = addEntryInputStream(zos, e.getName(), zipFile.getInputStream(e),
-                                true, crcAndSize);
-                    } else {
-                        success = addEntryInputStream(zos, e.getName(), zipFile.getInputStream(e),
-                                false, null);
-                    }
-                    if (!success) {
-                        duplicateEntries.add(e.getName());
-                    }
-                }
-            } catch (final IOException e1) {
-                throw new RuntimeException("Error while merging entry " + e.getName()
-                        + " from zip file " + zipFile.getName(), e1);
+            if (!e.isDirectory() && !addZipEntry(zos, zipFile, e, storeMethod)) {
+                duplicateEntries.add(e.getName());
             }
         }
         return duplicateEntries;
@@ -315,7 +345,7 @@ public final class JkUtilsZip {
      */
     @SuppressWarnings("unchecked")
     public static List<ZipEntry> zipEntries(ZipFile zipFile) {
-        final List<ZipEntry> result = new LinkedList<ZipEntry>();
+        final List<ZipEntry> result = new ArrayList<ZipEntry>(zipFile.size());
         final Enumeration<ZipEntry> en = (Enumeration<ZipEntry>) zipFile.entries();
         while (en.hasMoreElements()) {
             result.add(en.nextElement());
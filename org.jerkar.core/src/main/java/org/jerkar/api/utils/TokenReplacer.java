@@ -0,0 +1,182 @@
+package org.jerkar.api.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Copies a content replacing the ${key} tokens by their value. Unknown tokens are left as is. The
+ * content is scanned block by block for '$' and only the text around the tokens to replace is
+ * processed specifically, so copying a content having no token costs barely more than a plain
+ * copy.
+ * When the charset encodes '$', '{' and '}' as their ASCII byte and never uses these bytes within
+ * multi-byte characters, as UTF-8 or ISO-8859-1, the content is processed as bytes without being
+ * decoded. Otherwise it is decoded and processed as chars.
+ * A '${' not closed within MAX_TOKEN_LENGTH is copied as plain text, so the pending text stays
+ * smaller than a block whatever the content.
+ */
+final class TokenReplacer {
+
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    // Includes the '${' and '}' delimiters
+    static final int MAX_TOKEN_LENGTH = 4 * 1024;
+
+    private final Map<String, String> values;
+
+    private final Charset charset;
+
+    private final Map<String, byte[]> encodedValues;
+
+    TokenReplacer(Map<String, String> values, Charset charset) {
+        this.values = new HashMap<String, String>(values);
+        this.charset = charset;
+        if (isAsciiCompatible(charset)) {
+            this.encodedValues = new HashMap<String, byte[]>();
+            for (final Map.Entry<String, String> entry : values.entrySet()) {
+                if (entry.getValue() != null) {
+                    encodedValues.put(entry.getKey(), entry.getValue().getBytes(charset));
+                }
+            }
+        } else {
+            this.encodedValues = null;
+        }
+    }
+
+    /**
+     * Copies the specified input stream to the specified output stream replacing the tokens.
+     * Streams are not closed.
+     */
+    void copy(InputStream in, OutputStream out) throws IOException {
+        if (encodedValues != null) {
+            copyBytes(in, out);
+            return;
+        }
+        final Writer writer = new OutputStreamWriter(out, charset);
+        copyChars(new InputStreamReader(in, charset), writer);
+        writer.flush();
+    }
+
+    private void copyBytes(InputStream in, OutputStream out) throws IOException {
+        final byte[] buf = new byte[BLOCK_SIZE];
+        int end = 0;
+        boolean eof = false;
+        while (!eof) {
+            final int read = in.read(buf, end, buf.length - end);
+            if (read < 0) {
+                eof = true;
+            } else {
+                end += read;
+            }
+            int written = 0;
+            int i = 0;
+            while (i < end) {
+                if (buf[i] != '$') {
+                    i++;
+                    continue;
+                }
+                if (i + 1 == end) {
+                    break;
+                }
+                if (buf[i + 1] != '{') {
+                    i++;
+                    continue;
+                }
+                final int limit = Math.min(end, i + MAX_TOKEN_LENGTH);
+                int close = i + 2;
+                while (close < limit && buf[close] != '}') {
+                    close++;
+                }
+                if (close == limit) {
+                    if (limit == end) {
+                        break;
+                    }
+                    i++;
+                    continue;
+                }
+                final String key = new String(buf, i + 2, close - i - 2, charset);
+                final byte[] value = encodedValues.get(key);
+                if (value != null) {
+                    out.write(buf, written, i - written);
+                    out.write(value);
+                    written = close + 1;
+                }
+                i = close + 1;
+            }
+
+            // A token possibly cut by the end of the block is kept until next block is read
+            final int pending = eof ? end : i;
+            out.write(buf, written, pending - written);
+            end = end - pending;
+            System.arraycopy(buf, pending, buf, 0, end);
+        }
+    }
+
+    private void copyChars(Reader in, Writer out) throws IOException {
+        final char[] buf = new char[BLOCK_SIZE];
+        int end = 0;
+        boolean eof = false;
+        while (!eof) {
+            final int read = in.read(buf, end, buf.length - end);
+            if (read < 0) {
+                eof = true;
+            } else {
+                end += read;
+            }
+            int written = 0;
+            int i = 0;
+            while (i < end) {
+                if (buf[i] != '$') {
+                    i++;
+                    continue;
+                }
+                if (i + 1 == end) {
+                    break;
+                }
+                if (buf[i + 1] != '{') {
+                    i++;
+                    continue;
+                }
+                final int limit = Math.min(end, i + MAX_TOKEN_LENGTH);
+                int close = i + 2;
+                while (close < limit && buf[close] != '}') {
+                    close++;
+                }
+                if (close == limit) {
+                    if (limit == end) {
+                        break;
+                    }
+                    i++;
+                    continue;
+                }
+                final String value = values.get(new String(buf, i + 2, close - i - 2));
+                if (value != null) {
+                    out.write(buf, written, i - written);
+                    out.write(value);
+                    written = close + 1;
+                }
+                i = close + 1;
+            }
+            final int pending = eof ? end : i;
+            out.write(buf, written, pending - written);
+            end = end - pending;
+            System.arraycopy(buf, pending, buf, 0, end);
+        }
+    }
+
+    private static boolean isAsciiCompatible(Charset charset) {
+        if (!charset.name().equals("UTF-8") && charset.newEncoder().maxBytesPerChar() != 1) {
+            return false;
+        }
+        return Arrays.equals("${}".getBytes(charset), new byte[] { '$', '{', '}' });
+    }
+
+}
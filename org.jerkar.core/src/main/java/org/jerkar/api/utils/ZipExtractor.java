@@ -0,0 +1,195 @@
+package org.jerkar.api.utils;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/*
+ * Extracts zip entries using random access on the zip file and channels on the written files.
+ * Entries are dispatched on a thread pool when there is enough of them to make it worth.
+ */
+final class ZipExtractor {
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private static final int MIN_ENTRIES_FOR_PARALLEL = 16;
+
+    private final ZipFile zipFile;
+
+    private final File directory;
+
+    private final FileFilter filter;
+
+    private final ThreadLocal<ByteBuffer> buffers = new ThreadLocal<ByteBuffer>() {
+
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+
+    };
+
+    ZipExtractor(ZipFile zipFile, File directory, FileFilter filter) {
+        this.zipFile = zipFile;
+        this.directory = JkUtilsFile.canonicalFile(directory);
+        this.filter = filter;
+    }
+
+    /**
+     * Extracts the entries and returns the count of files actually written.
+     */
+    int extract() {
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        final List<ZipEntry> fileEntries = new ArrayList<ZipEntry>();
+        final Enumeration<? extends ZipEntry> en = zipFile.entries();
+        while (en.hasMoreElements()) {
+            final ZipEntry entry = en.nextElement();
+            final File target = target(entry);
+            if (filter != null && !filter.accept(target)) {
+                continue;
+            }
+            if (entry.isDirectory()) {
+                target.mkdirs();
+            } else {
+                fileEntries.add(entry);
+            }
+        }
+        final int threadCount = Math.min(Runtime.getRuntime().availableProcessors(),
+                fileEntries.size() / MIN_ENTRIES_FOR_PARALLEL);
+        if (threadCount <= 1) {
+            int count = 0;
+            for (final ZipEntry entry : fileEntries) {
+                if (extract(entry)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        return extractInParallel(fileEntries, threadCount);
+    }
+
+    private int extractInParallel(List<ZipEntry> entries, int threadCount) {
+        final ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        try {
+            final List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>(entries.size());
+            for (final ZipEntry entry : entries) {
+                futures.add(executorService.submit(new Callable<Boolean>() {
+
+                    @Override
+                    public Boolean call() throws Exception {
+                        return extract(entry);
+                    }
+                }));
+            }
+            int count = 0;
+            for (final Future<Boolean> future : futures) {
+                if (future.get()) {
+                    count++;
+                }
+            }
+            return count;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private File target(ZipEntry entry) {
+        final String name = entry.getName().replace('\\', '/');
+        if (name.startsWith("/") || name.equals("..") || name.startsWith("../")
+                || name.contains("/../") || name.endsWith("/..")) {
+            throw new IllegalStateException("Entry " + entry.getName() + " of "
+                    + zipFile.getName() + " points outside of " + directory.getPath());
+        }
+        return new File(directory, entry.getName());
+    }
+
+    private boolean extract(ZipEntry entry) {
+        final File target = new File(directory, entry.getName());
+        if (isUpToDate(entry, target)) {
+            return false;
+        }
+        target.getParentFile().mkdirs();
+        InputStream inputStream = null;
+        FileOutputStream outputStream = null;
+        try {
+            inputStream = zipFile.getInputStream(entry);
+            outputStream = new FileOutputStream(target);
+            final ReadableByteChannel in = Channels.newChannel(inputStream);
+            final FileChannel out = outputStream.getChannel();
+            final ByteBuffer buffer = buffers.get();
+            buffer.clear();
+            while (in.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                buffer.clear();
+            }
+        } catch (final IOException e) {
+            throw new RuntimeException("Error while extracting entry " + entry.getName()
+                    + " from " + zipFile.getName(), e);
+        } finally {
+            JkUtilsIO.closeQuietly(outputStream, inputStream);
+        }
+        if (entry.getTime() != -1) {
+            target.setLastModified(entry.getTime());
+        }
+        return true;
+    }
+
+    private boolean isUpToDate(ZipEntry entry, File target) {
+        if (!target.isFile() || entry.getSize() == -1 || entry.getCrc() == -1) {
+            return false;
+        }
+        if (target.length() != entry.getSize()) {
+            return false;
+        }
+        return crc(target) == entry.getCrc();
+    }
+
+    private long crc(File file) {
+        final CRC32 crc = new CRC32();
+        final byte[] bytes = new byte[BUFFER_SIZE];
+        final FileInputStream inputStream = JkUtilsIO.inputStream(file);
+        try {
+            int len;
+            while ((len = inputStream.read(bytes)) != -1) {
+                crc.update(bytes, 0, len);
+            }
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            JkUtilsIO.closeQuietly(inputStream);
+        }
+        return crc.getValue();
+    }
+
+}
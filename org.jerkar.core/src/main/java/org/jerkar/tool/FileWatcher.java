@@ -0,0 +1,116 @@
+package org.jerkar.tool;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.jerkar.api.file.JkFileTree;
+import org.jerkar.api.file.JkFileTreeSet;
+import org.jerkar.api.utils.JkUtilsSystem;
+
+/*
+ * Detects the files created, modified or deleted in a set of file trees by comparing the size and
+ * last modification time of their files between two scans. Polling is used rather than native
+ * file system notifications as these are not available in the JDKs Jerkar runs on.
+ */
+final class FileWatcher {
+
+    private static final long POLL_PERIOD = 500;
+
+    // Changes are reported once no change has happened for this period, so a burst of changes is
+    // reported at once
+    private static final long QUIET_PERIOD = 300;
+
+    private final JkFileTreeSet files;
+
+    private Map<File, Stamp> stamps;
+
+    /**
+     * Creates a watcher on the specified files, taking their current state as reference. Trees
+     * whose root does not exist are ignored.
+     */
+    FileWatcher(JkFileTreeSet files) {
+        this.files = files;
+        this.stamps = scan();
+    }
+
+    /**
+     * Waits until some files have changed since the previous call (or since the creation of this
+     * watcher) and returns them. Deleted files are part of the returned set.
+     */
+    Set<File> waitForChanges() {
+        final Set<File> result = new LinkedHashSet<File>();
+        while (result.isEmpty()) {
+            JkUtilsSystem.sleep(POLL_PERIOD);
+            poll(result);
+        }
+        while (true) {
+            JkUtilsSystem.sleep(QUIET_PERIOD);
+            if (!poll(result)) {
+                return result;
+            }
+        }
+    }
+
+    private boolean poll(Set<File> changes) {
+        final Map<File, Stamp> current = scan();
+        boolean changed = false;
+        for (final Map.Entry<File, Stamp> entry : current.entrySet()) {
+            if (!entry.getValue().equals(stamps.get(entry.getKey()))) {
+                changes.add(entry.getKey());
+                changed = true;
+            }
+        }
+        for (final File file : stamps.keySet()) {
+            if (!current.containsKey(file)) {
+                changes.add(file);
+                changed = true;
+            }
+        }
+        stamps = current;
+        return changed;
+    }
+
+    private Map<File, Stamp> scan() {
+        final Map<File, Stamp> result = new HashMap<File, Stamp>();
+        for (final JkFileTree tree : files.fileTrees()) {
+            if (!tree.exists()) {
+                continue;
+            }
+            for (final File file : tree) {
+                result.put(file, new Stamp(file.length(), file.lastModified()));
+            }
+        }
+        return result;
+    }
+
+    private static final class Stamp {
+
+        private final long length;
+
+        private final long lastModified;
+
+        Stamp(long length, long lastModified) {
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Stamp)) {
+                return false;
+            }
+            final Stamp other = (Stamp) obj;
+            return length == other.length && lastModified == other.lastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (length ^ lastModified);
+        }
+
+    }
+
+}
@@ -9,11 +9,15 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.jerkar.api.depmanagement.JkComputedDependency;
 import org.jerkar.api.depmanagement.JkDependencyResolver;
+import org.jerkar.api.file.JkFileHashCache;
 import org.jerkar.api.file.JkFileTree;
+import org.jerkar.api.file.JkFileTreeSet;
 import org.jerkar.api.file.JkPath;
+import org.jerkar.api.java.JkClasspathIndex;
 import org.jerkar.api.system.JkLog;
 import org.jerkar.api.utils.JkUtilsFile;
 import org.jerkar.api.utils.JkUtilsIterable;
@@ -48,12 +52,20 @@ public class JkBuild {
 
     private final JkSlaveBuilds annotatedJkProjectSlaves;
 
+    private Set<File> changedFiles;
+
     /**
      * Constructs a {@link JkBuild}
      */
     protected JkBuild() {
         final File baseDirContext = BASE_DIR_CONTEXT.get();
         this.baseDir = JkUtilsObject.firstNonNull(baseDirContext, JkUtilsFile.workingDir());
+
+        // Done before creating slave builds so the caches are stored along the master ones
+        JkFileHashCache.instance().persistIn(new File(baseDir, JkConstants.BUILD_OUTPUT_PATH
+                + "/" + JkConstants.FILE_HASH_CACHE_NAME));
+        JkClasspathIndex.instance().persistIn(new File(baseDir, JkConstants.BUILD_OUTPUT_PATH
+                + "/" + JkConstants.CLASSPATH_INDEX_NAME));
         final List<JkBuild> subBuilds = populateJkProjectAnnotatedFields();
         this.annotatedJkProjectSlaves = JkSlaveBuilds.of(this.baseDir().root(), subBuilds);
     }
@@ -199,6 +211,34 @@ public class JkBuild {
         return ouputDir().file(relativePath);
     }
 
+    /**
+     * Returns the files whose changes trigger a new execution of this build
+     * when Jerkar runs in watch mode. By default, these are all the files of
+     * the project except the ones located in the build directory and in
+     * version control or IDE metadata directories.
+     */
+    public JkFileTreeSet watchedFiles() {
+        return JkFileTreeSet.of(baseDir().exclude("build/**", "**/.git/**", "**/.svn/**",
+                "**/.hg/**", "**/.idea/**", "**/.settings/**", "**/.gradle/**"));
+    }
+
+    /**
+     * When Jerkar runs in watch mode, returns the files created, modified or
+     * deleted since the previous execution of this build. Returns
+     * <code>null</code> for the first execution or when not in watch mode,
+     * meaning that all files should be considered as changed. Build stages
+     * use it to skip the work whose inputs have not changed, as
+     * {@link org.jerkar.tool.builtins.javabuild.JkJavaBuild#compile()} does.
+     */
+    public final Set<File> changedFiles() {
+        return changedFiles;
+    }
+
+    void setChangedFiles(Set<File> changedFiles) {
+        this.changedFiles = changedFiles == null ? null : Collections
+                .unmodifiableSet(changedFiles);
+    }
+
     // ------------ Jerkar methods ------------
 
 
@@ -225,7 +265,8 @@ public class JkBuild {
     @JkDoc("Clean the output directory.")
     public void clean() {
         JkLog.start("Cleaning output directory " + ouputDir().root().getPath());
-        ouputDir().exclude(JkConstants.BUILD_DEF_BIN_DIR_NAME + "/**").deleteAll();
+        ouputDir().exclude(JkConstants.BUILD_DEF_BIN_DIR_NAME + "/**",
+                JkConstants.FILE_HASH_CACHE_NAME, JkConstants.CLASSPATH_INDEX_NAME).deleteAll();
         JkLog.done();
     }
 
@@ -13,6 +13,10 @@ public final class JkConstants {
 
     static final String BUILD_BOOT = "build/boot";
 
+    static final String FILE_HASH_CACHE_NAME = "file-hash-cache";
+
+    static final String CLASSPATH_INDEX_NAME = "classpath-index";
+
     static final String DEFAULT_JAVA_SOURCE = "src/main/java";
 
     static final Class<?> DEFAULT_BUILD_CLASS = JkClassLoader.current().load(
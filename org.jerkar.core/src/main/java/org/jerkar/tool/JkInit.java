@@ -122,6 +122,10 @@ public final class JkInit {
         return loadResult.standardOptions.buildClass;
     }
 
+    boolean watch() {
+        return loadResult.standardOptions.watch;
+    }
+
     private static LoadResult loadOptionsAndSystemProps(String[] args) {
         final Map<String, String> sysProps = getSpecifiedSystemProps(args);
         JkUtilsTool.setSystemProperties(sysProps);
@@ -265,9 +269,12 @@ public final class JkInit {
 
         String buildClass;
 
+        boolean watch;
+
         @Override
         public String toString() {
-            return "buildClass=" + JkUtilsObject.toString(buildClass) + ", verbose=" + verbose + ", silent=" + silent;
+            return "buildClass=" + JkUtilsObject.toString(buildClass) + ", verbose=" + verbose + ", silent=" + silent
+                    + ", watch=" + watch;
         }
 
     }
@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.InputStream;
 import java.util.List;
 
+import org.jerkar.api.java.junit.JkTestJvmPool;
 import org.jerkar.api.system.JkLog;
 import org.jerkar.api.utils.JkUtilsFile;
 import org.jerkar.api.utils.JkUtilsIO;
@@ -28,10 +29,12 @@ final class Main {
         JkLog.nextLine();
         try {
             project.execute(init);
+            JkTestJvmPool.closeShared();
             final int lenght = printAscii(false, "success.ascii");
             System.out.println(JkUtilsString.repeat(" ", lenght) + "Total build time : "
                     + JkUtilsTime.durationInSeconds(start) + " seconds.");
         } catch (final RuntimeException e) {
+            JkTestJvmPool.closeShared();
             System.err.println();
             e.printStackTrace(System.err);
             final int lenght = printAscii(true, "failed.ascii");
@@ -10,6 +10,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.jerkar.api.java.JkClassFileFilter;
 import org.jerkar.api.java.JkClassLoader;
 import org.jerkar.api.utils.JkUtilsString;
 
@@ -145,7 +146,9 @@ final class PluginDictionnary<T> {
 
     private static <T> Set<JkPluginDescription<T>> loadPlugins(Class<T> templateClass,
             String... patterns) {
-        final Set<Class<?>> matchingClasses = JkClassLoader.of(templateClass).loadClasses(patterns);
+        // Abstract classes are discarded on their class file, so they are not loaded
+        final Set<Class<?>> matchingClasses = JkClassLoader.of(templateClass).loadClasses(
+                JkClassFileFilter.concrete(), patterns);
         final Set<Class<?>> result = new HashSet<Class<?>>();
         for (final Class<?> candidate : matchingClasses) {
             if (templateClass.isAssignableFrom(candidate)
@@ -15,6 +15,7 @@ import org.jerkar.api.depmanagement.JkRepo;
 import org.jerkar.api.depmanagement.JkRepos;
 import org.jerkar.api.depmanagement.JkScopeMapping;
 import org.jerkar.api.file.JkFileTree;
+import org.jerkar.api.file.JkFileTreeSet;
 import org.jerkar.api.file.JkPath;
 import org.jerkar.api.file.JkPathFilter;
 import org.jerkar.api.java.JkClassLoader;
@@ -131,6 +132,10 @@ final class Project {
                     + " .\nAre you sure this directory is a buildable project ?");
         }
         JkLog.done();
+        if (init.watch()) {
+            watch(buidAndDict.build, buidAndDict.dictionnary, init.commandLine());
+            return;
+        }
         try {
             this.launch(buidAndDict.build, buidAndDict.dictionnary, init.commandLine());
         } catch (final RuntimeException e) {
@@ -237,6 +242,53 @@ final class Project {
         runProject(build, commandLine.getMasterMethods(), dictionnary);
     }
 
+    /*
+     * Launches the build then launches it again, in the same JVM, each time the watched files
+     * change. Build failures are reported without stopping the loop. The build classes can not be
+     * reloaded so the loop stops when the build definition changes.
+     */
+    private void watch(JkBuild build, PluginDictionnary<JkBuildPlugin> dictionnary,
+            CommandLine commandLine) {
+        JkFileTreeSet watchedFiles = build.watchedFiles();
+        for (final JkBuild slave : build.slaves().all()) {
+            watchedFiles = watchedFiles.and(slave.watchedFiles());
+        }
+        watchedFiles = watchedFiles.and(JkFileTree.of(this.resolver.buildSourceDir));
+        final FileWatcher watcher = new FileWatcher(watchedFiles);
+        Set<File> changes = null;
+        while (true) {
+            build.setChangedFiles(changes);
+            for (final JkBuild slave : build.slaves().all()) {
+                slave.setChangedFiles(changes);
+            }
+            final int logOffset = JkLog.offset();
+            try {
+                this.launch(build, dictionnary, commandLine);
+                JkLog.info("Build succeeded.");
+            } catch (final RuntimeException e) {
+                JkLog.delta(logOffset - JkLog.offset());
+                JkLog.error("Project " + projectBaseDir.getAbsolutePath() + " failed");
+                e.printStackTrace(JkLog.errorStream());
+            }
+            JkLog.info("Watching " + watchedFiles.rootDirs() + " for changes (Ctrl+C to quit).");
+            changes = watcher.waitForChanges();
+            for (final File file : changes) {
+                if (JkUtilsFile.isAncestor(this.resolver.buildSourceDir, file)) {
+                    JkLog.warn("Build definition " + file.getPath()
+                            + " has changed : relaunch Jerkar to take it into account.");
+                    return;
+                }
+            }
+            JkLog.nextLine();
+            JkLog.info(changes.size() + " file(s) changed : ");
+            JkLog.delta(1);
+            for (final File file : changes) {
+                JkLog.info(file.getPath());
+            }
+            JkLog.delta(-1);
+        }
+    }
+
     private static void runProject(JkBuild build, List<MethodInvocation> invokes,
             PluginDictionnary<JkBuildPlugin> dictionnary) {
         JkLog.infoHeaded("Executing build for project " + build.baseDir().root().getName());
@@ -2,8 +2,12 @@ package org.jerkar.tool.builtins.javabuild;
 
 import java.io.File;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.jerkar.api.depmanagement.JkComputedDependency;
 import org.jerkar.api.depmanagement.JkDependencies;
@@ -23,11 +27,13 @@ import org.jerkar.api.java.JkJavaProcess;
 import org.jerkar.api.java.JkJavadocMaker;
 import org.jerkar.api.java.JkManifest;
 import org.jerkar.api.java.JkResourceProcessor;
+import org.jerkar.api.java.junit.JkTestJvmPool;
 import org.jerkar.api.java.junit.JkUnit;
 import org.jerkar.api.java.junit.JkUnit.JunitReportDetail;
 import org.jerkar.api.system.JkLog;
 import org.jerkar.api.tooling.JkCodeWriterForBuildClass;
 import org.jerkar.api.tooling.JkMvn;
+import org.jerkar.api.utils.JkUtilsFile;
 import org.jerkar.api.utils.JkUtilsJdk;
 import org.jerkar.api.utils.JkUtilsString;
 import org.jerkar.tool.JkBuildDependencySupport;
@@ -109,6 +115,9 @@ public class JkJavaBuild extends JkBuildDependencySupport {
     @JkDoc("Manifest")
     public final JkManifestOption manifest = new JkManifestOption();
 
+    // Watch mode : state of the inputs of the stages that last ran successfully, by stage name
+    private final Map<String, String> upToDateStages = new HashMap<String, String>();
+
     @SuppressWarnings({ "unchecked", "rawtypes" })
     @Override
     protected List<Class<Object>> pluginTemplateClasses() {
@@ -200,6 +209,22 @@ public class JkJavaBuild extends JkBuildDependencySupport {
         return JkJavaBuildPlugin.applyTestResourceDirs(this.plugins.getActives(), original);
     }
 
+    /**
+     * Returns the root directories of the sources, resources, test sources and
+     * test resources, except the generated ones.
+     */
+    @Override
+    public JkFileTreeSet watchedFiles() {
+        final Set<File> roots = new LinkedHashSet<File>();
+        for (final File root : sources().and(resources()).and(unitTestSources())
+                .and(unitTestResources()).rootDirs()) {
+            if (!JkUtilsFile.isAncestor(ouputDir().root(), root)) {
+                roots.add(root);
+            }
+        }
+        return JkFileTreeSet.of(roots.toArray(new File[roots.size()]));
+    }
+
     /**
      * Returns location of generated sources.
      */
@@ -282,11 +307,16 @@ public class JkJavaBuild extends JkBuildDependencySupport {
                 this.depsFor(TEST, PROVIDED));
         final File junitReport = new File(this.testReportDir(), "junit");
         JkUnit result = JkUnit.of(classpath).withReportDir(junitReport)
-                .withReport(this.tests.report).withClassesToTest(this.testClassDir());
+                .withReport(this.tests.report).withClassesToTest(this.testClassDir())
+                .withCacheDir(ouputDir("test-cache")).withForcedRun(this.tests.forceRun)
+                .withImpactAnalysis(this.tests.impactAnalysis)
+                .withThreadCount(this.tests.threadCount);
         if (this.tests.fork) {
             final JkJavaProcess javaProcess = JkJavaProcess.of().andCommandLine(
                     this.tests.jvmOptions);
-            result = result.forked(javaProcess, true);
+            result = result.forked(javaProcess, true).withForkCount(this.tests.forkCount)
+                    .withTestTimeout(this.tests.timeout * 1000L)
+                    .withJvmPool(this.tests.reuseJvm ? JkTestJvmPool.shared() : null);
         }
         return result.withOutputOnConsole(this.tests.output || JkLog.verbose());
     }
@@ -375,9 +405,23 @@ public class JkJavaBuild extends JkBuildDependencySupport {
     public void compile() {
         JkLog.startln("Processing production code and resources");
         generateSources();
-        productionCompiler().compile();
+        final String compileState = stageState(generatedSourceDir(), depsFor(COMPILE, PROVIDED));
+        if (isUpToDate("compile", compileState, sources(), classDir())) {
+            JkLog.info("Production sources unchanged since previous execution, skip compilation.");
+        } else {
+            upToDateStages.remove("unitTestCompile");
+            if (productionCompiler().compile()) {
+                upToDateStages.put("compile", compileState);
+            }
+        }
         generateResources();
-        processResources();
+        final String resourceState = stageState(generatedResourceDir(), null);
+        if (isUpToDate("resources", resourceState, resources(), classDir())) {
+            JkLog.info("Production resources unchanged since previous execution, skip processing.");
+        } else {
+            processResources();
+            upToDateStages.put("resources", resourceState);
+        }
         JkLog.done();
     }
 
@@ -389,13 +433,52 @@ public class JkJavaBuild extends JkBuildDependencySupport {
             return;
         }
         JkLog.startln("Process unit tests");
-        unitTestCompiler().compile();
+        final String compileState = stageState(null, depsFor(TEST, PROVIDED));
+        if (isUpToDate("unitTestCompile", compileState, unitTestSources(), testClassDir())) {
+            JkLog.info("Test sources unchanged since previous execution, skip compilation.");
+        } else if (unitTestCompiler().compile()) {
+            upToDateStages.put("unitTestCompile", compileState);
+        }
         generateUnitTestResources();
-        processUnitTestResources();
+        final String resourceState = stageState(generatedTestResourceDir(), null);
+        if (isUpToDate("unitTestResources", resourceState, unitTestResources(), testClassDir())) {
+            JkLog.info("Test resources unchanged since previous execution, skip processing.");
+        } else {
+            processUnitTestResources();
+            upToDateStages.put("unitTestResources", resourceState);
+        }
+
+        // Test classes that passed and whose classes are unchanged are skipped by the tester
         unitTester().run();
         JkLog.done();
     }
 
+    /*
+     * In watch mode, a stage does not need to run again if it succeeded in a previous execution
+     * and none of its edited inputs is among the changed files. Generated inputs and the classpath
+     * are not watched, so they are compared through the stage state.
+     */
+    private boolean isUpToDate(String stage, String state, JkFileTreeSet inputs, File outputDir) {
+        if (changedFiles() == null || !state.equals(upToDateStages.get(stage))
+                || JkFileTree.of(outputDir).isEmpty()) {
+            return false;
+        }
+        for (final File file : changedFiles()) {
+            for (final JkFileTree tree : inputs.fileTrees()) {
+                if (tree.contains(file)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static String stageState(File generatedDir, Iterable<File> classpath) {
+        final String generated = generatedDir == null ? "" : JkFileTree.of(generatedDir)
+                .snapshot();
+        return generated + File.pathSeparator + classpath;
+    }
+
     /** Produce documents for this project (javadoc, Html site, ...) */
     @JkDoc("Produce documents for this project (javadoc, Html site, ...)")
     public void javadoc() {
@@ -706,6 +789,18 @@ public class JkJavaBuild extends JkBuildDependencySupport {
         @JkDoc("Turn it on to skip tests.")
         public boolean skip;
 
+        /** Turn it on to run all tests, even those unchanged since they passed. */
+        @JkDoc("Turn it on to run all tests, even those unchanged since they passed.")
+        public boolean forceRun;
+
+        /**
+         * Turn it on to run again only the tests depending on classes changed
+         * since they passed.
+         */
+        @JkDoc({ "Turn it on to run again only the tests depending on classes changed since they passed.",
+            "Dependencies are computed from the bytecode so ones through reflection are not seen." })
+        public boolean impactAnalysis;
+
         /** Turn it on to run tests in a forked process. */
         @JkDoc("Turn it on to run tests in a forked process.")
         public boolean fork;
@@ -714,6 +809,24 @@ public class JkJavaBuild extends JkBuildDependencySupport {
         @JkDoc("Argument passed to the JVM if tests are forked. Example : -Xms2G -Xmx2G")
         public String jvmOptions;
 
+        /** Number of processes running tests concurrently if tests are forked. */
+        @JkDoc("Number of processes running tests concurrently if tests are forked.")
+        public int forkCount = 1;
+
+        /** Turn it on to run forked tests in JVMs kept alive for the whole build. */
+        @JkDoc({ "Turn it on to run forked tests in JVMs kept alive for the whole build.",
+            "It saves JVM startups, notably for multi-project builds, but static state of libraries is kept between runs." })
+        public boolean reuseJvm;
+
+        /** Number of test classes running concurrently in each JVM running tests. */
+        @JkDoc({ "Number of test classes running concurrently in each JVM running tests.",
+            "Classes annotated with an annotation named NotThreadSafe run alone after the others." })
+        public int threadCount = 1;
+
+        /** Maximum duration in seconds of a single test if tests are forked, 0 for no limit. */
+        @JkDoc("Maximum duration in seconds of a single test if tests are forked, 0 for no limit.")
+        public int timeout;
+
         /** Detail level for the test report */
         @JkDoc({ "The more details the longer tests take to be processed.",
             "BASIC mention the total time elapsed along detail on failed tests.",
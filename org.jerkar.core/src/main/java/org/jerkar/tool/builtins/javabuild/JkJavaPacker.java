@@ -9,6 +9,8 @@ import java.util.Set;
 import org.jerkar.api.crypto.pgp.JkPgp;
 import org.jerkar.api.file.JkFileTree;
 import org.jerkar.api.file.JkFileTreeSet;
+import org.jerkar.api.file.JkPathFilter;
+import org.jerkar.api.file.JkZipEntryMerger;
 import org.jerkar.api.file.JkZipper;
 import org.jerkar.api.java.JkManifest;
 import org.jerkar.api.system.JkLog;
@@ -162,18 +164,23 @@ public class JkJavaPacker implements Cloneable {
             .sha1If(checkSums.contains("SHA-1"));
         }
         final JkFileTreeSet sourceAndResources = build.sources().and(build.resources());
-        if (doSources && sourceAndResources.countFiles(false) > 0) {
+        if (doSources && !sourceAndResources.isEmpty()) {
             build.sources().and(build.resources()).zip().to(jarSourceFile());
         }
         if (doTest && !build.tests.skip && build.testClassDir().exists()
-                && !JkFileTree.of(build.testClassDir()).files(false).isEmpty()) {
+                && !JkFileTree.of(build.testClassDir()).isEmpty()) {
             JkZipper.of(build.testClassDir()).to(jarTestFile());
         }
-        if (doTest && doSources && !build.unitTestSources().files(false).isEmpty()) {
+        if (doTest && doSources && !build.unitTestSources().isEmpty()) {
             build.unitTestSources().and(build.unitTestResources()).zip().to(jarTestSourceFile());
         }
         if (doFatJar) {
             JkFileTree.of(build.classDir()).zip().merge(build.depsFor(JkJavaBuild.RUNTIME))
+            .withMerger(JkPathFilter.include(JkManifest.PATH), JkManifest.ENTRY_MERGER)
+            .withMerger(JkPathFilter.include("META-INF/spring.factories"),
+                    JkZipEntryMerger.APPEND_PROPERTY_VALUES)
+            .withMerger(JkPathFilter.include("META-INF/services/**", "META-INF/spring.*"),
+                    JkZipEntryMerger.CONCAT_LINES)
             .to(fatJarFile()).md5If(checkSums.contains("MD5"))
             .sha1If(checkSums.contains("SHA-1"));
         }
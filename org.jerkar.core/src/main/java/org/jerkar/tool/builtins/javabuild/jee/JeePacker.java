@@ -1,10 +1,19 @@
 package org.jerkar.tool.builtins.javabuild.jee;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.jerkar.api.file.JkFileTree;
 import org.jerkar.api.file.JkFileTreeSet;
-import org.jerkar.api.file.JkPath;
+import org.jerkar.api.file.JkZipper;
+import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsFile;
 import org.jerkar.tool.builtins.javabuild.JkJavaBuild;
 import org.jerkar.tool.builtins.javabuild.JkJavaPacker.JkExtraPacking;
 
@@ -28,17 +37,104 @@ class JeePacker {
     }
 
 
+    /**
+     * Assembles the exploded war in the specified directory. This directory is updated
+     * incrementally : unchanged files are left untouched, runtime jars are hard linked from
+     * their original location when possible and files no longer part of the war are deleted.
+     */
     void war(File webappSrc, File warDirDest, JkFileTreeSet extra) {
+        checkWebXml(webappSrc);
+        war(webappSrc, build.classDir(), build.depsFor(JkJavaBuild.RUNTIME), extra, warDirDest);
+    }
+
+    static void war(File webappSrc, File classDir, Iterable<File> libs, JkFileTreeSet extra,
+            File warDirDest) {
+        // Sources are mapped to their target first, the last one winning, so a target
+        // shared by several sources is copied once and stays up-to-date across runs
+        final Map<File, File> warFiles = new HashMap<File, File>();
+        map(JkFileTree.of(webappSrc), warDirDest, warFiles);
+        map(JkFileTree.of(classDir), new File(warDirDest, "WEB-INF/classes"), warFiles);
+        final File libDir = new File(warDirDest, "WEB-INF/lib");
+        final Set<File> jars = new HashSet<File>();
+        for (final File jar : libs) {
+            if (jar.isFile()) {
+                warFiles.put(new File(libDir, jar.getName()), jar);
+                jars.add(jar);
+            }
+        }
+        for (final JkFileTree fileTree : extra.fileTrees()) {
+            map(fileTree, warDirDest, warFiles);
+        }
+        for (final Map.Entry<File, File> entry : warFiles.entrySet()) {
+            final File source = entry.getValue();
+            JkUtilsFile.copyFileIfChanged(source, entry.getKey(), jars.contains(source));
+        }
+        deleteStaleFiles(warDirDest, warFiles.keySet());
+    }
+
+    /**
+     * Writes the war archive directly from the webapp sources, class directory and runtime
+     * jars, without assembling an exploded war directory first. Jars are stored without
+     * compression in the archive.
+     */
+    void warArchive(File webappSrc, JkFileTreeSet extra, File destFile) {
+        checkWebXml(webappSrc);
+        warArchive(webappSrc, build.classDir(), build.depsFor(JkJavaBuild.RUNTIME), extra,
+                destFile);
+    }
+
+    /*
+     * The zipper keeps the first entry written under a given name, so the sources are added in
+     * the reverse order of the exploded war assembly to let the same files win.
+     */
+    static void warArchive(File webappSrc, File classDir, Iterable<File> libs,
+            JkFileTreeSet extra, File destFile) {
+        final List<JkFileTree> extraTrees = new ArrayList<JkFileTree>(extra.fileTrees());
+        Collections.reverse(extraTrees);
+        JkZipper zipper = JkFileTreeSet.of(extraTrees).zip().withNestedArchivesStored();
+        for (final File jar : libs) {
+            if (jar.isFile()) {
+                zipper = zipper.andEntryPath("WEB-INF/lib", jar);
+            }
+        }
+        zipper.andFileTree("WEB-INF/classes", JkFileTree.of(classDir))
+                .andFileTree("", JkFileTree.of(webappSrc)).to(destFile);
+    }
+
+    private static void checkWebXml(File webappSrc) {
         if (!new File(webappSrc, "WEB-INF/web.xml").exists()) {
             throw new IllegalStateException("The directory " + webappSrc.getPath()
                     + " does not contains WEB-INF" + File.separator + "web.xml file");
         }
-        final JkPath path = build.depsFor(JkJavaBuild.RUNTIME);
-        JkFileTree.of(warDirDest).importDirContent(webappSrc)
-        .from("WEB-INF/classes").importDirContent(build.classDir()).from("../lib")
-        .importFiles(path);
-        extra.copyTo(warDirDest);
+    }
+
+    private static void map(JkFileTree source, File targetDir, Map<File, File> targetSources) {
+        if (!source.exists()) {
+            return;
+        }
+        final String rootPath = source.root().getPath();
+        for (final File file : source) {
+            final String relativePath = file.getPath().substring(rootPath.length());
+            targetSources.put(new File(targetDir, relativePath), file);
+        }
+    }
 
+    private static void deleteStaleFiles(File dir, Set<File> filesToKeep) {
+        final File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (final File child : children) {
+            if (child.isDirectory()) {
+                deleteStaleFiles(child, filesToKeep);
+                if (child.list().length == 0) {
+                    child.delete();
+                }
+            } else if (!filesToKeep.contains(child)) {
+                JkLog.trace("Removing stale file " + child.getPath());
+                JkUtilsFile.delete(child);
+            }
+        }
     }
 
     JkExtraPacking warExtraPacking(final File webappSrc, final File warDirDest, final JkFileTreeSet extra) {
@@ -53,6 +149,25 @@ class JeePacker {
 
 
 
+    /**
+     * Writes the ear archive directly from the ear sources and the specified war files. The
+     * war files are stored without compression in the archive.
+     */
+    public void ear(Iterable<File> warFiles, File earSrc, File destFile) {
+        JkZipper zipper = JkFileTree.of(earSrc).zip().withNestedArchivesStored();
+        for (final File warFile : warFiles) {
+            zipper = zipper.andEntryName(warFile.getName(), warFile);
+        }
+        zipper.to(destFile);
+    }
+
+    /**
+     * Assembles the ear in the specified directory then zips it to the specified file.
+     *
+     * @deprecated Use {@link #ear(Iterable, File, File)}, which writes the ear without
+     *             assembling it in a directory first.
+     */
+    @Deprecated
     public void ear(Iterable<File> warFiles, File earSrc, File destDir, File destFile) {
         JkFileTree.of(destDir).importDirContent(earSrc).importFiles(warFiles).zip().to(destFile);
     }
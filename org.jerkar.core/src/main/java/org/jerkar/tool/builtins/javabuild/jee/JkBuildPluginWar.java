@@ -31,6 +31,10 @@ public class JkBuildPluginWar extends JkJavaBuildPlugin {
     @JkDoc("True to produce a regular jar containing classes and resources.")
     public boolean regularJar = false;
 
+    /** False to write the war file directly from sources, without creating the exploded war directory. */
+    @JkDoc("False to write the war file directly from sources, without creating the exploded war directory.")
+    public boolean explodedWar = true;
+
     private JkFileTreeSet importedStaticResources = JkFileTreeSet.empty();
 
     @Override
@@ -59,9 +63,14 @@ public class JkBuildPluginWar extends JkJavaBuildPlugin {
                 @Override
                 public void process(JkJavaBuild build) {
                     JkLog.startln("Creating war file");
-                    final File dir = build.ouputDir(packer.baseName() + "-war");
-                    JeePacker.of(build).war(webappSrcFile(), dir, importedStaticResources);
-                    JkFileTree.of(dir).zip().to(warFile());
+                    if (explodedWar) {
+                        final File dir = build.ouputDir(packer.baseName() + "-war");
+                        JeePacker.of(build).war(webappSrcFile(), dir, importedStaticResources);
+                        JkFileTree.of(dir).zip().withNestedArchivesStored().to(warFile());
+                    } else {
+                        JeePacker.of(build).warArchive(webappSrcFile(), importedStaticResources,
+                                warFile());
+                    }
                     JkLog.done();
                 }
             });
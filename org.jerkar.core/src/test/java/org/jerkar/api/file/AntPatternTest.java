@@ -27,6 +27,19 @@ public class AntPatternTest {
         assertTrue(!AntPattern.of("k*/bar.txt").doMatch(path));
     }
 
+    @Test
+    public void testDescendantMatches() {
+        assertTrue(AntPattern.of("src/**/*.java").mayMatchUnder("src/foo"));
+        assertTrue(AntPattern.of("**/*.java").mayMatchUnder("node_modules"));
+        assertTrue(!AntPattern.of("src/**/*.java").mayMatchUnder("test"));
+        assertTrue(!AntPattern.of("src/*.java").mayMatchUnder("src/foo"));
+
+        assertTrue(AntPattern.of("**/.git/**").matchesAllUnder("foo/.git"));
+        assertTrue(AntPattern.of("node_modules/**").matchesAllUnder("node_modules/bar"));
+        assertTrue(!AntPattern.of("node_modules/**").matchesAllUnder("src"));
+        assertTrue(!AntPattern.of("**/*.java").matchesAllUnder("src"));
+    }
+
     private void testDoMatchOk(String path) {
         assertTrue(AntPattern.of("**/*.txt").doMatch(path));
         assertTrue(AntPattern.of("foo/bar.txt").doMatch(path));
@@ -0,0 +1,40 @@
+package org.jerkar.api.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+
+import org.jerkar.api.utils.JKUtilsTests;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class JkFileHashCacheTest {
+
+    @Test
+    public void testSnapshotChangesWithContent() {
+        final File dir = JKUtilsTests.tempFile("snapshot");
+        JkUtilsFile.deleteDirContent(dir);
+        final File file = new File(dir, "foo/bar.txt");
+        JkUtilsFile.writeString(file, "bar", false);
+        file.setLastModified(file.lastModified() - 10000);
+        final JkFileTree tree = JkFileTree.of(dir);
+        final String snapshot = tree.snapshot();
+        assertEquals(snapshot, tree.snapshot());
+        assertEquals(JkUtilsFile.checksum(file, "MD5"), JkFileHashCache.instance().hash(file));
+
+        // Same modification time but not the same size
+        final long lastModified = file.lastModified();
+        JkUtilsFile.writeString(file, "bar2", false);
+        file.setLastModified(lastModified);
+        final String modifiedSnapshot = tree.snapshot();
+        assertFalse(snapshot.equals(modifiedSnapshot));
+
+        JkUtilsFile.writeString(new File(dir, "foo/other.txt"), "", false);
+        assertFalse(modifiedSnapshot.equals(tree.snapshot()));
+        assertEquals(JkFileTreeSet.of(tree).snapshot(), JkFileTreeSet.of(tree).snapshot());
+        JkUtilsFile.deleteDir(dir);
+    }
+
+}
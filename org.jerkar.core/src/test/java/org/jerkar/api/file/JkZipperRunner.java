@@ -0,0 +1,62 @@
+package org.jerkar.api.file;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+import org.jerkar.api.utils.JKUtilsTests;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsZip;
+
+/**
+ * Benchmarks the creation and merge of an archive containing a large number of
+ * entries (first argument, default 200000), reporting duration and peak heap usage.
+ * Run it with a small heap (-Xmx64m) to check memory stays bounded.
+ */
+@SuppressWarnings("javadoc")
+public class JkZipperRunner {
+
+    public static void main(String[] args) {
+        final int entryCount = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        final File dir = JKUtilsTests.tempFile("zipper-bench/files");
+        JkUtilsFile.deleteDirContent(dir);
+        for (int i = 0; i < entryCount; i++) {
+            final File file = new File(dir, "dir" + (i % 500) + "/file" + i + ".txt");
+            JkUtilsFile.writeString(file, "content " + i, false);
+        }
+        final File zip = JKUtilsTests.tempFile("zipper-bench/bench.zip");
+        final File merged = JKUtilsTests.tempFile("zipper-bench/merged.zip");
+
+        resetPeaks();
+        long start = System.nanoTime();
+        JkFileTree.of(dir).zip().to(zip);
+        report("Zip " + entryCount + " files", start);
+
+        resetPeaks();
+        start = System.nanoTime();
+        JkFileTreeSet.empty().zip().merge(zip, zip).to(merged);
+        report("Merge twice an archive of " + entryCount + " entries", start);
+        System.out.println(JkUtilsZip.zipEntries(JkUtilsZip.zipFile(merged)).size()
+                + " entries in merged archive");
+    }
+
+    private static void resetPeaks() {
+        System.gc();
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+    }
+
+    private static void report(String label, long startNano) {
+        long peak = 0;
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        System.out.println(label + " : " + (System.nanoTime() - startNano) / 1000000
+                + " ms, peak heap " + peak / (1024 * 1024) + " MB");
+    }
+
+}
@@ -0,0 +1,122 @@
+package org.jerkar.api.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarFile;
+import java.util.jar.JarInputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.jerkar.api.utils.JKUtilsTests;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsIO;
+import org.jerkar.api.utils.JkUtilsZip;
+import org.junit.Assert;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class JkZipperTest {
+
+    private static final String SERVICE = "META-INF/services/org.foo.Service";
+
+    @Test
+    public void testMergeConcatsServiceFiles() {
+        final File dir1 = JKUtilsTests.tempFile("zipper/dir1");
+        final File dir2 = JKUtilsTests.tempFile("zipper/dir2");
+        JkUtilsFile.writeString(new File(dir1, SERVICE), "org.foo.Impl1", false);
+        JkUtilsFile.writeString(new File(dir2, SERVICE), "org.foo.Impl2\n", false);
+        JkUtilsFile.writeString(new File(dir2, "other.txt"), "other", false);
+        final File jar2 = JKUtilsTests.tempFile("zipper/jar2.jar");
+        JkFileTree.of(dir2).zip().to(jar2);
+        final File merged = JKUtilsTests.tempFile("zipper/merged.jar");
+        JkFileTree.of(dir1).zip().merge(jar2)
+        .withMerger(JkPathFilter.include("META-INF/services/**"), JkZipEntryMerger.CONCAT_LINES)
+        .to(merged);
+
+        final JkZipFile zipFile = JkZipFile.of(merged);
+        final InputStream inputStream = zipFile.inputStream(SERVICE);
+        final String content = JkUtilsIO.readAsString(inputStream);
+        JkUtilsIO.closeQuietly(inputStream, zipFile);
+        Assert.assertTrue(content, content.contains("org.foo.Impl1"));
+        Assert.assertTrue(content, content.contains("org.foo.Impl2"));
+        JkUtilsFile.deleteDir(JKUtilsTests.tempFile("zipper"));
+    }
+
+    @Test
+    public void testPrefixedTreeAndStoredNestedArchive() {
+        final File dir = JKUtilsTests.tempFile("zipper2/classes");
+        JkUtilsFile.writeString(new File(dir, "foo/Bar.class"), "bar", false);
+        final File nested = JKUtilsTests.tempFile("zipper2/nested.jar");
+        JkFileTree.of(dir).zip().to(nested);
+        final File war = JKUtilsTests.tempFile("zipper2/my.war");
+        JkFileTreeSet.empty().zip().withNestedArchivesStored().andFileTree("WEB-INF/classes", JkFileTree.of(dir))
+        .andEntryPath("WEB-INF/lib", nested).to(war);
+
+        final ZipFile zipFile = JkUtilsZip.zipFile(war);
+        Assert.assertNotNull(zipFile.getEntry("WEB-INF/classes/foo/Bar.class"));
+        Assert.assertEquals(ZipEntry.STORED, zipFile.getEntry("WEB-INF/lib/nested.jar").getMethod());
+        JkUtilsIO.closeQuietly(zipFile);
+        JkUtilsFile.deleteDir(JKUtilsTests.tempFile("zipper2"));
+    }
+
+    @Test
+    public void testMergedManifestIsFirstEntry() throws IOException {
+        final File dir = JKUtilsTests.tempFile("zipper3/classes");
+        JkUtilsFile.writeString(new File(dir, "bar/B.class"), "b", false);
+        JkUtilsFile.writeString(new File(dir, "foo/A.class"), "a", false);
+        JkUtilsFile.writeString(new File(dir, "z.txt"), "z", false);
+        final File depDir = JKUtilsTests.tempFile("zipper3/dep");
+        JkUtilsFile.writeString(new File(depDir, JarFile.MANIFEST_NAME),
+                "Manifest-Version: 1.0\nMain-Class: foo.A\n", false);
+        final File dep = JKUtilsTests.tempFile("zipper3/dep.jar");
+        JkFileTree.of(depDir).zip().to(dep);
+        final File fatJar = JKUtilsTests.tempFile("zipper3/fat.jar");
+        JkFileTree.of(dir).zip().merge(dep)
+        .withMerger(JkPathFilter.include(JarFile.MANIFEST_NAME), JkZipEntryMerger.FIRST_WINS)
+        .to(fatJar);
+
+        final JarInputStream jarInputStream = new JarInputStream(JkUtilsIO.inputStream(fatJar));
+        final Manifest manifest = jarInputStream.getManifest();
+        jarInputStream.close();
+        Assert.assertNotNull(manifest);
+        Assert.assertEquals("foo.A", manifest.getMainAttributes().getValue("Main-Class"));
+        JkUtilsFile.deleteDir(JKUtilsTests.tempFile("zipper3"));
+    }
+
+    @Test
+    public void testAppendPropertyValuesIsReproducible() {
+        final List<byte[]> contents = Arrays.asList("b=1\nz=0\na=2".getBytes(),
+                "a=3\nc=x y\nm=4".getBytes());
+        final byte[] merged = JkZipEntryMerger.APPEND_PROPERTY_VALUES.merge("spring.factories",
+                contents);
+        final String content = new String(merged);
+        Assert.assertFalse(content, content.contains("#"));
+        Assert.assertEquals(Arrays.asList("b=1", "z=0", "a=2,3", "c=x y", "m=4"),
+                Arrays.asList(content.trim().split("\\s*\n\\s*")));
+        Assert.assertArrayEquals(merged, JkZipEntryMerger.APPEND_PROPERTY_VALUES.merge(
+                "spring.factories", contents));
+    }
+
+    @Test
+    public void testPrefixedTreeIsFilteredOnRelativePaths() {
+        final File dir = JKUtilsTests.tempFile("zipper4/classes");
+        JkUtilsFile.writeString(new File(dir, "foo/Foo.class"), "foo", false);
+        JkUtilsFile.writeString(new File(dir, "foo/sub/Sub.class"), "sub", false);
+        JkUtilsFile.writeString(new File(dir, "bar/Bar.class"), "bar", false);
+        final File war = JKUtilsTests.tempFile("zipper4/my.war");
+        JkFileTreeSet.empty().zip()
+        .andFileTree("WEB-INF/classes", JkFileTree.of(dir).include("foo/**")).to(war);
+
+        final ZipFile zipFile = JkUtilsZip.zipFile(war);
+        Assert.assertNotNull(zipFile.getEntry("WEB-INF/classes/foo/Foo.class"));
+        Assert.assertNotNull(zipFile.getEntry("WEB-INF/classes/foo/sub/Sub.class"));
+        Assert.assertNull(zipFile.getEntry("WEB-INF/classes/bar/Bar.class"));
+        JkUtilsIO.closeQuietly(zipFile);
+        JkUtilsFile.deleteDir(JKUtilsTests.tempFile("zipper4"));
+    }
+
+}
@@ -0,0 +1,69 @@
+package org.jerkar.api.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.jerkar.api.file.JkPathFilter;
+import org.jerkar.api.utils.JKUtilsTests;
+import org.jerkar.api.utils.JkUtilsIO;
+import org.junit.Assert;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class ClassNameIteratorTest {
+
+    private static final String ABSTRACT_CLASS = "org/jerkar/api/java/JkClassFileFilter.class";
+
+    private static final String CONCRETE_CLASS = "org/jerkar/api/java/JkClassFileFilter$1.class";
+
+    @Test
+    public void testIterateFoldersAndArchives() throws IOException {
+        final File jar = JKUtilsTests.tempFile("classnames/lib.jar");
+        jar.getParentFile().mkdirs();
+        final ZipOutputStream outputStream = new ZipOutputStream(JkUtilsIO.outputStream(jar,
+                false));
+        for (final String path : Arrays.asList(ABSTRACT_CLASS, CONCRETE_CLASS, "res.txt")) {
+            outputStream.putNextEntry(new ZipEntry(path));
+            final InputStream inputStream = JkClassFileFilter.class.getResourceAsStream("/"
+                    + path);
+            if (inputStream != null) {
+                JkUtilsIO.copy(inputStream, outputStream);
+                inputStream.close();
+            }
+        }
+        outputStream.close();
+
+        Assert.assertEquals(Arrays.asList("org.jerkar.api.java.JkClassFileFilter",
+                "org.jerkar.api.java.JkClassFileFilter$1"),
+                names(jar, JkClassFileFilter.ACCEPT_ALL));
+        Assert.assertEquals(Arrays.asList("org.jerkar.api.java.JkClassFileFilter$1"),
+                names(jar, JkClassFileFilter.concrete()));
+
+        final File classDir = new File(JkClassFileFilter.class.getResource("/" + ABSTRACT_CLASS)
+                .getFile()).getParentFile().getParentFile().getParentFile().getParentFile()
+                .getParentFile();
+        final List<String> dirNames = names(classDir, JkClassFileFilter.concrete());
+        Assert.assertTrue(dirNames.contains("org.jerkar.api.java.JkClassFileFilter$1"));
+        Assert.assertFalse(dirNames.contains("org.jerkar.api.java.JkClassFileFilter"));
+    }
+
+    private static List<String> names(File entry, JkClassFileFilter classFilter) {
+        final List<String> result = new ArrayList<String>();
+        final Iterator<String> it = new ClassNameIterator(Collections.singleton(entry),
+                JkPathFilter.include("**/JkClassFileFilter*"), classFilter);
+        while (it.hasNext()) {
+            result.add(it.next());
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+}
@@ -0,0 +1,76 @@
+package org.jerkar.api.java;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.jerkar.api.utils.JkUtilsIO;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class JkClassFileTest {
+
+    @Test
+    public void testReadTestClass() {
+        final JkClassFile classFile = JkClassFile.of(bytes(JkClassFileTest.class));
+        Assert.assertEquals(JkClassFileTest.class.getName(), classFile.name());
+        Assert.assertEquals(Object.class.getName(), classFile.superName());
+        Assert.assertFalse(classFile.isAbstract());
+        Assert.assertTrue(classFile.publicMethodAnnotations().contains(Test.class.getName()));
+    }
+
+    @Test
+    public void testReferencedClassNames() {
+        final JkClassFile classFile = JkClassFile.of(bytes(JkClassFileTest.class));
+        Assert.assertTrue(classFile.referencedClassNames().contains(JkUtilsIO.class.getName()));
+        Assert.assertTrue(classFile.referencedClassNames().contains(
+                ByteArrayOutputStream.class.getName()));
+        Assert.assertTrue(classFile.referencedClassNames().contains(Sample.class.getName()));
+        Assert.assertFalse(classFile.referencedClassNames().contains(
+                JkClassFileTest.class.getName()));
+    }
+
+    @Test
+    public void testReadAbstractClass() {
+        final JkClassFile classFile = JkClassFile.of(bytes(Sample.class));
+        Assert.assertEquals(Sample.class.getName(), classFile.name());
+        Assert.assertTrue(classFile.isAbstract());
+        Assert.assertEquals(Arrays.asList(Serializable.class.getName()),
+                classFile.interfaceNames());
+        Assert.assertTrue(classFile.annotations().contains(Ignore.class.getName()));
+
+        // Abstract and non-public methods are not considered
+        Assert.assertFalse(classFile.publicMethodAnnotations().contains(Test.class.getName()));
+    }
+
+    private static byte[] bytes(Class<?> clazz) {
+        final InputStream inputStream = clazz.getResourceAsStream("/"
+                + clazz.getName().replace('.', '/') + ".class");
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        JkUtilsIO.copy(inputStream, outputStream);
+        JkUtilsIO.closeQuietly(inputStream);
+        return outputStream.toByteArray();
+    }
+
+    @Ignore("Annotation on purpose, there is no test here")
+    @SuppressWarnings("serial")
+    static abstract class Sample implements Serializable {
+
+        private static final long BIG = 12345678901L;
+
+        private static final double PI = 3.14;
+
+        @Test
+        public abstract void abstractMethod();
+
+        @Test
+        void packageMethod() {
+            System.out.println(BIG + PI);
+        }
+
+    }
+
+}
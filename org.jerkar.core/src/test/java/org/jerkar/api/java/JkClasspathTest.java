@@ -0,0 +1,81 @@
+package org.jerkar.api.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.jerkar.api.file.JkPath;
+import org.jerkar.api.file.JkPathFilter;
+import org.jerkar.api.utils.JKUtilsTests;
+import org.jerkar.api.utils.JkUtilsIO;
+import org.junit.Assert;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class JkClasspathTest {
+
+    private static final File A = JKUtilsTests.tempFile("classpath/a");
+
+    private static final File B = JKUtilsTests.tempFile("classpath/b");
+
+    private static final File C = JKUtilsTests.tempFile("classpath/c");
+
+    @Test
+    public void testAndKeepsFirstOccurrences() {
+
+        // Classpath ignores non existing entries
+        A.mkdirs();
+        B.mkdirs();
+        C.mkdirs();
+        final JkClasspath classpath = JkClasspath.of(A, B);
+        Assert.assertEquals(Arrays.asList(A, B, C), classpath.and(C, A).entries());
+        Assert.assertEquals(Arrays.asList(C, B, A), classpath.andHead(Arrays.asList(C, B))
+                .entries());
+        Assert.assertSame(classpath, classpath.and(B));
+        Assert.assertTrue(classpath.and(C).contains(C));
+        Assert.assertEquals(JkClasspath.of(A, B, C), classpath.and(C));
+    }
+
+    @Test
+    public void testPathAndKeepsFirstOccurrences() {
+        final JkPath path = JkPath.of(Arrays.asList(A, B, A));
+        Assert.assertEquals(Arrays.asList(A, B), path.entries());
+        Assert.assertEquals(Arrays.asList(A, B, C, B), path.and(C, B).entries());
+        Assert.assertEquals(Arrays.asList(A, B, C), path.and(C, B).withoutDoubloons().entries());
+        Assert.assertEquals(Arrays.asList(C, A, B), path.andHead(C).entries());
+        Assert.assertSame(path, path.withoutDoubloons());
+        Assert.assertTrue(path.and(C).contains(C));
+    }
+
+    @Test
+    public void testArchivesAreLookedUpThroughIndex() throws IOException {
+        final File jar = JKUtilsTests.tempFile("classpath/index/lib.jar");
+        writeJar(jar, "my/pack/Foo.class", "my/pack/sub/Bar.class", "my/res.txt");
+        final JkClasspath classpath = JkClasspath.of(jar);
+        Assert.assertEquals(jar, classpath.getEntryContainingClass("my.pack.sub.Bar"));
+        Assert.assertNull(classpath.getEntryContainingClass("my.pack.Baz"));
+        Assert.assertEquals(2, classpath.allItemsMatching(JkPathFilter.include("**/*.class"))
+                .size());
+
+        // Modified archive is indexed again
+        writeJar(jar, "my/pack/Baz.class");
+        Assert.assertEquals(jar, classpath.getEntryContainingClass("my.pack.Baz"));
+        Assert.assertEquals(Arrays.asList("my/pack/Baz.class"), JkClasspathIndex.instance()
+                .itemsOf(jar));
+    }
+
+    private static void writeJar(File jar, String... itemPaths) throws IOException {
+        jar.getParentFile().mkdirs();
+        final ZipOutputStream outputStream = new ZipOutputStream(JkUtilsIO.outputStream(jar,
+                false));
+        outputStream.putNextEntry(new ZipEntry("my/"));
+        for (final String itemPath : itemPaths) {
+            outputStream.putNextEntry(new ZipEntry(itemPath));
+            outputStream.write(itemPath.getBytes("UTF-8"));
+        }
+        outputStream.close();
+    }
+
+}
@@ -0,0 +1,49 @@
+package org.jerkar.api.java;
+
+import java.io.File;
+import java.util.List;
+
+import org.jerkar.api.file.JkFileTree;
+import org.jerkar.api.utils.JKUtilsTests;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class JkResourceProcessorTest {
+
+    @Test
+    public void testProcessingIsIncremental() {
+        final File dir = JKUtilsTests.tempFile("resources");
+        JkUtilsFile.deleteDirContent(dir);
+        final File src = new File(dir, "src");
+        final File out = new File(dir, "out");
+        final File plain = new File(src, "plain.txt");
+        final File interpolated = new File(src, "conf/app.properties");
+        JkUtilsFile.writeString(plain, "plain", false);
+        JkUtilsFile.writeString(interpolated, "version=${version}", false);
+        final JkResourceProcessor processor = JkResourceProcessor.of(JkFileTree.of(src));
+
+        List<File> changed = processor.interpolating("**/*.properties", "version", "1.0")
+                .generateChangesTo(out);
+        Assert.assertEquals(2, changed.size());
+        final File interpolatedOut = new File(out, "conf/app.properties");
+        Assert.assertEquals("version=1.0", JkUtilsFile.read(interpolatedOut).trim());
+
+        changed = processor.interpolating("**/*.properties", "version", "1.0")
+                .generateChangesTo(out);
+        Assert.assertTrue(changed.isEmpty());
+
+        changed = processor.interpolating("**/*.properties", "version", "2.0")
+                .generateChangesTo(out);
+        Assert.assertEquals(1, changed.size());
+        Assert.assertEquals("version=2.0", JkUtilsFile.read(interpolatedOut).trim());
+
+        JkUtilsFile.delete(plain);
+        changed = processor.interpolating("**/*.properties", "version", "2.0")
+                .generateChangesTo(out);
+        Assert.assertEquals(1, changed.size());
+        Assert.assertFalse(new File(out, "plain.txt").exists());
+    }
+
+}
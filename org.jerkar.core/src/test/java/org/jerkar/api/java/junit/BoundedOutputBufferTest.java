@@ -0,0 +1,31 @@
+package org.jerkar.api.java.junit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class BoundedOutputBufferTest {
+
+    @Test
+    public void testSmallOutputIsKeptAsIs() {
+        final BoundedOutputBuffer buffer = new BoundedOutputBuffer(10);
+        Assert.assertTrue(buffer.isEmpty());
+        buffer.write("abc".getBytes(), 0, 3);
+        buffer.write('d');
+        Assert.assertEquals("abcd", buffer.toString());
+        Assert.assertEquals(0, buffer.truncatedByteCount());
+    }
+
+    @Test
+    public void testHeadAndTailAreKept() {
+        final BoundedOutputBuffer buffer = new BoundedOutputBuffer(6);
+        buffer.write("0123".getBytes(), 0, 4);
+        for (final char c : "456789".toCharArray()) {
+            buffer.write(c);
+        }
+        buffer.write("abcdefgh".getBytes(), 2, 4);
+        Assert.assertEquals(8, buffer.truncatedByteCount());
+        Assert.assertEquals("012\n[... 8 bytes truncated ...]\ndef", buffer.toString());
+    }
+
+}
@@ -0,0 +1,46 @@
+package org.jerkar.api.java.junit;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class JkTestDistributionTest {
+
+    private static final List<String> CLASSES = Arrays.asList("a.ATest", "a.BTest", "a.CTest",
+            "b.DTest", "c.ETest");
+
+    @Test
+    public void testRoundRobin() {
+        final List<List<String>> shards = JkTestDistribution.ROUND_ROBIN.split(CLASSES, 2);
+        Assert.assertEquals(Arrays.asList("a.ATest", "a.CTest", "c.ETest"), shards.get(0));
+        Assert.assertEquals(Arrays.asList("a.BTest", "b.DTest"), shards.get(1));
+    }
+
+    @Test
+    public void testByPackage() {
+        final List<List<String>> shards = JkTestDistribution.BY_PACKAGE.split(CLASSES, 2);
+        Assert.assertEquals(Arrays.asList("a.ATest", "a.BTest", "a.CTest"), shards.get(0));
+        Assert.assertEquals(Arrays.asList("b.DTest", "c.ETest"), shards.get(1));
+    }
+
+    @Test
+    public void testByDuration() {
+        final Map<String, Long> durations = new HashMap<String, Long>();
+        durations.put("a.ATest", 100L);
+        durations.put("a.BTest", 10L);
+        durations.put("a.CTest", 30L);
+        durations.put("b.DTest", 60L);
+        final List<List<String>> shards = JkTestDistribution.byDuration(durations).split(
+                CLASSES, 2);
+
+        // c.ETest has no known duration so it is estimated to the average : 50
+        Assert.assertEquals(Arrays.asList("a.ATest", "a.CTest"), shards.get(0));
+        Assert.assertEquals(Arrays.asList("b.DTest", "c.ETest", "a.BTest"), shards.get(1));
+    }
+
+}
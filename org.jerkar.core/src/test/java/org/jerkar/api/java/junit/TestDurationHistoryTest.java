@@ -0,0 +1,62 @@
+package org.jerkar.api.java.junit;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.jerkar.api.java.junit.JkTestSuiteResult.TestCaseResult;
+import org.jerkar.api.java.junit.JkTestSuiteResult.TestClassResult;
+import org.jerkar.api.utils.JKUtilsTests;
+import org.junit.Assert;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class TestDurationHistoryTest {
+
+    @Test
+    public void testEstimatesAreMediansOfLastRuns() {
+        final File file = JKUtilsTests.tempFile("testDurationHistory/test-durations.ser");
+        file.delete();
+        final long[] durations = { 1000, 10, 30, 20, 500, 40 };
+        for (final long duration : durations) {
+            new TestDurationHistory(file).record(result(new TestClassResult("a.ATest", 1, 0, 0,
+                    duration), new TestClassResult("a.BTest", 1, 0, 1, 99999)));
+        }
+        final TestDurationHistory history = new TestDurationHistory(file);
+
+        // The first duration is dropped as only the last ones are kept
+        Assert.assertEquals(Long.valueOf(30), history.estimates().get("a.ATest"));
+
+        // Durations of failed classes are ignored
+        Assert.assertFalse(history.estimates().containsKey("a.BTest"));
+    }
+
+    @Test
+    public void testReports() {
+        final TestDurationHistory history = new TestDurationHistory(null);
+        history.record(result(new TestClassResult("a.ATest", 1, 0, 0, 100),
+                new TestClassResult("a.BTest", 1, 0, 0, 100),
+                new TestClassResult("a.CTest", 1, 0, 0, 1000)));
+        final JkTestSuiteResult result = result(new TestClassResult("a.ATest", 1, 0, 0, 150),
+                new TestClassResult("a.BTest", 1, 0, 0, 400),
+                new TestClassResult("a.CTest", 1, 0, 0, 1200));
+
+        final List<String> slowest = history.slowest(result);
+        Assert.assertTrue(slowest.get(1).contains("a.CTest"));
+        Assert.assertTrue(slowest.get(2).contains("a.BTest"));
+
+        // Only B has regressed enough, both in absolute and relative terms
+        final List<String> regressions = history.regressions(result);
+        Assert.assertEquals(2, regressions.size());
+        Assert.assertTrue(regressions.get(1).contains("a.BTest"));
+    }
+
+    private static JkTestSuiteResult result(TestClassResult... classResults) {
+        final List<TestCaseResult> noCase = Collections.emptyList();
+        return new JkTestSuiteResult(new Properties(), "all", 0, 0, noCase, 0,
+                Arrays.asList(classResults));
+    }
+
+}
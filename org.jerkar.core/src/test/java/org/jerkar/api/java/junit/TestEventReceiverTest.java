@@ -0,0 +1,91 @@
+package org.jerkar.api.java.junit;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jerkar.api.java.junit.JkTestSuiteResult.ExceptionDescription;
+import org.jerkar.api.java.junit.JkTestSuiteResult.TestClassResult;
+import org.jerkar.api.java.junit.TestEvent.Kind;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class TestEventReceiverTest {
+
+    private static final List<String> CLASSES = Arrays.asList("a.ATest", "a.BTest", "a.CTest");
+
+    @Test
+    public void testRunningTestIsBlamedForTermination() {
+        final List<TestEvent> events = Arrays.asList(
+                new TestEvent(Kind.STARTED, "a.ATest", "ok"),
+                new TestEvent(Kind.FINISHED, "a.ATest", "ok"),
+                new TestEvent(Kind.STARTED, "a.ATest", "ko"),
+                new TestEvent(Kind.FAILED, "a.ATest", "ko", new ExceptionDescription(
+                        new AssertionError()), null),
+                new TestEvent(Kind.FINISHED, "a.ATest", "ko"),
+                new TestEvent(Kind.STARTED, "a.BTest", "crash"));
+        final JkTestSuiteResult result = TestEventReceiver.partialResult(events, CLASSES,
+                "exit value = 1");
+        Assert.assertEquals(3, result.runCount());
+        Assert.assertEquals(2, result.failureCount());
+        Assert.assertEquals("crash", result.failures().get(1).getTestName());
+        final TestClassResult classResult = result.testClassResults().get(1);
+        Assert.assertEquals("a.BTest", classResult.getClassName());
+        Assert.assertEquals(1, classResult.getFailureCount());
+        Assert.assertEquals(Arrays.asList("a.CTest"), TestEventReceiver.classesNotStarted(
+                events, CLASSES, result));
+    }
+
+    @Test
+    public void testFirstClassNotStartedIsBlamedWhenNoTestRuns() {
+        final List<TestEvent> events = Arrays.asList(
+                new TestEvent(Kind.STARTED, "a.ATest", "ok"),
+                new TestEvent(Kind.FINISHED, "a.ATest", "ok"));
+        final JkTestSuiteResult result = TestEventReceiver.partialResult(events, CLASSES,
+                "exit value = 1");
+        Assert.assertEquals(1, result.runCount());
+        Assert.assertEquals("a.BTest", result.failures().get(0).getClassName());
+        Assert.assertEquals(Arrays.asList("a.CTest"), TestEventReceiver.classesNotStarted(
+                events, CLASSES, result));
+    }
+
+    @Test
+    public void testTimedOutTestIsNotReportedTwice() {
+        final List<TestEvent> events = Arrays.asList(
+                new TestEvent(Kind.STARTED, "a.ATest", "hang"),
+                new TestEvent(Kind.TIMED_OUT, "a.ATest", "hang", new ExceptionDescription(
+                        new RuntimeException("timed out")), "dump"));
+        final JkTestSuiteResult result = TestEventReceiver.partialResult(events, CLASSES,
+                "exit value = 3");
+        Assert.assertEquals(1, result.runCount());
+        Assert.assertEquals(1, result.failureCount());
+        Assert.assertEquals("timed out", result.failures().get(0).getExceptionDescription()
+                .getMessage());
+    }
+
+    @Test
+    public void testUnfinishedReportsAreWritten() {
+        final File reportDir = new File("build/output/test-out/unfinished-reports");
+        JkUtilsFile.deleteDirContent(reportDir);
+        reportDir.mkdirs();
+        final List<TestEvent> events = Arrays.asList(
+                new TestEvent(Kind.STARTED, "a.ATest", "ok"),
+                new TestEvent(Kind.FINISHED, "a.ATest", "ok"),
+                new TestEvent(Kind.IGNORED, "a.ATest", "ignored"),
+                new TestEvent(Kind.STARTED, "a.ATest", "crash"));
+        TestReportWriter.start(reportDir, "a.ATest");
+        final JkTestSuiteResult result = TestEventReceiver.partialResult(events, CLASSES,
+                "exit value = 1");
+        TestEventReceiver.writeUnfinishedReports(result, events, reportDir);
+        Assert.assertFalse(new File(reportDir, "TEST-a.ATest.xml.part").exists());
+        final String report = JkUtilsFile.read(new File(reportDir, "TEST-a.ATest.xml"));
+        Assert.assertTrue(report, report.contains("tests=\"2\""));
+        Assert.assertTrue(report, report.contains("name=\"ok\""));
+        Assert.assertTrue(report, report.contains("name=\"ignored\""));
+        Assert.assertTrue(report, report.contains("name=\"crash\""));
+        Assert.assertFalse(new File(reportDir, "TEST-a.BTest.xml").exists());
+    }
+
+}
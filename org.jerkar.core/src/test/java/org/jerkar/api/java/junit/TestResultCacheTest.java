@@ -0,0 +1,79 @@
+package org.jerkar.api.java.junit;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.jerkar.api.java.junit.JkTestSuiteResult.TestCaseResult;
+import org.jerkar.api.java.junit.JkTestSuiteResult.TestClassResult;
+import org.jerkar.api.utils.JKUtilsTests;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class TestResultCacheTest {
+
+    @Test
+    public void testPassedClassesAreReplayedUntilChanged() {
+        final File file = JKUtilsTests.tempFile("testResultCache/test-results.ser");
+        file.delete();
+        final Map<String, String> hashes = new HashMap<String, String>();
+        hashes.put("a.ATest", "1");
+        hashes.put("a.ATest$Inner", "2");
+        hashes.put("a.BTest", "3");
+
+        final List<String> testClasses = Arrays.asList("a.ATest", "a.BTest");
+        TestResultCache cache = new TestResultCache(file, TestResultCache.keys("env", hashes,
+                testClasses));
+        Assert.assertFalse(cache.isUpToDate("a.ATest"));
+        cache.update(result(new TestClassResult("a.ATest", 3, 1, 0, 10), new TestClassResult(
+                "a.BTest", 2, 0, 1, 10)), null);
+
+        cache = new TestResultCache(file, TestResultCache.keys("env", hashes, testClasses));
+        Assert.assertTrue(cache.isUpToDate("a.ATest"));
+        Assert.assertFalse(cache.isUpToDate("a.BTest"));
+        final JkTestSuiteResult replayed = cache.replay(Arrays.asList("a.ATest"), null);
+        Assert.assertEquals(3, replayed.runCount());
+        Assert.assertEquals(1, replayed.ignoreCount());
+
+        Assert.assertFalse(new TestResultCache(file, TestResultCache.keys("otherEnv", hashes,
+                testClasses)).isUpToDate("a.ATest"));
+        hashes.put("a.ATest$Inner", "4");
+        Assert.assertFalse(new TestResultCache(file, TestResultCache.keys("env", hashes,
+                testClasses)).isUpToDate("a.ATest"));
+    }
+
+    @Test
+    public void testEnvironmentHashIgnoresTestClasses() {
+        final File dir = JKUtilsTests.tempFile("testResultCache/classes");
+        JkUtilsFile.deleteDirContent(dir);
+        final File testClass = new File(dir, "a/ATest.class");
+        final File helperClass = new File(dir, "a/Helper.class");
+        JkUtilsFile.writeString(testClass, "1", false);
+        JkUtilsFile.writeString(helperClass, "1", false);
+        final List<File> classpath = Arrays.asList(dir);
+        final List<String> options = Collections.emptyList();
+        final Set<String> testClasses = Collections.singleton("a.ATest");
+
+        final String hash = TestResultCache.environmentHash(classpath, options, testClasses);
+        JkUtilsFile.writeString(testClass, "2", false);
+        Assert.assertEquals(hash, TestResultCache.environmentHash(classpath, options,
+                testClasses));
+        JkUtilsFile.writeString(helperClass, "2", false);
+        Assert.assertFalse(hash.equals(TestResultCache.environmentHash(classpath, options,
+                testClasses)));
+    }
+
+    private static JkTestSuiteResult result(TestClassResult... classResults) {
+        final List<TestCaseResult> noCase = Collections.emptyList();
+        return new JkTestSuiteResult(new Properties(), "all", 0, 0, noCase, 0,
+                Arrays.asList(classResults));
+    }
+
+}
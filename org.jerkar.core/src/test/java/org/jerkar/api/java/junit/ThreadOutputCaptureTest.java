@@ -0,0 +1,42 @@
+package org.jerkar.api.java.junit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class ThreadOutputCaptureTest {
+
+    @Test
+    public void testOutputIsFlushedPerThread() throws InterruptedException {
+        final ByteArrayOutputStream target = new ByteArrayOutputStream();
+        final PrintStream targetStream = new PrintStream(target, true);
+        final ThreadOutputCapture capture = ThreadOutputCapture.install();
+        try {
+            capture.start(true, null);
+            System.out.println("main 1");
+            final Thread thread = new Thread() {
+
+                @Override
+                public void run() {
+                    capture.start(true, null);
+                    System.out.println("other 1");
+                    System.err.println("other 2");
+                    capture.flush(targetStream);
+                }
+            };
+            thread.start();
+            thread.join();
+            System.out.println("main 2");
+            capture.flush(targetStream);
+        } finally {
+            capture.uninstall();
+        }
+        final String eol = System.getProperty("line.separator");
+        Assert.assertEquals("other 1" + eol + "other 2" + eol + "main 1" + eol + "main 2" + eol,
+                target.toString());
+    }
+
+}
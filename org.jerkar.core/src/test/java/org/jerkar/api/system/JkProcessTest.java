@@ -0,0 +1,16 @@
+package org.jerkar.api.system;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class JkProcessTest {
+
+    @Test
+    public void testLauncherOptionsStayOutOfArgumentFile() {
+        final int result = JkProcess.ofJavaTool("javac", "-J-Xmx64m", "-version")
+                .withArgumentFileThreshold(1).runSync();
+        Assert.assertEquals(0, result);
+    }
+
+}
@@ -0,0 +1,101 @@
+package org.jerkar.api.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Benchmarks the copy of a directory containing many small files (first
+ * argument, default 20000) and a few large ones (second argument, in MB,
+ * default 4 x 64 MB). The previous implementation, creating each target file
+ * then copying files one after the other through a 1 KB buffer, is compared
+ * with
+ * {@link JkUtilsFile#copyDirContent(File, File, boolean)} and
+ * {@link JkUtilsFile#copyDirContentIfChanged(File, File, java.io.FileFilter, boolean)}.
+ */
+@SuppressWarnings("javadoc")
+public class JkUtilsFileCopyRunner {
+
+    public static void main(String[] args) throws IOException {
+        final int fileCount = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        final int largeFileSize = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        final File dir = JKUtilsTests.tempFile("copy-bench/source");
+        JkUtilsFile.deleteDirContent(dir);
+        final StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            content.append("Some content for line ").append(i).append('\n');
+        }
+        for (int i = 0; i < fileCount; i++) {
+            final File file = new File(dir, "dir" + (i % 200) + "/file" + i + ".txt");
+            JkUtilsFile.writeString(file, content.toString(), false);
+        }
+        final byte[] block = new byte[1024 * 1024];
+        for (int i = 0; i < 4; i++) {
+            final OutputStream outputStream = new FileOutputStream(JkUtilsFile
+                    .createFileIfNotExist(new File(dir, "large/file" + i + ".bin")));
+            for (int j = 0; j < largeFileSize; j++) {
+                block[0] = (byte) j;
+                outputStream.write(block);
+            }
+            outputStream.close();
+        }
+
+        for (int run = 0; run < 3; run++) {
+            final File previousTarget = JKUtilsTests.tempFile("copy-bench/previous");
+            JkUtilsFile.deleteDirContent(previousTarget);
+            long start = System.nanoTime();
+            previousCopyDirContent(dir, previousTarget);
+            report("Previous copy", start);
+
+            final File target = JKUtilsTests.tempFile("copy-bench/target");
+            JkUtilsFile.deleteDirContent(target);
+            start = System.nanoTime();
+            JkUtilsFile.copyDirContent(dir, target, false);
+            report("Copy", start);
+
+            final File changedTarget = JKUtilsTests.tempFile("copy-bench/changed");
+            JkUtilsFile.deleteDirContent(changedTarget);
+            start = System.nanoTime();
+            JkUtilsFile.copyDirContentIfChanged(dir, changedTarget, null, false);
+            report("Copy if changed, empty target", start);
+            start = System.nanoTime();
+            final int count = JkUtilsFile.copyDirContentIfChanged(dir, changedTarget, null, false);
+            report("Copy if changed, up to date target (" + count + " copied)", start);
+
+            final File linkTarget = JKUtilsTests.tempFile("copy-bench/links");
+            JkUtilsFile.deleteDirContent(linkTarget);
+            start = System.nanoTime();
+            JkUtilsFile.copyDirContentIfChanged(dir, linkTarget, null, true);
+            report("Hard link if changed, empty target", start);
+            System.out.println();
+        }
+    }
+
+    private static void previousCopyDirContent(File fromDir, File toDir) throws IOException {
+        for (final File child : fromDir.listFiles()) {
+            final File target = new File(toDir, child.getName());
+            if (child.isDirectory()) {
+                previousCopyDirContent(child, target);
+                continue;
+            }
+            JkUtilsFile.createFileIfNotExist(target);
+            final InputStream in = new FileInputStream(child);
+            final OutputStream out = new FileOutputStream(target);
+            final byte[] buf = new byte[1024];
+            int len;
+            while ((len = in.read(buf)) > 0) {
+                out.write(buf, 0, len);
+            }
+            in.close();
+            out.close();
+        }
+    }
+
+    private static void report(String label, long startNano) {
+        System.out.println(label + " : " + (System.nanoTime() - startNano) / 1000000 + " ms");
+    }
+
+}
@@ -1,12 +1,15 @@
 package org.jerkar.api.utils;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 import org.junit.Test;
@@ -44,6 +47,26 @@ public class JkUtilsFileTest {
         assertEquals(1, files.size());
     }
 
+    @Test
+    public void testFileIterator() {
+        final File dir = JKUtilsTests.tempFile("fileIterator");
+        JkUtilsFile.deleteDirContent(dir);
+        JkUtilsFile.writeString(new File(dir, "a/b/c.txt"), "c", false);
+        JkUtilsFile.writeString(new File(dir, "a/d.txt"), "d", false);
+        new File(dir, "e").mkdirs();
+        final Iterator<File> it = JkUtilsFile.fileIterator(dir, JkFileFilters.acceptAll(), true);
+        final List<File> files = new ArrayList<File>();
+        while (it.hasNext()) {
+            files.add(it.next());
+        }
+        assertEquals(JkUtilsFile.filesOf(dir, true).size(), files.size());
+        assertEquals(5, files.size());
+        assertTrue(files.indexOf(new File(dir, "a")) < files.indexOf(new File(dir, "a/b/c.txt")));
+        assertFalse(JkUtilsFile.isEmpty(dir, false));
+        assertTrue(JkUtilsFile.isEmpty(new File(dir, "e"), false));
+        JkUtilsFile.deleteDir(dir);
+    }
+
     @Test
     public void testRelativePath() throws IOException {
         final File base = new File("C:/my/root/folder");
@@ -53,4 +76,50 @@ public class JkUtilsFileTest {
         assertEquals(".." + File.separator + "foo" + File.separator + "bar.txt", JkUtilsFile.getRelativePath(base, file2));
     }
 
+    @Test
+    public void testCopyFileIfChanged() {
+        final File dir = JKUtilsTests.tempFile("copyIfChanged");
+        JkUtilsFile.deleteDirContent(dir);
+        final File source = new File(dir, "source.txt");
+        JkUtilsFile.writeString(source, "content", false);
+        final File copy = new File(dir, "copy/copy.txt");
+        final File link = new File(dir, "link/link.txt");
+        assertTrue(JkUtilsFile.copyFileIfChanged(source, copy, false));
+        assertFalse(JkUtilsFile.copyFileIfChanged(source, copy, false));
+        assertTrue(JkUtilsFile.copyFileIfChanged(source, link, true));
+        assertFalse(JkUtilsFile.copyFileIfChanged(source, link, true));
+        assertEquals("content", JkUtilsFile.read(link).trim());
+
+        // Replacing a hard link must not alter the linked file
+        JkUtilsFile.writeString(copy, "altered content", false);
+        assertTrue(JkUtilsFile.copyFileIfChanged(copy, link, false));
+        assertEquals("content", JkUtilsFile.read(source).trim());
+        assertEquals("altered content", JkUtilsFile.read(link).trim());
+        JkUtilsFile.deleteDir(dir);
+    }
+
+    @Test
+    public void testCopyDirContent() {
+        final File dir = JKUtilsTests.tempFile("copyDir");
+        JkUtilsFile.deleteDirContent(dir);
+        final File source = new File(dir, "source");
+        for (int i = 0; i < 100; i++) {
+            JkUtilsFile.writeString(new File(source, "d" + (i % 10) + "/f" + i + ".txt"), "content "
+                    + i, false);
+        }
+        final File large = new File(source, "large.bin");
+        JkUtilsFile.writeBytes(large, new byte[200 * 1024]);
+        assertEquals(101, JkUtilsFile.copyDirContent(source, new File(dir, "copy"), false));
+        assertEquals("content 42", JkUtilsFile.read(new File(dir, "copy/d2/f42.txt")).trim());
+        assertEquals(large.length(), new File(dir, "copy/large.bin").length());
+
+        final File target = new File(dir, "changed");
+        assertEquals(101, JkUtilsFile.copyDirContentIfChanged(source, target, null, false));
+        assertEquals(0, JkUtilsFile.copyDirContentIfChanged(source, target, null, false));
+        JkUtilsFile.writeString(new File(source, "d3/f3.txt"), "new content", false);
+        assertEquals(1, JkUtilsFile.copyDirContentIfChanged(source, target, null, false));
+        assertEquals("new content", JkUtilsFile.read(new File(target, "d3/f3.txt")).trim());
+        JkUtilsFile.deleteDir(dir);
+    }
+
 }
@@ -21,4 +21,22 @@ public class JkUtilsZipTest {
         JkUtilsIO.closeQuietly(zipFile, toto1is, toto2is);
     }
 
+    @Test
+    public void testUnzipSkipsUpToDateEntries() throws Exception {
+        final File file = JkUtilsFile.resourceAsFile(JkUtilsZipTest.class, "toto.zip");
+        final File dir = JkUtilsFile.tempFile("jkutilszip", "");
+        dir.delete();
+        dir.mkdirs();
+        try {
+            final int count = JkUtilsZip.unzip(file, dir, null);
+            Assert.assertTrue(count > 0);
+            Assert.assertTrue(new File(dir, "toto1.zip").exists());
+            Assert.assertEquals(0, JkUtilsZip.unzip(file, dir, null));
+            JkUtilsFile.writeString(new File(dir, "toto1.zip"), "altered", false);
+            Assert.assertEquals(1, JkUtilsZip.unzip(file, dir, null));
+        } finally {
+            JkUtilsFile.deleteDir(dir);
+        }
+    }
+
 }
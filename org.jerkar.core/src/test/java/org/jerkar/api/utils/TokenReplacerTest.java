@@ -0,0 +1,65 @@
+package org.jerkar.api.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class TokenReplacerTest {
+
+    private static final Map<String, String> VALUES = JkUtilsIterable.mapOf("name", "Jérôme",
+            "empty", "");
+
+    @Test
+    public void testReplaceInUtf8() throws IOException {
+        assertReplaced("UTF-8");
+    }
+
+    @Test
+    public void testReplaceInUtf16() throws IOException {
+        assertReplaced("UTF-16");
+    }
+
+    @Test
+    public void testUnclosedTokenIsCopiedAsText() throws IOException {
+        assertUnclosedTokenIsCopiedAsText("UTF-8");
+        assertUnclosedTokenIsCopiedAsText("UTF-16");
+    }
+
+    private static void assertUnclosedTokenIsCopiedAsText(String charsetName) throws IOException {
+        final Charset charset = Charset.forName(charsetName);
+        final StringBuilder builder = new StringBuilder("${unclosed ");
+        while (builder.length() < 300 * 1024) {
+            builder.append("text without closing brace ");
+        }
+        final String text = builder.toString();
+        final char[] longKey = new char[TokenReplacer.MAX_TOKEN_LENGTH];
+        Arrays.fill(longKey, 'k');
+        final String longToken = "${" + new String(longKey) + "}";
+        final String in = text + "${name}" + longToken + text + "${name";
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final Map<String, String> values = JkUtilsIterable.mapOf("name", "Jérôme",
+                new String(longKey), "long");
+        new TokenReplacer(values, charset).copy(new ByteArrayInputStream(in.getBytes(charset)),
+                out);
+        Assert.assertEquals(text + "Jérôme" + longToken + text + "${name", new String(
+                out.toByteArray(), charset));
+    }
+
+    private static void assertReplaced(String charsetName) throws IOException {
+        final Charset charset = Charset.forName(charsetName);
+        final String in = "$hello ${name}${empty} $${name} ${unknown} ${name";
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new TokenReplacer(VALUES, charset).copy(new ByteArrayInputStream(in.getBytes(charset)),
+                out);
+        Assert.assertEquals("$hello Jérôme $Jérôme ${unknown} ${name",
+                new String(out.toByteArray(), charset));
+    }
+
+}
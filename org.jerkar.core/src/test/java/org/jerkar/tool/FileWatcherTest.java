@@ -0,0 +1,39 @@
+package org.jerkar.tool;
+
+import java.io.File;
+import java.util.Set;
+
+import org.jerkar.api.file.JkFileTreeSet;
+import org.jerkar.api.utils.JKUtilsTests;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class FileWatcherTest {
+
+    @Test
+    public void testChangesAreDetected() {
+        final File dir = JKUtilsTests.tempFile("watch");
+        JkUtilsFile.deleteDirContent(dir);
+        final File modified = new File(dir, "modified.txt");
+        final File deleted = new File(dir, "sub/deleted.txt");
+        final File created = new File(dir, "sub/created.txt");
+        final File untouched = new File(dir, "untouched.txt");
+        JkUtilsFile.writeString(modified, "foo", false);
+        JkUtilsFile.writeString(deleted, "foo", false);
+        JkUtilsFile.writeString(untouched, "foo", false);
+        final FileWatcher watcher = new FileWatcher(JkFileTreeSet.of(dir, new File(dir,
+                "notExisting")));
+
+        JkUtilsFile.writeString(modified, "foo bar", false);
+        deleted.delete();
+        JkUtilsFile.writeString(created, "foo", false);
+        final Set<File> changes = watcher.waitForChanges();
+        Assert.assertEquals(3, changes.size());
+        Assert.assertTrue(changes.contains(modified));
+        Assert.assertTrue(changes.contains(deleted));
+        Assert.assertTrue(changes.contains(created));
+    }
+
+}
@@ -0,0 +1,103 @@
+package org.jerkar.tool.builtins.javabuild.jee;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.zip.ZipFile;
+
+import org.jerkar.api.file.JkFileTreeSet;
+import org.jerkar.api.utils.JKUtilsTests;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsIO;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class JeePackerTest {
+
+    @Test
+    public void testRemovedSourceFileIsDeletedFromWar() {
+        final File dir = JKUtilsTests.tempFile("jeepacker");
+        JkUtilsFile.deleteDirContent(dir);
+        final File webappSrc = new File(dir, "webapp");
+        final File classDir = new File(dir, "classes");
+        final File warDir = new File(dir, "war");
+        JkUtilsFile.writeString(new File(webappSrc, "WEB-INF/web.xml"), "<web-app/>", false);
+        JkUtilsFile.writeString(new File(webappSrc, "css/old.css"), "old", false);
+        JkUtilsFile.writeString(new File(classDir, "my/pack/Foo.class"), "foo", false);
+        final Iterable<File> libs = Collections.emptyList();
+
+        JeePacker.war(webappSrc, classDir, libs, JkFileTreeSet.empty(), warDir);
+        Assert.assertTrue(new File(warDir, "css/old.css").exists());
+        Assert.assertTrue(new File(warDir, "WEB-INF/classes/my/pack/Foo.class").exists());
+
+        JkUtilsFile.delete(new File(webappSrc, "css/old.css"));
+        JkUtilsFile.writeString(new File(webappSrc, "index.html"), "index", false);
+        JeePacker.war(webappSrc, classDir, libs, JkFileTreeSet.empty(), warDir);
+        Assert.assertFalse(new File(warDir, "css/old.css").exists());
+        Assert.assertFalse(new File(warDir, "css").exists());
+        Assert.assertEquals("index", JkUtilsFile.read(new File(warDir, "index.html")).trim());
+        Assert.assertTrue(new File(warDir, "WEB-INF/web.xml").exists());
+        Assert.assertTrue(new File(warDir, "WEB-INF/classes/my/pack/Foo.class").exists());
+        JkUtilsFile.deleteDir(dir);
+    }
+
+    @Test
+    public void testExtraFileWinsInWarArchiveAsInExplodedWar() throws IOException {
+        final File dir = JKUtilsTests.tempFile("jeepacker-archive");
+        JkUtilsFile.deleteDirContent(dir);
+        final File webappSrc = new File(dir, "webapp");
+        final File classDir = new File(dir, "classes");
+        final File extraDir = new File(dir, "extra");
+        JkUtilsFile.writeString(new File(webappSrc, "WEB-INF/web.xml"), "<web-app/>", false);
+        JkUtilsFile.writeString(new File(webappSrc, "index.html"), "webapp", false);
+        JkUtilsFile.writeString(new File(extraDir, "index.html"), "extra", false);
+        JkUtilsFile.writeString(new File(classDir, "my/pack/Foo.class"), "foo", false);
+        final Iterable<File> libs = Collections.emptyList();
+        final JkFileTreeSet extra = JkFileTreeSet.of(extraDir);
+
+        final File war = new File(dir, "my.war");
+        JeePacker.warArchive(webappSrc, classDir, libs, extra, war);
+        final ZipFile zipFile = new ZipFile(war);
+        try {
+            final InputStream inputStream = zipFile.getInputStream(zipFile.getEntry("index.html"));
+            Assert.assertEquals("extra", JkUtilsIO.readAsString(inputStream).trim());
+            Assert.assertNotNull(zipFile.getEntry("WEB-INF/classes/my/pack/Foo.class"));
+        } finally {
+            zipFile.close();
+        }
+
+        final File warDir = new File(dir, "war");
+        JeePacker.war(webappSrc, classDir, libs, extra, warDir);
+        Assert.assertEquals("extra", JkUtilsFile.read(new File(warDir, "index.html")).trim());
+        JkUtilsFile.deleteDir(dir);
+    }
+
+    @Test
+    public void testTargetSharedBySeveralSourcesIsNotCopiedAgain() {
+        final File dir = JKUtilsTests.tempFile("jeepacker-shared");
+        JkUtilsFile.deleteDirContent(dir);
+        final File webappSrc = new File(dir, "webapp");
+        final File extraDir = new File(dir, "extra");
+        JkUtilsFile.writeString(new File(webappSrc, "WEB-INF/web.xml"), "<web-app/>", false);
+        JkUtilsFile.writeString(new File(webappSrc, "index.html"), "webapp", false);
+        JkUtilsFile.writeString(new File(extraDir, "index.html"), "extra", false);
+        final Iterable<File> libs = Collections.emptyList();
+        final JkFileTreeSet extra = JkFileTreeSet.of(extraDir);
+        final File warDir = new File(dir, "war");
+        final File index = new File(warDir, "index.html");
+        JeePacker.war(webappSrc, new File(dir, "classes"), libs, extra, warDir);
+        Assert.assertEquals("extra", JkUtilsFile.read(index).trim());
+
+        // A file replaced by a new copy is no longer linked to the probe
+        final File probe = new File(dir, "probe.html");
+        Assume.assumeTrue(JkUtilsFile.hardLink(index, probe));
+        JeePacker.war(webappSrc, new File(dir, "classes"), libs, extra, warDir);
+        JkUtilsFile.writeString(probe, "probe", false);
+        Assert.assertEquals("probe", JkUtilsFile.read(index).trim());
+        JkUtilsFile.deleteDir(dir);
+    }
+
+}
@@ -1,6 +1,10 @@
 package org.jerkar.tool.builtins.templates.javabuild;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.jar.Attributes.Name;
 
 import org.jerkar.api.java.JkManifest;
@@ -23,4 +27,22 @@ public class JkManifestTest {
         Assert.assertEquals(mainClassName, readMainClass);
     }
 
+    @Test
+    public void testEntryMergerGivesPrecedenceToFirstManifest() throws Exception {
+        final byte[] first = toBytes(JkManifest.empty().addMainClass("org.jerkar.Main"));
+        final byte[] second = toBytes(JkManifest.empty().addMainClass("org.foo.Main")
+                .addMainAttribute("Foo", "bar"));
+        final byte[] merged = JkManifest.ENTRY_MERGER.merge(JkManifest.PATH,
+                Arrays.asList(first, second));
+        final JkManifest manifest = JkManifest.of(new ByteArrayInputStream(merged));
+        Assert.assertEquals("org.jerkar.Main", manifest.mainAttribute(Name.MAIN_CLASS));
+        Assert.assertEquals("bar", manifest.mainAttribute("Foo"));
+    }
+
+    private static byte[] toBytes(JkManifest manifest) throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        manifest.manifest().write(outputStream);
+        return outputStream.toByteArray();
+    }
+
 }
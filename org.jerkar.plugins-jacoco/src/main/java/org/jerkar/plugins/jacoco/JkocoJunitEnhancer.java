@@ -56,10 +56,14 @@ public final class JkocoJunitEnhancer implements Enhancer {
     }
 
     @Override
-    public JkUnit enhance(JkUnit jkUnit) {
+    public JkUnit enhance(JkUnit unit) {
 	if (!enabled) {
-	    return jkUnit;
+	    return unit;
 	}
+
+	// Coverage is only complete if all tests run, and the agent writes it
+	// when the JVM exits so JVMs can't be reused
+	final JkUnit jkUnit = unit.withForcedRun(true).withJvmPool(null);
 	if (jkUnit.forked()) {
 	    JkJavaProcess process = jkUnit.processFork();
 	    process = process.andAgent(destFile, options());